@@ -0,0 +1,329 @@
+package com.faunadb.common;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+
+import static java.lang.String.format;
+
+/**
+ * Fails requests fast while an endpoint is failing, instead of letting them wait for their timeout.
+ *
+ * <p>Each endpoint gets its own circuit, keyed by its root URL, so all the connections sharing a breaker share
+ * the circuit of an endpoint. Circuits follow the usual state machine:</p>
+ * <ul>
+ *   <li><b>closed:</b> requests go through, and their outcomes are recorded in a sliding window. Once the
+ *   window holds enough requests, and either too many of them failed, or too many of them were slow,
+ *   the circuit opens;</li>
+ *   <li><b>open:</b> requests fail right away with a {@link RejectedExecutionException}, until the circuit
+ *   has been open for a while and becomes half-open;</li>
+ *   <li><b>half-open:</b> a few trial requests go through. The circuit closes if they all succeed in time,
+ *   and opens again otherwise.</li>
+ * </ul>
+ *
+ * <p>Requests failing with a connection error, a timeout or a server error ({@code 5xx} responses) count
+ * as failures. Other responses, such as query errors, are the endpoint working as expected.</p>
+ *
+ * @see Connection.Builder#withCircuitBreaker(CircuitBreaker)
+ */
+public final class CircuitBreaker {
+
+  /**
+   * The state of a circuit.
+   */
+  public enum State {
+    /** Requests go through. */
+    CLOSED,
+    /** Requests fail right away. */
+    OPEN,
+    /** A few trial requests go through. */
+    HALF_OPEN
+  }
+
+  /**
+   * Returns a new {@link Builder} instance.
+   *
+   * @return a new {@link Builder}
+   */
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * A builder for the {@link CircuitBreaker} instance.
+   */
+  public static final class Builder {
+
+    private int windowSize = 50;
+    private int minimumRequests = 20;
+    private double failureRateThreshold = 0.5;
+    private Duration slowRequestDuration = Duration.ofSeconds(10);
+    private double slowRequestRateThreshold = 0.8;
+    private Duration openDuration = Duration.ofSeconds(10);
+    private int trialRequests = 3;
+
+    private Builder() {
+    }
+
+    /**
+     * Sets how many of the latest requests are considered, and how many of them are needed before the
+     * circuit may open. Defaults to 50 and 20.
+     *
+     * @param windowSize the number of requests in the sliding window
+     * @param minimumRequests the number of requests needed to open the circuit
+     * @return this {@link Builder} object
+     */
+    public Builder withWindow(int windowSize, int minimumRequests) {
+      this.windowSize = windowSize;
+      this.minimumRequests = minimumRequests;
+      return this;
+    }
+
+    /**
+     * Sets the rate of failed requests opening the circuit. Defaults to 0.5.
+     *
+     * @param threshold the failure rate, between 0 and 1
+     * @return this {@link Builder} object
+     */
+    public Builder withFailureRateThreshold(double threshold) {
+      this.failureRateThreshold = threshold;
+      return this;
+    }
+
+    /**
+     * Sets the rate of slow requests opening the circuit, and how long a request must take to be slow.
+     * Defaults to 0.8 and 10 seconds.
+     *
+     * @param threshold the slow request rate, between 0 and 1
+     * @param slowRequestDuration the duration above which a request is slow
+     * @return this {@link Builder} object
+     */
+    public Builder withSlowRequestRateThreshold(double threshold, Duration slowRequestDuration) {
+      this.slowRequestRateThreshold = threshold;
+      this.slowRequestDuration = slowRequestDuration;
+      return this;
+    }
+
+    /**
+     * Sets how long the circuit stays open before letting trial requests through. Defaults to 10 seconds.
+     *
+     * @param openDuration the open duration
+     * @return this {@link Builder} object
+     */
+    public Builder withOpenDuration(Duration openDuration) {
+      this.openDuration = openDuration;
+      return this;
+    }
+
+    /**
+     * Sets how many trial requests must succeed for a half-open circuit to close. Defaults to 3.
+     *
+     * @param trialRequests the number of trial requests
+     * @return this {@link Builder} object
+     */
+    public Builder withTrialRequests(int trialRequests) {
+      this.trialRequests = trialRequests;
+      return this;
+    }
+
+    /**
+     * @return a newly constructed {@link CircuitBreaker}
+     */
+    public CircuitBreaker build() {
+      if (windowSize < 1 || minimumRequests < 1 || minimumRequests > windowSize)
+        throw new IllegalArgumentException(format("Invalid window: %d requests, %d minimum", windowSize, minimumRequests));
+      if (failureRateThreshold <= 0 || failureRateThreshold > 1 || slowRequestRateThreshold <= 0 || slowRequestRateThreshold > 1)
+        throw new IllegalArgumentException("Thresholds must be between 0 and 1");
+      if (trialRequests < 1)
+        throw new IllegalArgumentException("Trial requests must be at least 1");
+
+      return new CircuitBreaker(this);
+    }
+  }
+
+  /**
+   * The circuit of a single endpoint.
+   */
+  final class Circuit {
+    private final String root;
+
+    // guarded by this
+    private State state = State.CLOSED;
+    private final byte[] outcomes = new byte[windowSize];
+    private int next = 0;
+    private int recorded = 0;
+    private int failures = 0;
+    private int slow = 0;
+    private long openedAtNanos = 0;
+    private int trialsStarted = 0;
+    private int trialsSucceeded = 0;
+
+    private Circuit(String root) {
+      this.root = root;
+    }
+
+    /**
+     * Lets a request through, or fails it fast.
+     *
+     * @throws RejectedExecutionException if the circuit is open
+     */
+    synchronized void acquire() {
+      if (state == State.OPEN && System.nanoTime() - openedAtNanos >= openDurationNanos) {
+        state = State.HALF_OPEN;
+        trialsStarted = 0;
+        trialsSucceeded = 0;
+      }
+
+      if (state == State.CLOSED)
+        return;
+
+      if (state == State.HALF_OPEN && trialsStarted < trialRequests) {
+        trialsStarted += 1;
+        return;
+      }
+
+      rejected.mark();
+      throw new RejectedExecutionException(format("Circuit breaker open for %s", root));
+    }
+
+    /**
+     * @return whether a request would be let through right now
+     */
+    synchronized boolean isAvailable() {
+      switch (state) {
+        case CLOSED:
+          return true;
+        case OPEN:
+          return System.nanoTime() - openedAtNanos >= openDurationNanos;
+        default:
+          return trialsStarted < trialRequests;
+      }
+    }
+
+    /**
+     * Records the outcome of a request let through.
+     */
+    synchronized void onResult(long latencyNanos, boolean failed) {
+      boolean isSlow = latencyNanos >= slowRequestNanos;
+
+      switch (state) {
+        case CLOSED:
+          record(failed, isSlow);
+          if (recorded >= minimumRequests &&
+            (failures >= failureRateThreshold * recorded || slow >= slowRequestRateThreshold * recorded)) {
+            open();
+          }
+          break;
+        case HALF_OPEN:
+          if (failed || isSlow) {
+            open();
+          } else if (++trialsSucceeded >= trialRequests) {
+            state = State.CLOSED;
+            next = recorded = failures = slow = 0;
+          }
+          break;
+        case OPEN:
+          // a request started before the circuit opened
+          break;
+      }
+    }
+
+    /**
+     * Releases a request let through without an outcome, for example once it got cancelled.
+     */
+    synchronized void release() {
+      if (state == State.HALF_OPEN && trialsStarted > trialsSucceeded)
+        trialsStarted -= 1;
+    }
+
+    synchronized State getState() {
+      return state;
+    }
+
+    private void record(boolean failed, boolean isSlow) {
+      if (recorded == windowSize) {
+        // forget the outcome falling out of the window
+        if ((outcomes[next] & FAILED) != 0) failures -= 1;
+        if ((outcomes[next] & SLOW) != 0) slow -= 1;
+      } else {
+        recorded += 1;
+      }
+
+      outcomes[next] = (byte) ((failed ? FAILED : 0) | (isSlow ? SLOW : 0));
+      if (failed) failures += 1;
+      if (isSlow) slow += 1;
+      next = (next + 1) % windowSize;
+    }
+
+    private void open() {
+      state = State.OPEN;
+      openedAtNanos = System.nanoTime();
+      opened.mark();
+    }
+  }
+
+  private static final byte FAILED = 1;
+  private static final byte SLOW = 2;
+
+  private final int windowSize;
+  private final int minimumRequests;
+  private final double failureRateThreshold;
+  private final long slowRequestNanos;
+  private final double slowRequestRateThreshold;
+  private final long openDurationNanos;
+  private final int trialRequests;
+
+  private final Map<String, Circuit> circuits = new ConcurrentHashMap<>();
+  private final Meter opened = new Meter();
+  private final Meter rejected = new Meter();
+
+  private CircuitBreaker(Builder builder) {
+    this.windowSize = builder.windowSize;
+    this.minimumRequests = builder.minimumRequests;
+    this.failureRateThreshold = builder.failureRateThreshold;
+    this.slowRequestNanos = builder.slowRequestDuration.toNanos();
+    this.slowRequestRateThreshold = builder.slowRequestRateThreshold;
+    this.openDurationNanos = builder.openDuration.toNanos();
+    this.trialRequests = builder.trialRequests;
+  }
+
+  /**
+   * Returns the circuit of an endpoint, creating it closed on first use.
+   *
+   * @param root the endpoint's root URL
+   * @return the endpoint's circuit
+   */
+  Circuit circuit(String root) {
+    return circuits.computeIfAbsent(root, Circuit::new);
+  }
+
+  /**
+   * @return the number of circuits currently open or half-open
+   */
+  public int getOpenCircuits() {
+    int count = 0;
+    for (Circuit circuit : circuits.values()) {
+      if (circuit.getState() != State.CLOSED) count += 1;
+    }
+    return count;
+  }
+
+  /**
+   * Registers the breaker's metrics in the registry provided: the number of circuits not closed, the rate
+   * at which circuits open, and the rate of requests failed fast.
+   *
+   * @param registry the {@link MetricRegistry} instance
+   * @param prefix the prefix of the metric names
+   */
+  @SuppressWarnings("unchecked")
+  public void registerMetrics(MetricRegistry registry, String prefix) {
+    registry.gauge(prefix + "-open", () -> (Gauge<Integer>) this::getOpenCircuits);
+    registry.meter(prefix + "-opened", () -> opened);
+    registry.meter(prefix + "-rejected", () -> rejected);
+  }
+}
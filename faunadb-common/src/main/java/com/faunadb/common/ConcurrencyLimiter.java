@@ -0,0 +1,346 @@
+package com.faunadb.common;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static java.lang.String.format;
+
+/**
+ * An adaptive limit on the number of concurrent requests sent by a {@link Connection}.
+ *
+ * <p>The limit is learned from the requests' outcomes, following an additive increase, multiplicative
+ * decrease scheme:</p>
+ * <ul>
+ *   <li>requests completing at about the usual latency grow the limit by roughly one per round trip, as long
+ *   as the current limit is actually being used;</li>
+ *   <li>requests completing much slower than usual shrink the limit in proportion to the latency increase;</li>
+ *   <li>requests rejected by the server because of overload ({@code 429} and {@code 503} responses) or
+ *   timing out cut the limit sharply.</li>
+ * </ul>
+ *
+ * <p>Requests beyond the limit wait in a bounded queue for a bounded time. Requests that don't fit in the
+ * queue fail with a {@link RejectedExecutionException}, and requests waiting for too long fail with a
+ * {@link java.util.concurrent.TimeoutException}.</p>
+ *
+ * <p>A limiter is shared by a {@link Connection} and all its session connections.</p>
+ *
+ * @see Connection.Builder#withConcurrencyLimiter(ConcurrencyLimiter)
+ */
+public final class ConcurrencyLimiter {
+
+  /**
+   * The outcome of a request, as seen by the limiter.
+   */
+  public enum Outcome {
+    /** The request completed, successfully or not, and its latency reflects the server load. */
+    SUCCESS,
+    /** The request was rejected or timed out due to overload. */
+    DROPPED,
+    /** The request failed for reasons unrelated to load, such as a connection error. */
+    IGNORED
+  }
+
+  /**
+   * Returns a new {@link Builder} instance.
+   *
+   * @return a new {@link Builder}
+   */
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * A builder for the {@link ConcurrencyLimiter} instance.
+   */
+  public static final class Builder {
+
+    private int initialLimit = 20;
+    private int minLimit = 1;
+    private int maxLimit = 1000;
+    private int maxQueueSize = 1000;
+    private Duration maxQueueWait = Duration.ofSeconds(1);
+    private double backoffRatio = 0.7;
+    private double latencyTolerance = 2.0;
+
+    private Builder() {
+    }
+
+    /**
+     * Sets the concurrency limit before any request completes. Defaults to 20.
+     *
+     * @param initialLimit the initial limit
+     * @return this {@link Builder} object
+     */
+    public Builder withInitialLimit(int initialLimit) {
+      this.initialLimit = initialLimit;
+      return this;
+    }
+
+    /**
+     * Sets the bounds of the learned concurrency limit. Defaults to 1 and 1000.
+     *
+     * @param minLimit the lowest limit
+     * @param maxLimit the highest limit
+     * @return this {@link Builder} object
+     */
+    public Builder withLimitBounds(int minLimit, int maxLimit) {
+      this.minLimit = minLimit;
+      this.maxLimit = maxLimit;
+      return this;
+    }
+
+    /**
+     * Sets how many requests may wait for the limit to allow them. Defaults to 1000.
+     *
+     * @param maxQueueSize the maximum number of waiting requests
+     * @return this {@link Builder} object
+     */
+    public Builder withMaxQueueSize(int maxQueueSize) {
+      this.maxQueueSize = maxQueueSize;
+      return this;
+    }
+
+    /**
+     * Sets how long requests may wait for the limit to allow them. Defaults to 1 second.
+     *
+     * @param maxQueueWait the maximum wait
+     * @return this {@link Builder} object
+     */
+    public Builder withMaxQueueWait(Duration maxQueueWait) {
+      this.maxQueueWait = maxQueueWait;
+      return this;
+    }
+
+    /**
+     * Sets the factor applied to the limit when a request is dropped due to overload. Defaults to 0.7.
+     *
+     * @param backoffRatio a factor between 0 and 1, exclusive
+     * @return this {@link Builder} object
+     */
+    public Builder withBackoffRatio(double backoffRatio) {
+      this.backoffRatio = backoffRatio;
+      return this;
+    }
+
+    /**
+     * Sets how much slower than usual requests must get before the limit shrinks. Defaults to 2, that is,
+     * twice the usual latency.
+     *
+     * @param latencyTolerance the tolerated ratio of sampled to usual latency, at least 1
+     * @return this {@link Builder} object
+     */
+    public Builder withLatencyTolerance(double latencyTolerance) {
+      this.latencyTolerance = latencyTolerance;
+      return this;
+    }
+
+    /**
+     * @return a newly constructed {@link ConcurrencyLimiter}
+     */
+    public ConcurrencyLimiter build() {
+      if (minLimit < 1 || maxLimit < minLimit)
+        throw new IllegalArgumentException(format("Invalid limit bounds: [%d, %d]", minLimit, maxLimit));
+      if (maxQueueSize < 0)
+        throw new IllegalArgumentException("Queue size must not be negative");
+      if (backoffRatio <= 0 || backoffRatio >= 1)
+        throw new IllegalArgumentException("Backoff ratio must be between 0 and 1");
+      if (latencyTolerance < 1)
+        throw new IllegalArgumentException("Latency tolerance must be at least 1");
+
+      return new ConcurrencyLimiter(this);
+    }
+  }
+
+  /**
+   * Allows a single request through the limiter. Must be released once the request completes.
+   */
+  public final class Permit {
+    private final long startNanos = System.nanoTime();
+    private final AtomicBoolean released = new AtomicBoolean(false);
+
+    private Permit() {
+    }
+
+    /**
+     * Releases the permit, feeding the request's outcome to the limiter. Releasing a permit more than once has no effect.
+     *
+     * @param outcome the outcome of the request
+     */
+    public void release(Outcome outcome) {
+      if (released.compareAndSet(false, true)) {
+        onRelease(outcome, System.nanoTime() - startNanos);
+      }
+    }
+  }
+
+  // weights of a new sample in the recent and usual latency averages
+  private static final double RECENT_SMOOTHING = 0.2;
+  private static final double USUAL_SMOOTHING = 0.01;
+
+  private final int minLimit;
+  private final int maxLimit;
+  private final int maxQueueSize;
+  private final Duration maxQueueWait;
+  private final double backoffRatio;
+  private final double latencyTolerance;
+
+  private final Deque<CompletableFuture<Permit>> queue = new ArrayDeque<>();
+  private final Meter rejected = new Meter();
+  private double limit;
+  private double recentLatencyNanos = 0;
+  private double usualLatencyNanos = 0;
+  private int inFlight = 0;
+
+  private ConcurrencyLimiter(Builder builder) {
+    this.minLimit = builder.minLimit;
+    this.maxLimit = builder.maxLimit;
+    this.maxQueueSize = builder.maxQueueSize;
+    this.maxQueueWait = builder.maxQueueWait;
+    this.backoffRatio = builder.backoffRatio;
+    this.latencyTolerance = builder.latencyTolerance;
+    this.limit = Math.max(minLimit, Math.min(maxLimit, builder.initialLimit));
+  }
+
+  /**
+   * Acquires a permit for a new request, waiting in the queue if the limit has been reached.
+   *
+   * @return a {@link CompletableFuture} completed with the permit once the request is allowed
+   */
+  public CompletableFuture<Permit> acquire() {
+    CompletableFuture<Permit> waiter;
+
+    synchronized (this) {
+      if (queue.isEmpty() && inFlight < (int) limit) {
+        inFlight += 1;
+        return CompletableFuture.completedFuture(new Permit());
+      }
+
+      if (queue.size() >= maxQueueSize) {
+        rejected.mark();
+        return CompletableFuture.failedFuture(
+          new RejectedExecutionException(format("Too many pending requests: %d waiting for %d in flight", queue.size(), inFlight)));
+      }
+
+      waiter = new CompletableFuture<>();
+      queue.addLast(waiter);
+    }
+
+    // waiters timing out, or cancelled, leave the queue right away
+    waiter.whenComplete((permit, ex) -> {
+      if (ex != null) {
+        synchronized (this) {
+          queue.remove(waiter);
+        }
+      }
+    });
+
+    return waiter.orTimeout(maxQueueWait.toNanos(), TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * @return the current concurrency limit
+   */
+  public synchronized int getLimit() {
+    return (int) limit;
+  }
+
+  /**
+   * @return the number of requests holding a permit
+   */
+  public synchronized int getInFlight() {
+    return inFlight;
+  }
+
+  /**
+   * @return the number of requests waiting for a permit
+   */
+  public synchronized int getQueueSize() {
+    return queue.size();
+  }
+
+  /**
+   * Registers the limiter's gauges in the registry provided: its current limit, the requests in flight,
+   * the requests waiting in the queue, and the rate of requests rejected because the queue was full.
+   *
+   * @param registry the {@link MetricRegistry} instance
+   * @param prefix the prefix of the metric names
+   */
+  @SuppressWarnings("unchecked")
+  public void registerMetrics(MetricRegistry registry, String prefix) {
+    registry.gauge(prefix + "-limit", () -> (Gauge<Integer>) this::getLimit);
+    registry.gauge(prefix + "-in-flight", () -> (Gauge<Integer>) this::getInFlight);
+    registry.gauge(prefix + "-queue-size", () -> (Gauge<Integer>) this::getQueueSize);
+    registry.meter(prefix + "-rejected", () -> rejected);
+  }
+
+  private void onRelease(Outcome outcome, long latencyNanos) {
+    synchronized (this) {
+      inFlight -= 1;
+
+      switch (outcome) {
+        case SUCCESS:
+          onSample(latencyNanos);
+          break;
+        case DROPPED:
+          limit = Math.max(minLimit, limit * backoffRatio);
+          break;
+        case IGNORED:
+          break;
+      }
+    }
+
+    drain();
+  }
+
+  private void onSample(long latencyNanos) {
+    if (usualLatencyNanos == 0) {
+      recentLatencyNanos = usualLatencyNanos = latencyNanos;
+      return;
+    }
+
+    recentLatencyNanos += RECENT_SMOOTHING * (latencyNanos - recentLatencyNanos);
+    double ratio = recentLatencyNanos / usualLatencyNanos;
+
+    if (ratio > latencyTolerance) {
+      // shrink in proportion to how much slower requests got, but gradually, as every sample counts
+      limit = Math.max(minLimit, limit * Math.max(0.9, latencyTolerance / ratio));
+    } else if (inFlight + 1 >= limit / 2) {
+      // only grow a limit that is being used
+      limit = Math.min(maxLimit, limit + 1 / limit);
+    }
+
+    // slowly track the usual latency, so a persistent latency increase eventually becomes the new baseline
+    usualLatencyNanos += USUAL_SMOOTHING * (Math.min(latencyNanos, usualLatencyNanos * latencyTolerance) - usualLatencyNanos);
+  }
+
+  private void drain() {
+    for (;;) {
+      CompletableFuture<Permit> waiter;
+
+      synchronized (this) {
+        if (queue.isEmpty() || inFlight >= (int) limit)
+          return;
+
+        waiter = queue.pollFirst();
+        inFlight += 1;
+      }
+
+      // completing outside of the lock, as the waiter runs its continuation right away
+      if (!waiter.complete(new Permit())) {
+        // timed out or cancelled just before being polled
+        synchronized (this) {
+          inFlight -= 1;
+        }
+      }
+    }
+  }
+}
@@ -2,26 +2,38 @@ package com.faunadb.common;
 
 import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.Timer;
-import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.faunadb.common.http.DriverVersionChecker;
+import com.faunadb.common.http.RequestBody;
+import com.faunadb.common.http.ResponseBody;
 import com.faunadb.common.models.request.RequestParameters;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOError;
+import java.io.IOException;
+import java.lang.ref.WeakReference;
 import java.net.*;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -39,7 +51,9 @@ public class Connection {
   private static final String API_VERSION = "4";
   private static final Duration DEFAULT_CONNECTION_TIMEOUT = Duration.ofSeconds(10);
   private static final Duration DEFAULT_REQUEST_TIMEOUT = Duration.ofSeconds(60);
+  private static final Duration DEFAULT_HEALTH_CHECK_INTERVAL = Duration.ofSeconds(5);
   private static final String DEFAULT_USER_AGENT = "Fauna JVM Http Client";
+  private static final String KEEPALIVE_TIMEOUT_PROPERTY = "jdk.httpclient.keepalive.timeout";
   private static final URL FAUNA_ROOT;
 
   static {
@@ -75,12 +89,20 @@ public class Connection {
   }
 
   private static class RuntimeEnvironmentHeader {
+    // the header only depends on the JVM and the driver, so it is computed once per driver flavor
+    private static final Map<String, String> HEADERS = new ConcurrentHashMap<>();
+
     private String runtime;
     private String driverVersion;
     private String os;
     private String env;
 
-    RuntimeEnvironmentHeader(JvmDriver jvmDriver, String scalaVersion, boolean checkNewVersion) {
+    static String of(JvmDriver jvmDriver, String scalaVersion) {
+      String key = jvmDriver == JvmDriver.SCALA ? "scala-" + scalaVersion : "java";
+      return HEADERS.computeIfAbsent(key, k -> new RuntimeEnvironmentHeader(jvmDriver, scalaVersion).toString());
+    }
+
+    private RuntimeEnvironmentHeader(JvmDriver jvmDriver, String scalaVersion) {
       this.driverVersion = Connection.class.getPackage().getSpecificationVersion();
       this.os = System.getProperty("os.name");
       this.env = this.getRuntimeEnv();
@@ -89,10 +111,6 @@ public class Connection {
       if (jvmDriver == JvmDriver.SCALA) {
         this.runtime = String.format("%s,scala-%s", this.runtime, scalaVersion);
       }
-
-      if (checkNewVersion && !DriverVersionChecker.isAlreadyChecked()) {
-        DriverVersionChecker.checkLatestVersion();
-      }
     }
 
     @Override public String toString() {
@@ -145,7 +163,8 @@ public class Connection {
    */
   public static class Builder {
 
-    private URL faunaRoot;
+    private List<URL> faunaRoots;
+    private Duration healthCheckInterval = DEFAULT_HEALTH_CHECK_INTERVAL;
     private String authToken;
     private MetricRegistry metricRegistry;
     private long lastSeenTxn;
@@ -156,6 +175,15 @@ public class Connection {
     private Optional<String> userAgent = Optional.empty();
     private boolean checkNewDriverVersion = true;
     private Map<String, String> customHeaders;
+    private ConcurrencyLimiter concurrencyLimiter;
+    private RetryPolicy retryPolicy;
+    private HedgingPolicy hedgingPolicy;
+    private CircuitBreaker circuitBreaker;
+    private KeepAlivePolicy keepAlivePolicy;
+    private int maxStreamsPerClient = 0;
+    private int maxHttp2Clients = 0;
+    private Executor httpExecutor;
+    private Executor callbackExecutor;
 
     private Builder() {
     }
@@ -168,7 +196,7 @@ public class Connection {
      * @throws MalformedURLException if a malformed url is provided
      */
     public Builder withFaunaRoot(String root) throws MalformedURLException {
-      this.faunaRoot = new URL(root);
+      this.faunaRoots = List.of(new URL(root));
       return this;
     }
 
@@ -179,7 +207,52 @@ public class Connection {
      * @return this {@link Builder} object
      */
     public Builder withFaunaRoot(URL root) {
-      this.faunaRoot = root;
+      this.faunaRoots = root == null ? null : List.of(root);
+      return this;
+    }
+
+    /**
+     * Sets several FaunaDB root URLs for the {@link Connection} instance, such as the endpoints of
+     * different regions. Each request is routed to the healthy endpoint with the lowest expected latency.
+     * Endpoints failing repeatedly are ejected and probed in the background until they recover.
+     *
+     * <p>The freshest transaction timestamp seen is shared by all endpoints, so reads stay consistent
+     * with previous writes wherever they are routed.</p>
+     *
+     * @param roots the root URLs, as RFC 2396 formatted strings, in order of preference
+     * @return this {@link Builder} object
+     * @throws MalformedURLException if a malformed url is provided
+     */
+    public Builder withFaunaRoots(String... roots) throws MalformedURLException {
+      List<URL> urls = new ArrayList<>(roots.length);
+      for (String root : roots) {
+        urls.add(new URL(root));
+      }
+      this.faunaRoots = urls;
+      return this;
+    }
+
+    /**
+     * Sets several FaunaDB root URLs for the {@link Connection} instance.
+     *
+     * @param roots the root URLs, in order of preference
+     * @return this {@link Builder} object
+     * @see #withFaunaRoots(String...)
+     */
+    public Builder withFaunaRoots(URL... roots) {
+      this.faunaRoots = List.of(roots);
+      return this;
+    }
+
+    /**
+     * Sets the delay between two health checks of an ejected endpoint. Defaults to 5 seconds.
+     *
+     * @param interval the health check interval
+     * @return this {@link Builder} object
+     * @see #withFaunaRoots(String...)
+     */
+    public Builder withHealthCheckInterval(Duration interval) {
+      this.healthCheckInterval = interval;
       return this;
     }
 
@@ -288,30 +361,240 @@ public class Connection {
       return this;
     }
 
+    /**
+     * Sets a {@link ConcurrencyLimiter} for the {@link Connection} instance. Requests are only sent once
+     * the limiter allows them, and their outcomes adjust the limit. No limit is applied by default.
+     *
+     * <p>The limiter's gauges are registered in the connection's {@link MetricRegistry} under the
+     * {@code fauna-limiter} prefix.</p>
+     *
+     * @param limiter the {@link ConcurrencyLimiter} instance
+     * @return this {@link Builder} object
+     */
+    public Builder withConcurrencyLimiter(ConcurrencyLimiter limiter) {
+      this.concurrencyLimiter = limiter;
+      return this;
+    }
+
+    /**
+     * Sets a {@link RetryPolicy} for the {@link Connection} instance. Requests failing due to contention or
+     * overload are retried according to the policy, except those sent with
+     * {@link RequestParameters#withoutRetries()}. Requests are not retried by default.
+     *
+     * <p>The policy's counters are registered in the connection's {@link MetricRegistry} under the
+     * {@code fauna-retry} prefix.</p>
+     *
+     * @param retryPolicy the {@link RetryPolicy} instance
+     * @return this {@link Builder} object
+     */
+    public Builder withRetryPolicy(RetryPolicy retryPolicy) {
+      this.retryPolicy = retryPolicy;
+      return this;
+    }
+
+    /**
+     * Sets a {@link HedgingPolicy} for the {@link Connection} instance. Read-only requests still pending after
+     * the policy's delay are sent a second time, and the first successful response wins. Requests are not
+     * hedged by default.
+     *
+     * <p>The policy's metrics are registered in the connection's {@link MetricRegistry} under the
+     * {@code fauna-hedging} prefix.</p>
+     *
+     * @param hedgingPolicy the {@link HedgingPolicy} instance
+     * @return this {@link Builder} object
+     * @see RequestParameters#isReadOnly()
+     */
+    public Builder withHedgingPolicy(HedgingPolicy hedgingPolicy) {
+      this.hedgingPolicy = hedgingPolicy;
+      return this;
+    }
+
+    /**
+     * Sets a {@link CircuitBreaker} for the {@link Connection} instance. Each endpoint gets its own circuit, and
+     * requests fail fast with a {@link java.util.concurrent.RejectedExecutionException} while the circuits are
+     * open. No circuit breaker is used by default.
+     *
+     * <p>The breaker's metrics are registered in the connection's {@link MetricRegistry} under the
+     * {@code fauna-circuit} prefix.</p>
+     *
+     * @param circuitBreaker the {@link CircuitBreaker} instance
+     * @return this {@link Builder} object
+     */
+    public Builder withCircuitBreaker(CircuitBreaker circuitBreaker) {
+      this.circuitBreaker = circuitBreaker;
+      return this;
+    }
+
+    /**
+     * Sets a {@link KeepAlivePolicy} for the {@link Connection} instance, keeping idle connections to the
+     * endpoints open in the background. Otherwise, idle connections are closed by the JDK after 4 seconds, before
+     * FaunaDB closes them, unless the application sets another {@code jdk.httpclient.keepalive.timeout}.
+     *
+     * <p>The policy's metrics are registered in the connection's {@link MetricRegistry} under the
+     * {@code fauna-keepalive} prefix.</p>
+     *
+     * @param keepAlivePolicy the {@link KeepAlivePolicy} instance
+     * @return this {@link Builder} object
+     */
+    public Builder withKeepAlivePolicy(KeepAlivePolicy keepAlivePolicy) {
+      this.keepAlivePolicy = keepAlivePolicy;
+      return this;
+    }
+
+    /**
+     * Sends queries over HTTP/2 instead of HTTP/1.1, with up to {@code maxStreamsPerClient} concurrent queries
+     * per {@link HttpClient}, and up to 8 clients. Queries use HTTP/1.1 by default.
+     *
+     * @param maxStreamsPerClient the maximum concurrent queries per client, such as 100
+     * @return this {@link Builder} object
+     * @see #withHttp2(int, int)
+     */
+    public Builder withHttp2(int maxStreamsPerClient) {
+      return withHttp2(maxStreamsPerClient, 8);
+    }
+
+    /**
+     * Sends queries over HTTP/2 instead of HTTP/1.1, with up to {@code maxStreamsPerClient} concurrent queries
+     * per {@link HttpClient}. A client multiplexes its queries to an endpoint over a single connection, so the
+     * cap applies to its queries to all the endpoints together. Queries beyond that spill over to additional
+     * clients, thus additional connections, up to {@code maxClients}. Additional clients are dropped once left
+     * idle for the idle timeout of the {@link KeepAlivePolicy}, 1 minute by default. Queries use HTTP/1.1 by
+     * default.
+     *
+     * <p>Requests only spill over if the {@link HttpClient} is not provided through {@link #withHttpClient}.
+     * The streams in use and the connections open are registered in the connection's {@link MetricRegistry}
+     * under the {@code fauna-http2} prefix.</p>
+     *
+     * @param maxStreamsPerClient the maximum concurrent queries per client, such as 100
+     * @param maxClients the maximum number of clients, past which the least busy client takes more queries
+     * @return this {@link Builder} object
+     */
+    public Builder withHttp2(int maxStreamsPerClient, int maxClients) {
+      this.maxStreamsPerClient = maxStreamsPerClient;
+      this.maxHttp2Clients = maxClients;
+      return this;
+    }
+
+    /**
+     * Sets the executor running the {@link HttpClient}'s tasks, such as sending requests and reading responses.
+     * Defaults to the {@link HttpClient}'s own cached thread pool. Ignored if the {@link HttpClient} is provided
+     * through {@link #withHttpClient(HttpClient)}.
+     *
+     * @param executor the HTTP executor
+     * @return this {@link Builder} object
+     */
+    public Builder withHttpExecutor(Executor executor) {
+      this.httpExecutor = executor;
+      return this;
+    }
+
+    /**
+     * Sets the executor completing the {@link CompletableFuture}s returned by the {@link Connection}, thus
+     * running their dependent stages, such as decoding responses, unless they are asynchronous. Also runs
+     * delayed retries and hedged requests. Defaults to {@link java.util.concurrent.ForkJoinPool#commonPool()}.
+     *
+     * @param executor the callback executor
+     * @return this {@link Builder} object
+     */
+    public Builder withCallbackExecutor(Executor executor) {
+      this.callbackExecutor = executor;
+      return this;
+    }
+
+    /**
+     * Runs both the {@link HttpClient}'s tasks and the callbacks on virtual threads, one per task.
+     * Requires JDK 21 or later.
+     *
+     * @return this {@link Builder} object
+     * @throws UnsupportedOperationException if the JDK does not support virtual threads
+     * @see #withHttpExecutor(Executor)
+     * @see #withCallbackExecutor(Executor)
+     */
+    public Builder withVirtualThreads() {
+      Executor executor = newVirtualThreadPerTaskExecutor();
+      this.httpExecutor = executor;
+      this.callbackExecutor = executor;
+      return this;
+    }
+
     /**
      * @return a newly constructed {@link Connection} with its configuration based on
      * the settings of the {@link Builder} instance.
      */
     public Connection build() {
-      System.setProperty("jdk.httpclient.keepalive.timeout", "4");
+      // idle connections are dropped before FaunaDB closes them, unless configured otherwise for the JVM
+      if (System.getProperty(KEEPALIVE_TIMEOUT_PROPERTY) == null) {
+        System.setProperty(KEEPALIVE_TIMEOUT_PROPERTY, "4");
+      }
       MetricRegistry registry;
       registry = Objects.requireNonNullElseGet(metricRegistry, MetricRegistry::new);
 
-      URL root;
-      root = Objects.requireNonNullElseGet(faunaRoot, () -> FAUNA_ROOT);
+      List<URL> roots;
+      roots = Objects.requireNonNullElseGet(faunaRoots, () -> List.of(FAUNA_ROOT));
+
+      Supplier<HttpClient> newClient = () -> {
+        HttpClient.Builder builder = HttpClient.newBuilder().connectTimeout(DEFAULT_CONNECTION_TIMEOUT);
+        if (httpExecutor != null) builder.executor(httpExecutor);
+        return builder.build();
+      };
 
       HttpClient http;
-      http = Objects.requireNonNullElseGet(client, () ->
-        // TODO: [DRV-169] allow users to override default executor
-        HttpClient.newBuilder()
-          .connectTimeout(DEFAULT_CONNECTION_TIMEOUT)
-          .build()
-      );
+      http = Objects.requireNonNullElseGet(client, newClient);
+
+      HttpClientPool http2Clients = null;
+      if (maxStreamsPerClient > 0) {
+        Duration idleTimeout = keepAlivePolicy != null ? keepAlivePolicy.getIdleTimeout() : KeepAlivePolicy.DEFAULT_IDLE_TIMEOUT;
+        http2Clients = new HttpClientPool(http, client == null ? newClient : null, maxStreamsPerClient, maxHttp2Clients, idleTimeout);
+        http2Clients.registerMetrics(registry, "fauna-http2");
+      }
 
       String connectionUserAgent = userAgent.orElse(DEFAULT_USER_AGENT);
-      String runtimeEnvironmentHeader = new RuntimeEnvironmentHeader(jvmDriver, scalaVersion, checkNewDriverVersion).toString();
+      String runtimeEnvironmentHeader = RuntimeEnvironmentHeader.of(jvmDriver, scalaVersion);
+
+      if (checkNewDriverVersion) {
+        DriverVersionChecker.checkLatestVersion();
+      }
+
+      EndpointPool endpoints = new EndpointPool(roots, healthCheckInterval, root -> ping(http, root), circuitBreaker);
+      if (roots.size() > 1) {
+        endpoints.registerMetrics(registry, "fauna-endpoints");
+      }
 
-      return new Connection(root, authToken, http, registry, runtimeEnvironmentHeader, lastSeenTxn, queryTimeout, connectionUserAgent, customHeaders);
+      if (circuitBreaker != null) {
+        circuitBreaker.registerMetrics(registry, "fauna-circuit");
+      }
+
+      if (concurrencyLimiter != null) {
+        concurrencyLimiter.registerMetrics(registry, "fauna-limiter");
+      }
+
+      if (retryPolicy != null) {
+        retryPolicy.registerMetrics(registry, "fauna-retry");
+      }
+
+      if (hedgingPolicy != null) {
+        hedgingPolicy.registerMetrics(registry, "fauna-hedging");
+      }
+
+      Executor callbacks = Objects.requireNonNullElseGet(callbackExecutor, ForkJoinPool::commonPool);
+      Connection connection = new Connection(endpoints, authToken, http, registry, runtimeEnvironmentHeader, lastSeenTxn, queryTimeout, connectionUserAgent, customHeaders, concurrencyLimiter, retryPolicy, hedgingPolicy, http2Clients,
+        callbacks);
+
+      if (keepAlivePolicy != null) {
+        keepAlivePolicy.registerMetrics(registry, "fauna-keepalive");
+        scheduleKeepAlive(new WeakReference<>(connection), keepAlivePolicy, callbacks, 0);
+      }
+
+      return connection;
+    }
+
+    private static Executor newVirtualThreadPerTaskExecutor() {
+      // looked up reflectively, as the driver still runs on JDK 11
+      try {
+        return (Executor) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+      } catch (ReflectiveOperationException ex) {
+        throw new UnsupportedOperationException("Virtual threads require JDK 21 or later", ex);
+      }
     }
   }
 
@@ -323,7 +606,7 @@ public class Connection {
   private static final String X_FAUNADB_API_VERSION = "X-FaunaDB-API-Version";
   private static final String USER_AGENT = "User-Agent";
 
-  private final URL faunaRoot;
+  private final EndpointPool endpoints;
   private final String authHeader;
   private final String runtimeEnvironmentHeader;
   private HttpClient client;
@@ -331,13 +614,18 @@ public class Connection {
   private final Optional<Duration> defaultQueryTimeout;
   private final String userAgent;
   private final Map<String, String> customHeaders;
+  private final ConcurrencyLimiter limiter;
+  private final RetryPolicy retryPolicy;
+  private final HedgingPolicy hedgingPolicy;
+  private final HttpClientPool http2Clients;
+  private final Executor callbackExecutor;
 
   private final Logger log = LoggerFactory.getLogger(getClass());
   private final ObjectMapper json = new ObjectMapper();
   private final AtomicLong txnTime = new AtomicLong(0L);
 
-  private Connection(URL faunaRoot, String authToken, HttpClient client, MetricRegistry registry, String runtimeEnvironmentHeader, long lastSeenTxn, Optional<Duration> defaultQueryTimeout, String userAgent, Map<String, String> customHeaders) {
-    this.faunaRoot = faunaRoot;
+  private Connection(EndpointPool endpoints, String authToken, HttpClient client, MetricRegistry registry, String runtimeEnvironmentHeader, long lastSeenTxn, Optional<Duration> defaultQueryTimeout, String userAgent, Map<String, String> customHeaders, ConcurrencyLimiter limiter, RetryPolicy retryPolicy, HedgingPolicy hedgingPolicy, HttpClientPool http2Clients, Executor callbackExecutor) {
+    this.endpoints = endpoints;
     this.authHeader = generateAuthHeader(authToken);
     this.runtimeEnvironmentHeader = runtimeEnvironmentHeader;
     this.client = client;
@@ -346,6 +634,11 @@ public class Connection {
     this.defaultQueryTimeout = defaultQueryTimeout;
     this.userAgent = userAgent;
     this.customHeaders = customHeaders;
+    this.limiter = limiter;
+    this.retryPolicy = retryPolicy;
+    this.hedgingPolicy = hedgingPolicy;
+    this.http2Clients = http2Clients;
+    this.callbackExecutor = callbackExecutor;
   }
 
   /**
@@ -356,7 +649,44 @@ public class Connection {
    * @return a new {@link Connection}
    */
   public Connection newSessionConnection(String authToken) {
-    return new Connection(faunaRoot, authToken, client, registry, runtimeEnvironmentHeader, getLastTxnTime(), defaultQueryTimeout, userAgent, customHeaders);
+    return new Connection(endpoints, authToken, client, registry, runtimeEnvironmentHeader, getLastTxnTime(), defaultQueryTimeout, userAgent, customHeaders, limiter, retryPolicy, hedgingPolicy, http2Clients, callbackExecutor);
+  }
+
+  /**
+   * Opens connections to each endpoint in the rotation ahead of the first requests, by pinging the endpoints
+   * with {@code connections} concurrent requests. Idle connections are closed after a few seconds, unless kept
+   * open by a {@link KeepAlivePolicy}.
+   *
+   * @param connections the number of connections to open to each endpoint. Fewer connections may be opened
+   *                    if pings complete before the following ones are sent, or with HTTP/2.
+   * @return a {@link CompletableFuture} completed once all pings complete, successfully or not
+   */
+  public CompletableFuture<Void> warmUp(int connections) {
+    Map<URL, Integer> pings = new LinkedHashMap<>();
+    for (URL root : endpoints.healthyRoots()) {
+      pings.put(root, connections);
+    }
+    return ping(pings, null);
+  }
+
+  /**
+   * Returns the registry of the connection's metrics: the one provided through {@link Builder#withMetrics},
+   * or a registry of its own.
+   *
+   * @return the {@link MetricRegistry} instance
+   */
+  public MetricRegistry getMetricRegistry() {
+    return registry;
+  }
+
+  /**
+   * Returns the executor completing the connection's futures: the one provided through
+   * {@link Builder#withCallbackExecutor}, or the common fork-join pool.
+   *
+   * @return the callback {@link Executor}
+   */
+  public Executor getCallbackExecutor() {
+    return callbackExecutor;
   }
 
   /**
@@ -451,6 +781,25 @@ public class Connection {
     return performRequest("POST", path, Optional.of(body), Map.of(), requestParameters);
   }
 
+  /**
+   * Issues a {@code POST} request with the provided serialized request body, handling the response
+   * body with the given {@link HttpResponse.BodyHandler}.
+   *
+   * @param path the relative path of the resource.
+   * @param body the already serialized request body.
+   * @param requestParameters Additional metadata to be passed along with the request.
+   * @param bodyHandler the handler for the response body, for example {@link ResponseBody#handler()}.
+   * @param <T> the response body type.
+   * @return a {@link CompletableFuture} containing the HTTP response.
+   * @see RequestBody#write(ObjectMapper, Object)
+   */
+  public <T> CompletableFuture<HttpResponse<T>> post(String path,
+                                                     RequestBody body,
+                                                     RequestParameters requestParameters,
+                                                     HttpResponse.BodyHandler<T> bodyHandler) {
+    return performRequest("POST", path, Optional.of(body), Map.of(), requestParameters, bodyHandler);
+  }
+
   /**
    * Issues a {@code PUT} request with the provided JSON request body.
    *
@@ -522,18 +871,272 @@ public class Connection {
                                                                  Optional<JsonNode> body,
                                                                  Map<String, List<String>> params,
                                                                  RequestParameters requestParameters) {
+    Optional<RequestBody> requestBody;
+    try {
+      requestBody = body.isPresent() ? Optional.of(RequestBody.write(json, body.get())) : Optional.empty();
+    } catch (IOException ex) {
+      return CompletableFuture.failedFuture(ex);
+    }
+    return performRequest(httpMethod, path, requestBody, params, requestParameters, HttpResponse.BodyHandlers.ofString());
+  }
+
+  private <T> CompletableFuture<HttpResponse<T>> performRequest(String httpMethod,
+                                                                String path,
+                                                                Optional<RequestBody> body,
+                                                                Map<String, List<String>> params,
+                                                                RequestParameters requestParameters,
+                                                                HttpResponse.BodyHandler<T> bodyHandler) {
+    CompletableFuture<HttpResponse<T>> rv;
+    if (retryPolicy == null || !requestParameters.isRetryable()) {
+      rv = performAttempt(httpMethod, path, body, params, requestParameters, bodyHandler);
+    } else {
+      rv = new CompletableFuture<>();
+      retryPolicy.onRequest();
+      performAttempts(1, httpMethod, path, body, params, requestParameters, bodyHandler, rv);
+    }
+
+    requestParameters.getDeadline().ifPresent(deadline -> deadline.track(rv));
+    return rv;
+  }
+
+  private <T> void performAttempts(int attempt,
+                                   String httpMethod,
+                                   String path,
+                                   Optional<RequestBody> body,
+                                   Map<String, List<String>> params,
+                                   RequestParameters requestParameters,
+                                   HttpResponse.BodyHandler<T> bodyHandler,
+                                   CompletableFuture<HttpResponse<T>> rv) {
+    if (rv.isDone()) {
+      // cancelled while waiting to be retried
+      return;
+    }
+
+    CompletableFuture<HttpResponse<T>> current = performAttempt(httpMethod, path, body, params, requestParameters, bodyHandler);
+    rv.whenComplete((response, throwable) -> {
+      if (rv.isCancelled()) current.cancel(true);
+    });
+
+    current.whenComplete((response, throwable) -> {
+      boolean readOnly = requestParameters.isReadOnly() || "GET".equals(httpMethod);
+      Optional<Duration> delay = response != null
+        ? retryPolicy.retryDelay(attempt, Optional.of(response.statusCode()), null, retryAfter(response), readOnly)
+        : retryPolicy.retryDelay(attempt, Optional.empty(), throwable, Optional.empty(), readOnly);
+
+      // no point in retrying past the deadline
+      Optional<Deadline> deadline = requestParameters.getDeadline();
+      if (delay.isPresent() && deadline.isPresent() && delay.get().compareTo(deadline.get().remaining()) >= 0) {
+        delay = Optional.empty();
+      }
+
+      if (delay.isEmpty()) {
+        if (throwable != null) rv.completeExceptionally(throwable);
+        else rv.complete(response);
+        return;
+      }
+
+      log.debug(format("Retrying request %s %s after %d ms (attempt %d)", httpMethod, path, delay.get().toMillis(), attempt + 1));
+
+      Executor delayed = CompletableFuture.delayedExecutor(delay.get().toNanos(), TimeUnit.NANOSECONDS, callbackExecutor);
+      delayed.execute(() -> performAttempts(attempt + 1, httpMethod, path, body, params, requestParameters, bodyHandler, rv));
+    });
+  }
+
+  private static Optional<Duration> retryAfter(HttpResponse<?> response) {
+    try {
+      return response.headers().firstValue("Retry-After").map(value -> Duration.ofSeconds(Long.parseLong(value.trim())));
+    } catch (NumberFormatException ex) {
+      return Optional.empty(); // HTTP dates are not supported
+    }
+  }
+
+  private <T> CompletableFuture<HttpResponse<T>> performAttempt(String httpMethod,
+                                                                String path,
+                                                                Optional<RequestBody> body,
+                                                                Map<String, List<String>> params,
+                                                                RequestParameters requestParameters,
+                                                                HttpResponse.BodyHandler<T> bodyHandler) {
+    if (hedgingPolicy == null || !requestParameters.isReadOnly()) {
+      return performLimited(httpMethod, path, body, params, requestParameters, bodyHandler);
+    }
+
+    hedgingPolicy.onRequest();
+
+    Optional<Duration> delay = hedgingPolicy.getDelay();
+    if (delay.isEmpty()) {
+      // not hedged yet, but its latency counts towards the hedging delay
+      long start = System.nanoTime();
+      CompletableFuture<HttpResponse<T>> rv = performLimited(httpMethod, path, body, params, requestParameters, bodyHandler);
+      rv.whenComplete((response, throwable) -> {
+        if (throwable == null && !isOverloaded(response.statusCode()))
+          hedgingPolicy.onResponse(System.nanoTime() - start, false);
+      });
+      return rv;
+    }
+
+    Hedge<T> hedge = new Hedge<>();
+    hedge.launch(performLimited(httpMethod, path, body, params, requestParameters, bodyHandler), false);
+
+    Executor delayed = CompletableFuture.delayedExecutor(delay.get().toNanos(), TimeUnit.NANOSECONDS, callbackExecutor);
+    delayed.execute(() -> {
+      if (!hedge.result.isDone() && hedgingPolicy.tryHedge()) {
+        log.debug(format("Hedging request %s %s after %d ms", httpMethod, path, delay.get().toMillis()));
+        hedge.launch(performLimited(httpMethod, path, body, params, requestParameters, bodyHandler), true);
+      }
+    });
+
+    return hedge.result;
+  }
+
+  /**
+   * Races a request against its hedged copy. The first successful response wins, and a failure only wins
+   * if no other request is pending. The losing request's future is cancelled, which aborts its HTTP exchange
+   * on JDK 16 and later only: on earlier JDKs, the exchange runs to completion and its response is discarded.
+   *
+   * <p>The latency recorded is always the original request's, measured from when it was sent. When the hedged
+   * copy wins, it is the time the original request had been pending, a lower bound of its own latency.</p>
+   */
+  private final class Hedge<T> {
+    private final long start = System.nanoTime();
+    private final CompletableFuture<HttpResponse<T>> result = new CompletableFuture<>();
+    private final List<CompletableFuture<HttpResponse<T>>> pending = new ArrayList<>(2);
+
+    private Hedge() {
+      // cancels the losing request, or both if the caller cancelled
+      result.whenComplete((response, throwable) -> {
+        List<CompletableFuture<HttpResponse<T>>> losers;
+        synchronized (pending) {
+          losers = new ArrayList<>(pending);
+        }
+        losers.forEach(loser -> loser.cancel(true));
+      });
+    }
+
+    void launch(CompletableFuture<HttpResponse<T>> request, boolean hedged) {
+      synchronized (pending) {
+        if (result.isDone()) {
+          request.cancel(true);
+          return;
+        }
+        pending.add(request);
+      }
+
+      request.whenComplete((response, throwable) -> {
+        boolean success = throwable == null && !isOverloaded(response.statusCode());
+        synchronized (pending) {
+          pending.remove(request);
+          if (!success && !pending.isEmpty()) return;
+        }
+
+        if (!success) {
+          if (throwable != null) result.completeExceptionally(throwable);
+          else result.complete(response);
+        } else if (result.complete(response)) {
+          hedgingPolicy.onResponse(System.nanoTime() - start, hedged);
+        }
+      });
+    }
+  }
+
+  private static boolean isOverloaded(int statusCode) {
+    return statusCode == 429 || statusCode >= 500;
+  }
+
+  private <T> CompletableFuture<HttpResponse<T>> performLimited(String httpMethod,
+                                                                String path,
+                                                                Optional<RequestBody> body,
+                                                                Map<String, List<String>> params,
+                                                                RequestParameters requestParameters,
+                                                                HttpResponse.BodyHandler<T> bodyHandler) {
+    if (limiter == null) {
+      return send(httpMethod, path, body, params, requestParameters, bodyHandler);
+    }
+
+    final CompletableFuture<HttpResponse<T>> rv = new CompletableFuture<>();
+    final CompletableFuture<ConcurrencyLimiter.Permit> acquired = limiter.acquire();
+
+    acquired.whenComplete((permit, ex) -> {
+      if (ex != null) {
+        rv.completeExceptionally(ex);
+        return;
+      }
+
+      if (rv.isDone()) {
+        // cancelled while waiting for the permit
+        permit.release(ConcurrencyLimiter.Outcome.IGNORED);
+        return;
+      }
+
+      CompletableFuture<HttpResponse<T>> response = send(httpMethod, path, body, params, requestParameters, bodyHandler);
+      response.whenComplete((rsp, throwable) -> {
+        permit.release(rv.isCancelled() ? ConcurrencyLimiter.Outcome.IGNORED : limiterOutcome(rsp, throwable));
+        if (throwable != null) rv.completeExceptionally(throwable);
+        else rv.complete(rsp);
+      });
+      rv.whenComplete((rsp, throwable) -> {
+        if (rv.isCancelled()) response.cancel(true);
+      });
+    });
+
+    rv.whenComplete((rsp, throwable) -> {
+      if (rv.isCancelled()) acquired.cancel(true);
+    });
+
+    return rv;
+  }
+
+  private static ConcurrencyLimiter.Outcome limiterOutcome(HttpResponse<?> response, Throwable ex) {
+    if (ex != null) {
+      Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+      return cause instanceof HttpTimeoutException ? ConcurrencyLimiter.Outcome.DROPPED : ConcurrencyLimiter.Outcome.IGNORED;
+    }
+
+    int status = response.statusCode();
+    return status == 429 || status == 503 ? ConcurrencyLimiter.Outcome.DROPPED : ConcurrencyLimiter.Outcome.SUCCESS;
+  }
+
+  private <T> CompletableFuture<HttpResponse<T>> send(String httpMethod,
+                                                      String path,
+                                                      Optional<RequestBody> body,
+                                                      Map<String, List<String>> params,
+                                                      RequestParameters requestParameters,
+                                                      HttpResponse.BodyHandler<T> bodyHandler) {
+    final CompletableFuture<HttpResponse<T>> rv = new CompletableFuture<>();
+    if (requestParameters.getDeadline().map(Deadline::isExpired).orElse(false)) {
+      rv.completeExceptionally(new HttpTimeoutException("Deadline exceeded"));
+      return rv;
+    }
+
+    final EndpointPool.Endpoint endpoint;
+    try {
+      endpoint = endpoints.acquire();
+    } catch (RejectedExecutionException ex) {
+      // the endpoint's circuit is open
+      rv.completeExceptionally(ex);
+      return rv;
+    }
     final Timer.Context ctx = registry.timer("fauna-request").time();
-    final CompletableFuture<HttpResponse<String>> rv = new CompletableFuture<>();
+    final long start = System.nanoTime();
     HttpRequest request;
     try {
-      request = makeHttpRequest(httpMethod, path, body, params, requestParameters, HttpClient.Version.HTTP_1_1
+      request = makeHttpRequest(endpoint.root, httpMethod, path, body, params, requestParameters,
+        http2Clients != null ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1
       );
-    } catch (IllegalArgumentException| MalformedURLException | URISyntaxException | JsonProcessingException ex) {
+    } catch (IllegalArgumentException| MalformedURLException | URISyntaxException ex) {
+      endpoints.abandon(endpoint);
       rv.completeExceptionally(ex);
       return rv;
     }
-    sendRequest(request).whenCompleteAsync((response, throwable) -> {
+    CompletableFuture<HttpResponse<T>> exchange = sendRequest(request, bodyHandler);
+    exchange.whenCompleteAsync((response, throwable) -> {
       ctx.stop();
+      if (rv.isCancelled()) {
+        endpoints.abandon(endpoint);
+        return;
+      }
+
+      endpoints.complete(endpoint, System.nanoTime() - start, throwable != null || response.statusCode() >= 500);
+
       if (throwable != null) {
         logFailure(request, throwable);
         rv.completeExceptionally(throwable);
@@ -546,13 +1149,26 @@ public class Connection {
       logSuccess(request, response);
 
       rv.complete(response);
+    }, callbackExecutor);
+
+    // aborts the exchange when the caller loses interest, such as a losing hedged request, on JDK 16+ only
+    rv.whenComplete((response, throwable) -> {
+      if (rv.isCancelled()) exchange.cancel(true);
     });
 
     return rv;
   }
 
-  private CompletableFuture<HttpResponse<String>> sendRequest(HttpRequest req) {
-    return client.sendAsync(req, HttpResponse.BodyHandlers.ofString());
+  private <T> CompletableFuture<HttpResponse<T>> sendRequest(HttpRequest req, HttpResponse.BodyHandler<T> bodyHandler) {
+    if (http2Clients == null) {
+      return client.sendAsync(req, bodyHandler);
+    }
+
+    // the stream is released once the response body has been read
+    HttpClientPool.Lease lease = http2Clients.acquire();
+    CompletableFuture<HttpResponse<T>> exchange = lease.client.sendAsync(req, bodyHandler);
+    exchange.whenComplete((response, ex) -> http2Clients.release(lease));
+    return exchange;
   }
 
   public CompletableFuture<HttpResponse<Flow.Publisher<List<ByteBuffer>>>> streamRequest(HttpRequest req) {
@@ -566,10 +1182,10 @@ public class Connection {
     HttpRequest request;
     try {
       // TODO Implement traceId/tags for streaming requests, see https://faunadb.atlassian.net/browse/FE-2748
-      request = makeHttpRequest(httpMethod, path, Optional.of(body), params, new RequestParameters(),
+      request = makeHttpRequest(endpoints.preferredRoot(), httpMethod, path, Optional.of(RequestBody.write(json, body)), params, new RequestParameters(),
                                 HttpClient.Version.HTTP_2
       );
-    } catch (MalformedURLException | URISyntaxException | JsonProcessingException ex) {
+    } catch (URISyntaxException | IOException ex) {
       rv.completeExceptionally(ex);
       return rv;
     }
@@ -585,19 +1201,20 @@ public class Connection {
       txnTimeHeader.ifPresent(s -> syncLastTxnTime(Long.parseLong(s)));
 
       rv.complete(response);
-    });
+    }, callbackExecutor);
 
     return rv;
   }
 
-  private HttpRequest makeHttpRequest(String httpMethod,
+  private HttpRequest makeHttpRequest(URL root,
+                                      String httpMethod,
                                       String path,
-                                      Optional<JsonNode> body,
+                                      Optional<RequestBody> body,
                                       Map<String, List<String>> params,
                                       RequestParameters requestParameters,
                                       HttpClient.Version httpVersion
-  ) throws MalformedURLException, URISyntaxException, JsonProcessingException {
-    URI requestUri = URI.create(mkUrl(path));
+  ) throws MalformedURLException, URISyntaxException {
+    URI requestUri = URI.create(mkUrl(root, path));
 
     // Encode all query parameters
     for (Map.Entry<String, List<String>> entry : params.entrySet()) {
@@ -607,17 +1224,19 @@ public class Connection {
       }
     }
 
-    HttpRequest.BodyPublisher bodyPublisher = HttpRequest.BodyPublishers.noBody();
-    if (body.isPresent()) {
-      byte[] jsonBody = json.writeValueAsBytes(body.get());
-      bodyPublisher = HttpRequest.BodyPublishers.ofByteArray(jsonBody);
-    }
+    HttpRequest.BodyPublisher bodyPublisher = body.map(RequestBody::publisher).orElseGet(HttpRequest.BodyPublishers::noBody);
 
     // If a query timeout has been given for the current request,
     // override the one from the Connection if any
     // or use a default value
     Duration queryTimeout = requestParameters.getTimeout().or(() -> defaultQueryTimeout).orElse(DEFAULT_REQUEST_TIMEOUT);
 
+    // a deadline shortens the timeout to the time remaining, for both the server and the client
+    Optional<Duration> remaining = requestParameters.getDeadline().map(Deadline::remaining);
+    if (remaining.isPresent() && remaining.get().compareTo(queryTimeout) < 0) {
+      queryTimeout = remaining.get().toMillis() > 0 ? remaining.get() : Duration.ofMillis(1);
+    }
+
     Optional<Long> lastTxnTime = (getLastTxnTime() > 0) ? Optional.of(getLastTxnTime()) : Optional.empty();
 
     HttpRequest.Builder requestBuilder =
@@ -683,8 +1302,65 @@ public class Connection {
     }
   }
 
-  private String mkUrl(String path) throws MalformedURLException {
-    return new URL(faunaRoot, path).toString();
+  private static String mkUrl(URL root, String path) throws MalformedURLException {
+    return new URL(root, path).toString();
+  }
+
+  private static CompletableFuture<Boolean> ping(HttpClient client, URL root) {
+    HttpRequest request;
+    try {
+      request = pingRequest(root).build();
+    } catch (MalformedURLException ex) {
+      return CompletableFuture.completedFuture(false);
+    }
+    return client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+      .handle((response, ex) -> ex == null && response.statusCode() == 200);
+  }
+
+  private static HttpRequest.Builder pingRequest(URL root) throws MalformedURLException {
+    return HttpRequest.newBuilder()
+      .uri(URI.create(mkUrl(root, "ping?scope=node")))
+      .timeout(DEFAULT_CONNECTION_TIMEOUT)
+      .GET();
+  }
+
+  /**
+   * Sends concurrent pings to each endpoint over the connections queries use, so each ping takes an idle
+   * connection, or opens a new one.
+   */
+  private CompletableFuture<Void> ping(Map<URL, Integer> pings, KeepAlivePolicy policy) {
+    HttpClient.Version version = http2Clients != null ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1;
+    List<CompletableFuture<?>> responses = new ArrayList<>();
+    for (Map.Entry<URL, Integer> entry : pings.entrySet()) {
+      HttpRequest request;
+      try {
+        request = pingRequest(entry.getKey()).version(version).build();
+      } catch (MalformedURLException ex) {
+        continue;
+      }
+      for (int i = 0; i < entry.getValue(); i++) {
+        if (policy != null) policy.onPing();
+        responses.add(sendRequest(request, HttpResponse.BodyHandlers.discarding()).exceptionally(ex -> null));
+      }
+    }
+    return CompletableFuture.allOf(responses.toArray(new CompletableFuture<?>[0]));
+  }
+
+  /**
+   * Runs a round of keep-alive pings after the delay provided, and schedules the next one, for as long as
+   * the connection is in use. Session connections share the keep-alive of the connection they derive from.
+   */
+  private static void scheduleKeepAlive(WeakReference<Connection> ref, KeepAlivePolicy policy, Executor executor, long delayNanos) {
+    CompletableFuture.delayedExecutor(delayNanos, TimeUnit.NANOSECONDS, executor).execute(() -> {
+      Connection connection = ref.get();
+      if (connection == null) {
+        return;
+      }
+
+      Map<URL, Integer> pings = connection.endpoints.idleConnections(policy.getMinConnections(), policy.getIdleTimeout().toNanos());
+      connection.ping(pings, policy).whenComplete((v, ex) ->
+        scheduleKeepAlive(ref, policy, executor, policy.getInterval().toNanos()));
+    });
   }
 
   private String serializeTags(Map<String, String> tags) {
@@ -695,10 +1371,10 @@ public class Connection {
             .collect(Collectors.joining(","));
   }
 
-  private void logSuccess(HttpRequest request, HttpResponse<String> response) {
+  private void logSuccess(HttpRequest request, HttpResponse<?> response) {
     if (log.isDebugEnabled()) {
       String data = request.bodyPublisher().map(Object::toString).orElse("NoBody");
-      String body = Optional.ofNullable(response.body()).orElse("");
+      String body = Optional.ofNullable(response.body()).map(Object::toString).orElse("");
       String host = response.headers().firstValue(X_FAUNADB_HOST).orElse("Unknown");
       String build = response.headers().firstValue(X_FAUNADB_BUILD).orElse("Unknown");
 
@@ -0,0 +1,87 @@
+package com.faunadb.common;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A point in time by which requests must complete, possibly shared by several requests.
+ *
+ * <p>Each request sent with a deadline gets the time remaining until the deadline as its timeout, both
+ * on the server, through the {@code X-Query-Timeout} header, and on the client. Requests retried after
+ * a delay get the time still remaining, and are not retried past the deadline. Requests sent once the
+ * deadline has passed fail right away with a {@link java.net.http.HttpTimeoutException}.</p>
+ *
+ * <p>Cancelling a deadline cancels all the requests sharing it, as well as any request sent with it
+ * afterwards. Their futures fail with a {@link java.util.concurrent.CancellationException}, and they are
+ * neither retried nor hedged any further. Cancelling also aborts their HTTP exchanges in flight on JDK 16
+ * and later only: on earlier JDKs, an exchange in flight runs to completion, and its response is
+ * discarded.</p>
+ *
+ * @see com.faunadb.common.models.request.RequestParameters#withDeadline(Deadline)
+ */
+public final class Deadline {
+
+  private final long deadlineNanos;
+  private final Set<CompletableFuture<?>> requests = ConcurrentHashMap.newKeySet();
+  private volatile boolean cancelled = false;
+
+  private Deadline(long deadlineNanos) {
+    this.deadlineNanos = deadlineNanos;
+  }
+
+  /**
+   * Creates a deadline the given time from now.
+   *
+   * @param timeout the time until the deadline
+   * @return a new {@link Deadline}
+   */
+  public static Deadline after(Duration timeout) {
+    return new Deadline(System.nanoTime() + timeout.toNanos());
+  }
+
+  /**
+   * @return the time remaining until the deadline, or zero if it has passed
+   */
+  public Duration remaining() {
+    return Duration.ofNanos(Math.max(0, deadlineNanos - System.nanoTime()));
+  }
+
+  /**
+   * @return whether the deadline has passed
+   */
+  public boolean isExpired() {
+    return deadlineNanos - System.nanoTime() <= 0;
+  }
+
+  /**
+   * Cancels all the pending requests sharing this deadline, and the requests sent with it afterwards.
+   */
+  public void cancel() {
+    cancelled = true;
+    for (CompletableFuture<?> request : requests) {
+      request.cancel(true);
+    }
+  }
+
+  /**
+   * @return whether the deadline has been cancelled
+   */
+  public boolean isCancelled() {
+    return cancelled;
+  }
+
+  /**
+   * Tracks a request until it completes, so it can be cancelled along with the deadline.
+   */
+  void track(CompletableFuture<?> request) {
+    requests.add(request);
+    request.whenComplete((value, ex) -> requests.remove(request));
+
+    // cancelled while being added
+    if (cancelled) {
+      request.cancel(true);
+    }
+  }
+}
@@ -0,0 +1,177 @@
+package com.faunadb.common;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static java.lang.String.format;
+
+/**
+ * Decodes responses on a dedicated pool of threads, so decoding a large response doesn't hold up the
+ * threads handling the network I/O of other requests.
+ *
+ * <p>Responses up to a size threshold are decoded inline, on the thread completing the request, as
+ * handing them over to another thread would cost more than decoding them. Larger responses wait in a
+ * bounded queue for one of the decoding threads. Once the queue is full, the thread completing the
+ * request decodes the response itself, slowing down the intake of new responses rather than
+ * buffering them without bounds.</p>
+ *
+ * <p>Decoding threads are daemon threads, and stop after a minute without work.</p>
+ */
+public final class DecodingStage {
+
+  /**
+   * Returns a new {@link Builder} instance.
+   *
+   * @return a new {@link Builder}
+   */
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * A builder for the {@link DecodingStage} instance.
+   */
+  public static final class Builder {
+
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private int maxQueueSize = 1024;
+    private long inlineThreshold = 16 * 1024;
+
+    private Builder() {
+    }
+
+    /**
+     * Sets the number of decoding threads. Defaults to the number of available processors.
+     *
+     * @param threads the number of threads
+     * @return this {@link Builder} object
+     */
+    public Builder withThreads(int threads) {
+      this.threads = threads;
+      return this;
+    }
+
+    /**
+     * Sets how many responses may wait for a decoding thread. Defaults to 1024.
+     *
+     * @param maxQueueSize the maximum number of waiting responses
+     * @return this {@link Builder} object
+     */
+    public Builder withMaxQueueSize(int maxQueueSize) {
+      this.maxQueueSize = maxQueueSize;
+      return this;
+    }
+
+    /**
+     * Sets the size up to which responses are decoded inline. Defaults to 16 KiB.
+     *
+     * @param bytes the size threshold, in bytes
+     * @return this {@link Builder} object
+     */
+    public Builder withInlineThreshold(long bytes) {
+      this.inlineThreshold = bytes;
+      return this;
+    }
+
+    /**
+     * @return a newly constructed {@link DecodingStage}
+     */
+    public DecodingStage build() {
+      if (threads < 1)
+        throw new IllegalArgumentException("Decoding threads must be at least 1");
+      if (maxQueueSize < 1)
+        throw new IllegalArgumentException("Queue size must be at least 1");
+
+      return new DecodingStage(this);
+    }
+  }
+
+  private static final AtomicInteger STAGES = new AtomicInteger();
+
+  private final ThreadPoolExecutor executor;
+  private final long inlineThreshold;
+
+  private final Timer queueWait = new Timer();
+  private final Timer decodeTime = new Timer();
+  private final Counter inline = new Counter();
+
+  private DecodingStage(Builder builder) {
+    int stage = STAGES.incrementAndGet();
+    AtomicInteger threadCount = new AtomicInteger();
+    ThreadFactory threadFactory = task -> {
+      Thread thread = new Thread(task, format("fauna-decoder-%d-%d", stage, threadCount.incrementAndGet()));
+      thread.setDaemon(true);
+      return thread;
+    };
+
+    this.executor = new ThreadPoolExecutor(builder.threads, builder.threads, 1, TimeUnit.MINUTES,
+      new ArrayBlockingQueue<>(builder.maxQueueSize), threadFactory, new ThreadPoolExecutor.CallerRunsPolicy());
+    this.executor.allowCoreThreadTimeOut(true);
+    this.inlineThreshold = builder.inlineThreshold;
+  }
+
+  /**
+   * Decodes a response.
+   *
+   * @param size the size of the response, in bytes
+   * @param decoder decodes the response
+   * @param <T> the decoded type
+   * @return a {@link CompletableFuture} completed with the decoded response, or the decoder's failure
+   */
+  public <T> CompletableFuture<T> decode(long size, Supplier<T> decoder) {
+    if (size <= inlineThreshold) {
+      inline.inc();
+      CompletableFuture<T> rv = new CompletableFuture<>();
+      run(decoder, rv);
+      return rv;
+    }
+
+    final long enqueued = System.nanoTime();
+    final CompletableFuture<T> rv = new CompletableFuture<>();
+    executor.execute(() -> {
+      queueWait.update(System.nanoTime() - enqueued, TimeUnit.NANOSECONDS);
+      run(decoder, rv);
+    });
+    return rv;
+  }
+
+  /**
+   * @return the number of responses waiting for a decoding thread
+   */
+  public int getQueueSize() {
+    return executor.getQueue().size();
+  }
+
+  /**
+   * Registers the stage's metrics in the registry provided: the time responses wait for a decoding
+   * thread, the time spent decoding, and the number of responses decoded inline.
+   *
+   * @param registry the {@link MetricRegistry} instance
+   * @param prefix the prefix of the metric names
+   */
+  public void registerMetrics(MetricRegistry registry, String prefix) {
+    registry.timer(prefix + "-queue-wait", () -> queueWait);
+    registry.timer(prefix + "-decode", () -> decodeTime);
+    registry.counter(prefix + "-inline", () -> inline);
+  }
+
+  private <T> void run(Supplier<T> decoder, CompletableFuture<T> rv) {
+    Timer.Context ctx = decodeTime.time();
+    try {
+      rv.complete(decoder.get());
+    } catch (RuntimeException ex) {
+      rv.completeExceptionally(ex);
+    } finally {
+      ctx.stop();
+    }
+  }
+}
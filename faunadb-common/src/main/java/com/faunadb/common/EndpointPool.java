@@ -0,0 +1,275 @@
+package com.faunadb.common;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.URL;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static java.lang.String.format;
+
+/**
+ * The FaunaDB endpoints a {@link Connection} sends its requests to.
+ *
+ * <p>Every request is routed to the healthy endpoint with the lowest expected latency, that is, the
+ * moving average of its recent latencies weighted by its requests in flight, so a nearby endpoint is
+ * preferred until it gets busier than a remote one. Endpoints that have not answered yet are tried first.
+ * Recent failures add a penalty to the expected latency, which fades away over time, so requests move
+ * away from a failing endpoint right away, and come back once it stops failing.</p>
+ *
+ * <p>Endpoints failing too often, with connection errors or server errors, are ejected from the rotation
+ * and probed in the background until they answer again. The last healthy endpoint is never ejected.</p>
+ *
+ * <p>With a {@link CircuitBreaker}, each endpoint also gets its own circuit. Requests avoid endpoints with an
+ * open circuit, and fail fast if all of them are open.</p>
+ *
+ * <p>A pool is shared by a {@link Connection} and all its session connections.</p>
+ */
+final class EndpointPool {
+
+  // weight of a new sample in the latency and error rate averages
+  private static final double SMOOTHING = 0.2;
+  // error rate above which an endpoint is ejected, reached after four failures in a row
+  private static final double EJECTION_THRESHOLD = 0.5;
+  // latency penalty of an endpoint failing every request, and the time for the error rate to fade by 1/e
+  private static final double ERROR_PENALTY_NANOS = TimeUnit.SECONDS.toNanos(1);
+  private static final double ERROR_DECAY_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+  static final class Endpoint {
+    final URL root;
+    private final CircuitBreaker.Circuit circuit;
+
+    // guarded by the pool
+    private double latencyNanos = 0;
+    private double errorRate = 0;
+    private long errorRateNanos = 0;
+    private int inFlight = 0;
+    private boolean healthy = true;
+
+    // peak of concurrent requests since the last keep-alive round, and the connections to keep until when
+    private int peakInFlight = 0;
+    private int warmConnections = 0;
+    private long warmUntilNanos = 0;
+
+    private Endpoint(URL root, CircuitBreaker.Circuit circuit) {
+      this.root = root;
+      this.circuit = circuit;
+    }
+
+    private boolean isAvailable() {
+      return healthy && (circuit == null || circuit.isAvailable());
+    }
+
+    private double errorRate(long nowNanos) {
+      return errorRate == 0 ? 0 : errorRate * Math.exp(-(nowNanos - errorRateNanos) / ERROR_DECAY_NANOS);
+    }
+
+    private double score(long nowNanos) {
+      return (latencyNanos + errorRate(nowNanos) * ERROR_PENALTY_NANOS) * (inFlight + 1);
+    }
+  }
+
+  private final Logger log = LoggerFactory.getLogger(getClass());
+  private final List<Endpoint> endpoints = new ArrayList<>();
+  private final Duration probeInterval;
+  private final Function<URL, CompletableFuture<Boolean>> probe;
+
+  /**
+   * @param roots the endpoints' root URLs, in order of preference
+   * @param probeInterval the delay between two probes of an ejected endpoint
+   * @param probe checks whether the endpoint at the root URL provided is healthy
+   * @param breaker the circuit breaker of the endpoints, or null
+   */
+  EndpointPool(List<URL> roots, Duration probeInterval, Function<URL, CompletableFuture<Boolean>> probe, CircuitBreaker breaker) {
+    if (roots.isEmpty())
+      throw new IllegalArgumentException("At least one endpoint is required");
+
+    for (URL root : roots) {
+      endpoints.add(new Endpoint(root, breaker == null ? null : breaker.circuit(root.toString())));
+    }
+
+    this.probeInterval = probeInterval;
+    this.probe = probe;
+  }
+
+  /**
+   * Selects the endpoint for a new request. Must be followed by a call to {@link #complete} or {@link #abandon}.
+   *
+   * @return the selected endpoint
+   * @throws java.util.concurrent.RejectedExecutionException if the circuit of the selected endpoint is open
+   */
+  synchronized Endpoint acquire() {
+    Endpoint best = preferred();
+    if (best.circuit != null) {
+      best.circuit.acquire();
+    }
+    best.inFlight += 1;
+    best.peakInFlight = Math.max(best.peakInFlight, best.inFlight);
+    return best;
+  }
+
+  /**
+   * @return the root URL of the endpoint a new request would be routed to, such as a long lived stream
+   */
+  synchronized URL preferredRoot() {
+    return preferred().root;
+  }
+
+  /**
+   * Records the outcome of a request sent to the endpoint provided.
+   *
+   * @param endpoint the endpoint returned by {@link #acquire()}
+   * @param latencyNanos the request latency
+   * @param failed whether the endpoint failed to answer the request properly
+   */
+  void complete(Endpoint endpoint, long latencyNanos, boolean failed) {
+    boolean ejected = false;
+
+    synchronized (this) {
+      long now = System.nanoTime();
+      double errorRate = endpoint.errorRate(now);
+      endpoint.inFlight -= 1;
+      endpoint.errorRate = errorRate + SMOOTHING * ((failed ? 1 : 0) - errorRate);
+      endpoint.errorRateNanos = now;
+
+      if (endpoint.circuit != null) {
+        endpoint.circuit.onResult(latencyNanos, failed);
+      }
+
+      if (!failed) {
+        endpoint.latencyNanos = endpoint.latencyNanos == 0
+          ? latencyNanos
+          : endpoint.latencyNanos + SMOOTHING * (latencyNanos - endpoint.latencyNanos);
+      }
+
+      if (endpoint.healthy && endpoint.errorRate > EJECTION_THRESHOLD && healthyCount() > 1) {
+        endpoint.healthy = false;
+        ejected = true;
+      }
+    }
+
+    if (ejected) {
+      log.warn(format("Ejecting endpoint %s after repeated failures", endpoint.root));
+      scheduleProbe(endpoint);
+    }
+  }
+
+  /**
+   * Releases an endpoint without recording an outcome, for example once its request got cancelled.
+   *
+   * @param endpoint the endpoint returned by {@link #acquire()}
+   */
+  synchronized void abandon(Endpoint endpoint) {
+    endpoint.inFlight -= 1;
+
+    if (endpoint.circuit != null) {
+      endpoint.circuit.release();
+    }
+  }
+
+  /**
+   * Computes how many idle connections to each endpoint in the rotation should be kept open: as many as the
+   * peak of concurrent requests to the endpoint, until no such peak is reached for the idle timeout, and at
+   * least {@code minConnections}, less the connections busy with requests in flight.
+   *
+   * @param minConnections the connections to keep at all times
+   * @param idleTimeoutNanos how long the connections opened by a peak are kept
+   * @return the number of idle connections to keep, by root URL, for the endpoints which need some
+   */
+  synchronized Map<URL, Integer> idleConnections(int minConnections, long idleTimeoutNanos) {
+    long now = System.nanoTime();
+    Map<URL, Integer> idle = new LinkedHashMap<>();
+    for (Endpoint endpoint : endpoints) {
+      if (endpoint.peakInFlight >= endpoint.warmConnections || now - endpoint.warmUntilNanos >= 0) {
+        endpoint.warmConnections = endpoint.peakInFlight;
+        endpoint.warmUntilNanos = now + idleTimeoutNanos;
+      }
+      endpoint.peakInFlight = endpoint.inFlight;
+
+      int connections = Math.max(minConnections, endpoint.warmConnections) - endpoint.inFlight;
+      if (endpoint.healthy && connections > 0) {
+        idle.put(endpoint.root, connections);
+      }
+    }
+    return idle;
+  }
+
+  /**
+   * @return the root URLs of the endpoints in the rotation
+   */
+  synchronized List<URL> healthyRoots() {
+    List<URL> roots = new ArrayList<>();
+    for (Endpoint endpoint : endpoints) {
+      if (endpoint.healthy) roots.add(endpoint.root);
+    }
+    return roots;
+  }
+
+  /**
+   * @return the number of endpoints in the rotation
+   */
+  synchronized int healthyCount() {
+    int count = 0;
+    for (Endpoint endpoint : endpoints) {
+      if (endpoint.healthy) count += 1;
+    }
+    return count;
+  }
+
+  /**
+   * Registers the pool's gauges in the registry provided: the number of endpoints in the rotation.
+   *
+   * @param registry the {@link MetricRegistry} instance
+   * @param prefix the prefix of the metric names
+   */
+  @SuppressWarnings("unchecked")
+  void registerMetrics(MetricRegistry registry, String prefix) {
+    registry.gauge(prefix + "-healthy", () -> (Gauge<Integer>) this::healthyCount);
+  }
+
+  private Endpoint preferred() {
+    long now = System.nanoTime();
+    Endpoint best = null;
+    double bestScore = 0;
+    boolean bestAvailable = false;
+    for (Endpoint endpoint : endpoints) {
+      if (!endpoint.healthy)
+        continue;
+
+      // endpoints with an open circuit are only picked when all circuits are open
+      boolean available = endpoint.isAvailable();
+      double score = endpoint.score(now);
+      if (best == null || (available && !bestAvailable) || (available == bestAvailable && score < bestScore)) {
+        best = endpoint;
+        bestScore = score;
+        bestAvailable = available;
+      }
+    }
+    // unreachable as the last healthy endpoint is never ejected, but staying safe
+    return best != null ? best : endpoints.get(0);
+  }
+
+  private void scheduleProbe(Endpoint endpoint) {
+    CompletableFuture.delayedExecutor(probeInterval.toNanos(), TimeUnit.NANOSECONDS).execute(() ->
+      probe.apply(endpoint.root).whenComplete((healthy, ex) -> {
+        if (ex == null && healthy) {
+          synchronized (this) {
+            endpoint.healthy = true;
+            endpoint.errorRate = 0;
+          }
+          log.info(format("Endpoint %s is healthy again", endpoint.root));
+        } else {
+          scheduleProbe(endpoint);
+        }
+      }));
+  }
+}
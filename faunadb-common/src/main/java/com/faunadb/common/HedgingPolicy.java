@@ -0,0 +1,207 @@
+package com.faunadb.common;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Optional;
+
+import static java.lang.String.format;
+
+/**
+ * Hedges read-only requests: a request still pending after a delay is sent a second time, and the
+ * first successful response wins. The other request's future is cancelled, which aborts its HTTP exchange on
+ * JDK 16 and later. On earlier JDKs, the losing request runs to completion, and its response is discarded.
+ *
+ * <p>Hedging trades a little extra load for a shorter tail latency, as a request stuck on a slow node
+ * is usually overtaken by its copy. Only requests flagged as read-only through
+ * {@link com.faunadb.common.models.request.RequestParameters} are hedged, since they are safe to send twice.</p>
+ *
+ * <p>The hedging delay is either fixed, or derived from a percentile of the recent read-only request
+ * latencies, so only requests slower than, say, 95% of their peers are hedged. The latencies of all the
+ * successful read-only requests are recorded, hedged or not. Until enough latencies are recorded, requests
+ * are not hedged.</p>
+ *
+ * <p>Hedged requests are limited by a budget: every read-only request adds a fraction of a token to a
+ * bucket, and every hedged request takes a whole token from it. The budget is held by the policy, so all
+ * connections sharing a policy share the budget.</p>
+ *
+ * @see Connection.Builder#withHedgingPolicy(HedgingPolicy)
+ */
+public final class HedgingPolicy {
+
+  /**
+   * Returns a new {@link Builder} instance.
+   *
+   * @return a new {@link Builder}
+   */
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * A builder for the {@link HedgingPolicy} instance.
+   */
+  public static final class Builder {
+
+    private Duration delay = null;
+    private double percentile = 0.95;
+    private Duration minDelay = Duration.ofMillis(10);
+    private double budgetRatio = 0.05;
+    private int budgetCapacity = 10;
+
+    private Builder() {
+    }
+
+    /**
+     * Hedges requests still pending after a fixed delay.
+     *
+     * @param delay the hedging delay
+     * @return this {@link Builder} object
+     */
+    public Builder withDelay(Duration delay) {
+      this.delay = delay;
+      return this;
+    }
+
+    /**
+     * Hedges requests still pending after the given percentile of the recent latencies, but no sooner than
+     * {@code minDelay}. This is the default, with the 95th percentile and 10 milliseconds.
+     *
+     * @param percentile the latency percentile, between 0 and 1, exclusive
+     * @param minDelay the lowest hedging delay
+     * @return this {@link Builder} object
+     */
+    public Builder withPercentileDelay(double percentile, Duration minDelay) {
+      this.delay = null;
+      this.percentile = percentile;
+      this.minDelay = minDelay;
+      return this;
+    }
+
+    /**
+     * Sets the hedging budget. Every read-only request adds {@code ratio} tokens to the budget, up to
+     * {@code capacity} tokens, and every hedged request takes one token. The budget starts full. Defaults
+     * to 0.05 and 10, that is, at most 5% extra requests once the initial budget is used.
+     *
+     * @param ratio the tokens added per request
+     * @param capacity the maximum number of tokens
+     * @return this {@link Builder} object
+     */
+    public Builder withBudget(double ratio, int capacity) {
+      this.budgetRatio = ratio;
+      this.budgetCapacity = capacity;
+      return this;
+    }
+
+    /**
+     * @return a newly constructed {@link HedgingPolicy}
+     */
+    public HedgingPolicy build() {
+      if (delay != null && delay.isNegative())
+        throw new IllegalArgumentException(format("Invalid hedging delay: %s", delay));
+      if (percentile <= 0 || percentile >= 1)
+        throw new IllegalArgumentException("Percentile must be between 0 and 1");
+      if (minDelay.isNegative())
+        throw new IllegalArgumentException(format("Invalid minimum hedging delay: %s", minDelay));
+
+      return new HedgingPolicy(this);
+    }
+  }
+
+  // latencies kept to derive the delay from, and how often the delay is derived again
+  private static final int WINDOW_SIZE = 1024;
+  private static final int MIN_SAMPLES = 100;
+  private static final int REFRESH_INTERVAL = 64;
+
+  private final Optional<Duration> fixedDelay;
+  private final double percentile;
+  private final long minDelayNanos;
+  private final TokenBucket budget;
+
+  private final Counter hedges = new Counter();
+  private final Counter wins = new Counter();
+
+  private final long[] latencies = new long[WINDOW_SIZE];
+  private long samples = 0;
+  private volatile Optional<Duration> derivedDelay = Optional.empty();
+
+  private HedgingPolicy(Builder builder) {
+    this.fixedDelay = Optional.ofNullable(builder.delay);
+    this.percentile = builder.percentile;
+    this.minDelayNanos = builder.minDelay.toNanos();
+    this.budget = new TokenBucket(builder.budgetRatio, builder.budgetCapacity);
+  }
+
+  /**
+   * Registers the policy's metrics in the registry provided: the number of hedged requests, the number
+   * of them answered before the original request, and the current hedging delay in milliseconds.
+   *
+   * @param registry the {@link MetricRegistry} instance
+   * @param prefix the prefix of the metric names
+   */
+  @SuppressWarnings("unchecked")
+  public void registerMetrics(MetricRegistry registry, String prefix) {
+    registry.counter(prefix + "-hedges", () -> hedges);
+    registry.counter(prefix + "-wins", () -> wins);
+    registry.gauge(prefix + "-delay", () -> (Gauge<Long>) () -> getDelay().map(Duration::toMillis).orElse(-1L));
+  }
+
+  /**
+   * @return the current hedging delay, or empty if requests are not hedged yet
+   */
+  public Optional<Duration> getDelay() {
+    return fixedDelay.isPresent() ? fixedDelay : derivedDelay;
+  }
+
+  /**
+   * Records a new read-only request, adding to the hedging budget.
+   */
+  void onRequest() {
+    budget.deposit();
+  }
+
+  /**
+   * Records the latency of a read-only request answered successfully. When its hedged copy answered first,
+   * the latency is how long the original request had been pending.
+   */
+  void onResponse(long latencyNanos, boolean hedged) {
+    if (hedged)
+      wins.inc();
+
+    if (fixedDelay.isPresent())
+      return;
+
+    long[] window = null;
+
+    synchronized (latencies) {
+      latencies[(int) (samples % WINDOW_SIZE)] = latencyNanos;
+      samples += 1;
+
+      if (samples >= MIN_SAMPLES && samples % REFRESH_INTERVAL == 0)
+        window = Arrays.copyOf(latencies, (int) Math.min(samples, WINDOW_SIZE));
+    }
+
+    // sorting outside of the lock, so other requests are not held up
+    if (window != null) {
+      Arrays.sort(window);
+      long delay = window[(int) (percentile * (window.length - 1))];
+      derivedDelay = Optional.of(Duration.ofNanos(Math.max(minDelayNanos, delay)));
+    }
+  }
+
+  /**
+   * Takes a token from the budget to send a hedged request.
+   *
+   * @return true if the request may be hedged
+   */
+  boolean tryHedge() {
+    if (!budget.withdraw())
+      return false;
+
+    hedges.inc();
+    return true;
+  }
+}
@@ -0,0 +1,150 @@
+package com.faunadb.common;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Spreads HTTP/2 requests over as few connections as possible.
+ *
+ * <p>An {@link HttpClient} multiplexes all its HTTP/2 requests to a host over a single connection.
+ * This pool caps the concurrent streams of each client, over all the hosts it sends requests to, and
+ * spills requests over to additional clients, thus additional connections, once all of them are full.
+ * The number of clients is capped too: once all of them are full, the least busy client is
+ * oversubscribed.</p>
+ *
+ * <p>Additional clients are kept once their requests complete, so the next burst of requests reuses
+ * their connections, and dropped from the pool once left idle for the idle timeout. As
+ * {@link HttpClient} can't be closed on JDK 11, their connections are closed once they are garbage
+ * collected, or once the connections idle out.</p>
+ *
+ * <p>A pool is shared by a {@link Connection} and all its session connections.</p>
+ */
+final class HttpClientPool {
+
+  /**
+   * A client of the pool, along with its streams in use.
+   */
+  static final class Lease {
+    final HttpClient client;
+    private int streams = 0; // guarded by the pool
+    private long idleSinceNanos; // guarded by the pool
+
+    private Lease(HttpClient client) {
+      this.client = client;
+    }
+  }
+
+  private final List<Lease> leases = new ArrayList<>();
+  private final Supplier<HttpClient> factory;
+  private final int maxStreams;
+  private final int maxClients;
+  private final long idleTimeoutNanos;
+
+  /**
+   * @param first the first client, always kept in the pool
+   * @param factory creates additional clients, or null if requests must not spill over
+   * @param maxStreams the maximum concurrent streams per client
+   * @param maxClients the maximum number of clients, including the first one
+   * @param idleTimeout how long additional clients are kept once they have no requests left
+   */
+  HttpClientPool(HttpClient first, Supplier<HttpClient> factory, int maxStreams, int maxClients, Duration idleTimeout) {
+    if (maxStreams < 1)
+      throw new IllegalArgumentException("Max streams per client must be at least 1");
+    if (maxClients < 1)
+      throw new IllegalArgumentException("Max clients must be at least 1");
+    if (idleTimeout.isNegative())
+      throw new IllegalArgumentException("Idle timeout must not be negative");
+
+    this.leases.add(new Lease(first));
+    this.factory = factory;
+    this.maxStreams = maxStreams;
+    this.maxClients = maxClients;
+    this.idleTimeoutNanos = idleTimeout.toNanos();
+  }
+
+  /**
+   * Takes a stream from the first client with streams left, creating a new client if needed. Without
+   * a factory, or once the maximum number of clients is reached, the least busy client is oversubscribed
+   * instead.
+   *
+   * @return the client to send the request with. Must be released once the request completes.
+   */
+  synchronized Lease acquire() {
+    retireIdleClients();
+
+    Lease leastBusy = null;
+    for (Lease lease : leases) {
+      if (lease.streams < maxStreams) {
+        lease.streams += 1;
+        return lease;
+      }
+      if (leastBusy == null || lease.streams < leastBusy.streams) {
+        leastBusy = lease;
+      }
+    }
+
+    Lease lease = factory != null && leases.size() < maxClients ? new Lease(factory.get()) : leastBusy;
+    if (lease != leastBusy) {
+      leases.add(lease);
+    }
+    lease.streams += 1;
+    return lease;
+  }
+
+  /**
+   * Gives a stream back to its client, dropping the additional clients left idle for the idle timeout.
+   *
+   * @param lease the lease returned by {@link #acquire()}
+   */
+  synchronized void release(Lease lease) {
+    lease.streams -= 1;
+    if (lease.streams == 0) {
+      lease.idleSinceNanos = System.nanoTime();
+    }
+    retireIdleClients();
+  }
+
+  // called with the pool's lock held
+  private void retireIdleClients() {
+    Lease first = leases.get(0);
+    long now = System.nanoTime();
+    leases.removeIf(lease ->
+      lease != first && lease.streams == 0 && now - lease.idleSinceNanos >= idleTimeoutNanos);
+  }
+
+  /**
+   * @return the number of streams in use over all clients
+   */
+  synchronized int getStreams() {
+    int streams = 0;
+    for (Lease lease : leases) {
+      streams += lease.streams;
+    }
+    return streams;
+  }
+
+  /**
+   * @return the number of clients, that is, of connections per host
+   */
+  synchronized int getConnections() {
+    return leases.size();
+  }
+
+  /**
+   * Registers the pool's gauges in the registry provided: the streams in use and the connections open.
+   *
+   * @param registry the {@link MetricRegistry} instance
+   * @param prefix the prefix of the metric names
+   */
+  @SuppressWarnings("unchecked")
+  void registerMetrics(MetricRegistry registry, String prefix) {
+    registry.gauge(prefix + "-streams", () -> (Gauge<Integer>) this::getStreams);
+    registry.gauge(prefix + "-connections", () -> (Gauge<Integer>) this::getConnections);
+  }
+}
@@ -0,0 +1,152 @@
+package com.faunadb.common;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+
+import java.time.Duration;
+
+import static java.lang.String.format;
+
+/**
+ * Keeps idle connections open in the background, so the first requests after a quiet period don't pay
+ * for setting up new connections.
+ *
+ * <p>The JDK closes connections idle for longer than the {@code jdk.httpclient.keepalive.timeout} system
+ * property, 4 seconds unless set otherwise before the first {@link Connection} is built, so idle connections
+ * are dropped before FaunaDB closes them, and are never reused once closed on FaunaDB's side. This timeout is
+ * shared by the whole JVM. With a keep-alive policy, a {@link Connection} pings each of its endpoints at
+ * a regular interval, shorter than that timeout, over as many idle connections as it should keep:</p>
+ * <ul>
+ *   <li>as many as the peak of concurrent requests to the endpoint, until no such peak has been reached
+ *   for the idle timeout, so a burst of requests finds the connections left by the previous one;</li>
+ *   <li>and at least a minimum number of connections, kept open for as long as the {@link Connection}
+ *   is in use.</li>
+ * </ul>
+ *
+ * <p>With HTTP/2, concurrent requests share connections, so fewer connections are kept open.</p>
+ *
+ * @see Connection.Builder#withKeepAlivePolicy(KeepAlivePolicy)
+ * @see Connection#warmUp(int)
+ */
+public final class KeepAlivePolicy {
+
+  static final Duration DEFAULT_IDLE_TIMEOUT = Duration.ofMinutes(1);
+
+  /**
+   * Returns a new {@link Builder} instance.
+   *
+   * @return a new {@link Builder}
+   */
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * A builder for the {@link KeepAlivePolicy} instance.
+   */
+  public static final class Builder {
+
+    private int minConnections = 1;
+    private Duration idleTimeout = DEFAULT_IDLE_TIMEOUT;
+    private Duration interval = Duration.ofSeconds(3);
+
+    private Builder() {
+    }
+
+    /**
+     * Sets the number of connections to each endpoint kept open at all times. Defaults to 1.
+     *
+     * @param minConnections the minimum number of connections
+     * @return this {@link Builder} object
+     */
+    public Builder withMinConnections(int minConnections) {
+      this.minConnections = minConnections;
+      return this;
+    }
+
+    /**
+     * Sets how long the connections opened by a peak of requests are kept open once the peak is over.
+     * Defaults to 1 minute.
+     *
+     * @param idleTimeout the idle timeout
+     * @return this {@link Builder} object
+     */
+    public Builder withIdleTimeout(Duration idleTimeout) {
+      this.idleTimeout = idleTimeout;
+      return this;
+    }
+
+    /**
+     * Sets the interval between two rounds of pings. Must be shorter than the JVM's
+     * {@code jdk.httpclient.keepalive.timeout}, 4 seconds by default. Defaults to 3 seconds.
+     *
+     * @param interval the ping interval
+     * @return this {@link Builder} object
+     */
+    public Builder withInterval(Duration interval) {
+      this.interval = interval;
+      return this;
+    }
+
+    /**
+     * @return a newly constructed {@link KeepAlivePolicy}
+     */
+    public KeepAlivePolicy build() {
+      if (minConnections < 0)
+        throw new IllegalArgumentException(format("Invalid minimum connections: %d", minConnections));
+      if (idleTimeout.isNegative())
+        throw new IllegalArgumentException(format("Invalid idle timeout: %s", idleTimeout));
+      if (interval.isNegative() || interval.isZero())
+        throw new IllegalArgumentException(format("Invalid ping interval: %s", interval));
+
+      return new KeepAlivePolicy(this);
+    }
+  }
+
+  private final int minConnections;
+  private final Duration idleTimeout;
+  private final Duration interval;
+
+  private final Meter pings = new Meter();
+
+  private KeepAlivePolicy(Builder builder) {
+    this.minConnections = builder.minConnections;
+    this.idleTimeout = builder.idleTimeout;
+    this.interval = builder.interval;
+  }
+
+  /**
+   * @return the number of connections to each endpoint kept open at all times
+   */
+  public int getMinConnections() {
+    return minConnections;
+  }
+
+  /**
+   * @return how long the connections opened by a peak of requests are kept open
+   */
+  public Duration getIdleTimeout() {
+    return idleTimeout;
+  }
+
+  /**
+   * @return the interval between two rounds of pings
+   */
+  public Duration getInterval() {
+    return interval;
+  }
+
+  /**
+   * Registers the policy's metrics in the registry provided: the rate of keep-alive pings.
+   *
+   * @param registry the {@link MetricRegistry} instance
+   * @param prefix the prefix of the metric names
+   */
+  public void registerMetrics(MetricRegistry registry, String prefix) {
+    registry.meter(prefix + "-pings", () -> pings);
+  }
+
+  void onPing() {
+    pings.mark();
+  }
+}
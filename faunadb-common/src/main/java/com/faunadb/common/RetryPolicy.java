@@ -0,0 +1,239 @@
+package com.faunadb.common;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+
+import java.net.ConnectException;
+import java.net.http.HttpConnectTimeoutException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static java.lang.String.format;
+
+/**
+ * Retries requests failing due to transaction contention or server overload.
+ *
+ * <p>By default, requests answered with {@code 409} (transaction contention) or {@code 429} (too many
+ * requests), and requests that could not connect to the server, are retried: none of them had any effect
+ * on the server. Requests answered with {@code 503} (unavailable) are retried only if they are read-only,
+ * as a write may have been applied before the response was lost.</p>
+ *
+ * <p>Retries wait for an exponentially growing delay with full jitter: a random delay between zero and
+ * {@code baseDelay * 2^(attempt - 1)}, capped at {@code maxDelay}, so clients failing at the same time
+ * don't retry at the same time. A {@code Retry-After} header sent by the server extends the delay, up to
+ * {@code maxRetryAfter}.</p>
+ *
+ * <p>Retries are limited by a retry budget: every request adds a fraction of a token to a bucket, and
+ * every retry takes a whole token from it. During an outage, the budget runs out and requests fail right
+ * away instead of multiplying the load on the server. The budget is held by the policy, so all connections
+ * sharing a policy share the budget.</p>
+ *
+ * @see Connection.Builder#withRetryPolicy(RetryPolicy)
+ */
+public final class RetryPolicy {
+
+  /**
+   * Returns a new {@link Builder} instance.
+   *
+   * @return a new {@link Builder}
+   */
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * A builder for the {@link RetryPolicy} instance.
+   */
+  public static final class Builder {
+
+    private int maxAttempts = 3;
+    private Duration baseDelay = Duration.ofMillis(50);
+    private Duration maxDelay = Duration.ofSeconds(2);
+    private Duration maxRetryAfter = Duration.ofSeconds(30);
+    private Set<Integer> retryableStatuses = new HashSet<>(Arrays.asList(409, 429));
+    private Set<Integer> readOnlyRetryableStatuses = new HashSet<>(Arrays.asList(503));
+    private double budgetRatio = 0.1;
+    private int budgetCapacity = 10;
+
+    private Builder() {
+    }
+
+    /**
+     * Sets the maximum number of attempts per request, including the first one. Defaults to 3.
+     *
+     * @param maxAttempts the maximum number of attempts
+     * @return this {@link Builder} object
+     */
+    public Builder withMaxAttempts(int maxAttempts) {
+      this.maxAttempts = maxAttempts;
+      return this;
+    }
+
+    /**
+     * Sets the delays between attempts. The delay before the n-th retry is drawn at random between zero
+     * and {@code baseDelay * 2^(n - 1)}, capped at {@code maxDelay}. Defaults to 50 milliseconds and 2 seconds.
+     *
+     * @param baseDelay the upper bound of the first delay
+     * @param maxDelay the upper bound of all delays
+     * @return this {@link Builder} object
+     */
+    public Builder withBackoff(Duration baseDelay, Duration maxDelay) {
+      this.baseDelay = baseDelay;
+      this.maxDelay = maxDelay;
+      return this;
+    }
+
+    /**
+     * Sets the longest delay honored from a {@code Retry-After} header. Longer requested delays are cut
+     * down to it. Defaults to 30 seconds.
+     *
+     * @param maxRetryAfter the upper bound of server requested delays
+     * @return this {@link Builder} object
+     */
+    public Builder withMaxRetryAfter(Duration maxRetryAfter) {
+      this.maxRetryAfter = maxRetryAfter;
+      return this;
+    }
+
+    /**
+     * Sets the HTTP statuses of the responses to be retried, for all requests. Defaults to 409 and 429.
+     *
+     * @param statuses the HTTP statuses
+     * @return this {@link Builder} object
+     */
+    public Builder withRetryableStatuses(Set<Integer> statuses) {
+      this.retryableStatuses = new HashSet<>(statuses);
+      return this;
+    }
+
+    /**
+     * Sets the HTTP statuses of the responses to be retried for read-only requests only, as they don't
+     * guarantee that the request had no effect. Defaults to 503.
+     *
+     * @param statuses the HTTP statuses
+     * @return this {@link Builder} object
+     * @see com.faunadb.common.models.request.RequestParameters#isReadOnly()
+     */
+    public Builder withReadOnlyRetryableStatuses(Set<Integer> statuses) {
+      this.readOnlyRetryableStatuses = new HashSet<>(statuses);
+      return this;
+    }
+
+    /**
+     * Sets the retry budget. Every request adds {@code ratio} tokens to the budget, up to {@code capacity}
+     * tokens, and every retry takes one token. The budget starts full. Defaults to 0.1 and 10, that is, at
+     * most 10% extra requests once the initial budget is used.
+     *
+     * @param ratio the tokens added per request
+     * @param capacity the maximum number of tokens
+     * @return this {@link Builder} object
+     */
+    public Builder withRetryBudget(double ratio, int capacity) {
+      this.budgetRatio = ratio;
+      this.budgetCapacity = capacity;
+      return this;
+    }
+
+    /**
+     * @return a newly constructed {@link RetryPolicy}
+     */
+    public RetryPolicy build() {
+      if (maxAttempts < 1)
+        throw new IllegalArgumentException("Max attempts must be at least 1");
+      if (baseDelay.isNegative() || maxDelay.compareTo(baseDelay) < 0)
+        throw new IllegalArgumentException(format("Invalid backoff delays: %s, %s", baseDelay, maxDelay));
+      if (maxRetryAfter.isNegative())
+        throw new IllegalArgumentException(format("Invalid max Retry-After delay: %s", maxRetryAfter));
+      return new RetryPolicy(this);
+    }
+  }
+
+  private final int maxAttempts;
+  private final long baseDelayNanos;
+  private final long maxDelayNanos;
+  private final long maxRetryAfterNanos;
+  private final Set<Integer> retryableStatuses;
+  private final Set<Integer> readOnlyRetryableStatuses;
+  private final TokenBucket budget;
+
+  private final Counter retries = new Counter();
+  private final Counter giveUps = new Counter();
+
+  private RetryPolicy(Builder builder) {
+    this.maxAttempts = builder.maxAttempts;
+    this.baseDelayNanos = builder.baseDelay.toNanos();
+    this.maxDelayNanos = builder.maxDelay.toNanos();
+    this.maxRetryAfterNanos = builder.maxRetryAfter.toNanos();
+    this.retryableStatuses = builder.retryableStatuses;
+    this.readOnlyRetryableStatuses = builder.readOnlyRetryableStatuses;
+    this.budget = new TokenBucket(builder.budgetRatio, builder.budgetCapacity);
+  }
+
+  /**
+   * Registers the policy's counters in the registry provided: the number of retries, and the number
+   * of requests given up on while still retryable, either out of attempts or out of budget.
+   *
+   * @param registry the {@link MetricRegistry} instance
+   * @param prefix the prefix of the metric names
+   */
+  public void registerMetrics(MetricRegistry registry, String prefix) {
+    registry.counter(prefix + "-retries", () -> retries);
+    registry.counter(prefix + "-give-ups", () -> giveUps);
+  }
+
+  /**
+   * Records a new request, adding to the retry budget.
+   */
+  void onRequest() {
+    budget.deposit();
+  }
+
+  /**
+   * Decides whether an attempt is to be retried, and after which delay.
+   *
+   * @param attempt the number of the attempt that just completed, starting from 1
+   * @param statusCode the response status, if a response was received
+   * @param failure the failure, if no response was received
+   * @param retryAfter the delay requested by the server, if any
+   * @param readOnly whether the request only performs reads
+   * @return the delay before the next attempt, or empty if the attempt must not be retried
+   */
+  Optional<Duration> retryDelay(int attempt, Optional<Integer> statusCode, Throwable failure, Optional<Duration> retryAfter,
+                                boolean readOnly) {
+    boolean retryable = statusCode
+      .map(status -> retryableStatuses.contains(status) || readOnly && readOnlyRetryableStatuses.contains(status))
+      .orElseGet(() -> isRetryable(failure));
+
+    if (!retryable)
+      return Optional.empty();
+
+    if (attempt >= maxAttempts || !budget.withdraw()) {
+      giveUps.inc();
+      return Optional.empty();
+    }
+
+    retries.inc();
+
+    long cap = baseDelayNanos;
+    for (int i = 1; i < attempt && cap < maxDelayNanos; i++) {
+      cap *= 2;
+    }
+    cap = Math.min(cap, maxDelayNanos);
+
+    long delay = cap > 0 ? ThreadLocalRandom.current().nextLong(cap + 1) : 0;
+    long requested = retryAfter.map(Duration::toNanos).orElse(0L);
+
+    return Optional.of(Duration.ofNanos(Math.max(delay, Math.min(requested, maxRetryAfterNanos))));
+  }
+
+  private static boolean isRetryable(Throwable failure) {
+    Throwable cause = failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+    // the request never reached the server
+    return cause instanceof ConnectException || cause instanceof HttpConnectTimeoutException;
+  }
+}
@@ -0,0 +1,35 @@
+package com.faunadb.common;
+
+/**
+ * A budget of extra requests, such as retries or hedged requests, earned by regular requests.
+ *
+ * <p>Every request adds {@code ratio} tokens to the bucket, up to {@code capacity} tokens, and every
+ * extra request takes a whole token from it. The bucket starts full.</p>
+ */
+final class TokenBucket {
+
+  private final double ratio;
+  private final double capacity;
+  private double tokens;
+
+  TokenBucket(double ratio, int capacity) {
+    if (ratio < 0 || capacity < 0)
+      throw new IllegalArgumentException("Budget must not be negative");
+
+    this.ratio = ratio;
+    this.capacity = capacity;
+    this.tokens = capacity;
+  }
+
+  synchronized void deposit() {
+    tokens = Math.min(capacity, tokens + ratio);
+  }
+
+  synchronized boolean withdraw() {
+    if (tokens < 1)
+      return false;
+
+    tokens -= 1;
+    return true;
+  }
+}
@@ -1,6 +1,8 @@
 package com.faunadb.common.http;
 
 import com.faunadb.common.Connection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.w3c.dom.Document;
 import org.xml.sax.SAXException;
 
@@ -8,55 +10,116 @@ import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URL;
 import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+/**
+ * Checks whether a newer driver version has been released, once per JVM.
+ *
+ * <p>The check runs on a daemon thread, so it never delays building a client, nor keeps the JVM
+ * from exiting. The latest version is cached on disk for a day, so short-lived JVMs such as serverless
+ * functions don't query Maven Central on every cold start.</p>
+ */
 public class DriverVersionChecker
 {
-    private static boolean alreadyChecked = false;
+    private static final Logger log = LoggerFactory.getLogger(DriverVersionChecker.class);
+
+    private static final AtomicBoolean alreadyChecked = new AtomicBoolean(false);
 
     public static void setAlreadyChecked() {
-        alreadyChecked = true;
+        alreadyChecked.set(true);
     }
 
     private final static String urlString = "https://repo.maven.apache.org/maven2/com/faunadb/faunadb-common/maven-metadata.xml";
-    private static boolean javaDriver;
+    private final static int TIMEOUT_MILLIS = 2000;
+    private final static Duration CACHE_TTL = Duration.ofDays(1);
+    private final static Path CACHE_FILE = Paths.get(System.getProperty("java.io.tmpdir"), "faunadb-jvm-latest-version");
 
     public static boolean isAlreadyChecked() {
-        return alreadyChecked;
+        return alreadyChecked.get();
     }
 
+    /**
+     * Starts checking for a newer driver version in the background, unless already checked.
+     */
     public static void checkLatestVersion() {
-        if (alreadyChecked) return;
+        if (!alreadyChecked.compareAndSet(false, true)) return;
+
+        Thread thread = new Thread(DriverVersionChecker::check, "fauna-version-check");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private static void check() {
         try {
-                getVersion();
+            Optional<String> cached = readCache();
+            String repositoryVersion = cached.isPresent() ? cached.get() : getVersion();
+            if (cached.isEmpty()) writeCache(repositoryVersion);
+
+            var driverVersion = Connection.class.getPackage().getSpecificationVersion();
+            if (!repositoryVersion.equals(driverVersion))
+            {
+                System.out.println("\n");
+                System.out.println("=".repeat(80));
+                System.out.println("New fauna version available " + repositoryVersion + " -> " + driverVersion);
+                System.out.println("Changelog: https://github.com/fauna/faunadb-jvm/blob/main/CHANGELOG.txt");
+                System.out.println("=".repeat(80));
+            }
         }
-        catch (IOException e) {
-            e.printStackTrace();
-        } catch (ParserConfigurationException e) {
-            e.printStackTrace();
-        } catch (SAXException e) {
-            e.printStackTrace();
+        catch (IOException | ParserConfigurationException | SAXException | RuntimeException e) {
+            log.debug("Unable to check the latest driver version", e);
         }
-        setAlreadyChecked();
     }
 
-    private static void getVersion() throws IOException, ParserConfigurationException, SAXException {
+    private static String getVersion() throws IOException, ParserConfigurationException, SAXException {
         URL url = new URL(urlString);
         URLConnection conn = url.openConnection();
+        conn.setConnectTimeout(TIMEOUT_MILLIS);
+        conn.setReadTimeout(TIMEOUT_MILLIS);
 
         DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
         DocumentBuilder builder = factory.newDocumentBuilder();
-        Document document = builder.parse(conn.getInputStream());
-        var repositoryVersion = document.getDocumentElement().getElementsByTagName("latest").item(0).getFirstChild().getNodeValue();
-        var driverVersion = Connection.class.getPackage().getSpecificationVersion();
-        if (!repositoryVersion.equals(driverVersion))
-        {
-            System.out.println("\n");
-            System.out.println("=".repeat(80));
-            System.out.println("New fauna version available " + repositoryVersion + " -> " + driverVersion);
-            System.out.println("Changelog: https://github.com/fauna/faunadb-jvm/blob/main/CHANGELOG.txt");
-            System.out.println("=".repeat(80));
+        try (InputStream in = conn.getInputStream()) {
+            Document document = builder.parse(in);
+            return document.getDocumentElement().getElementsByTagName("latest").item(0).getFirstChild().getNodeValue();
+        }
+    }
+
+    private static Optional<String> readCache() {
+        try {
+            Instant modified = Files.getLastModifiedTime(CACHE_FILE).toInstant();
+            if (modified.plus(CACHE_TTL).isBefore(Instant.now())) return Optional.empty();
+
+            String version = Files.readString(CACHE_FILE, StandardCharsets.UTF_8).trim();
+            return version.isEmpty() ? Optional.empty() : Optional.of(version);
+        } catch (IOException e) {
+            return Optional.empty();
+        }
+    }
+
+    private static void writeCache(String version) {
+        Path tmp = null;
+        try {
+            // written aside and moved, so concurrent JVMs never read a partial file
+            tmp = Files.createTempFile(CACHE_FILE.getParent(), "faunadb-jvm-latest-version", ".tmp");
+            Files.writeString(tmp, version, StandardCharsets.UTF_8);
+            Files.move(tmp, CACHE_FILE, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | UnsupportedOperationException e) {
+            log.debug("Unable to cache the latest driver version", e);
+            try {
+                if (tmp != null) Files.deleteIfExists(tmp);
+            } catch (IOException ignored) {
+            }
         }
     }
 
@@ -0,0 +1,252 @@
+package com.faunadb.common.http;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.http.HttpRequest;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A serialized JSON request body.
+ *
+ * <p>Values are streamed through a {@link com.fasterxml.jackson.core.JsonGenerator} into a list of
+ * byte chunks in a single pass, without building an intermediate JSON tree or a contiguous array.
+ * The {@link HttpRequest.BodyPublisher} returned by {@link #publisher()} hands those chunks to the
+ * {@link java.net.http.HttpClient} as they are, without copying them again.</p>
+ *
+ * <p>Instances are immutable and may be sent any number of times.</p>
+ */
+public final class RequestBody {
+
+  private static final int MIN_CHUNK_SIZE = 512;
+  private static final int MAX_CHUNK_SIZE = 64 * 1024;
+
+  private final List<ByteBuffer> buffers;
+  private final long length;
+  private int hash; // cached, racy but idempotent like String's
+
+  private RequestBody(List<ByteBuffer> buffers, long length) {
+    this.buffers = buffers;
+    this.length = length;
+  }
+
+  /**
+   * Serializes the value provided as JSON.
+   *
+   * @param json the {@link ObjectMapper} used to serialize the value
+   * @param value the value to be serialized
+   * @return a new {@link RequestBody}
+   * @throws IOException if the value cannot be serialized
+   */
+  public static RequestBody write(ObjectMapper json, Object value) throws IOException {
+    ChunkedOutputStream out = new ChunkedOutputStream();
+    json.writeValue(out, value);
+    return new RequestBody(out.buffers(), out.length());
+  }
+
+  /**
+   * Wraps a range of already serialized JSON bytes. The bytes are not copied, so they must not be
+   * modified afterwards.
+   *
+   * @param bytes the serialized bytes
+   * @param offset the offset of the first byte in the body
+   * @param length the number of bytes in the body
+   * @return a new {@link RequestBody}
+   */
+  public static RequestBody of(byte[] bytes, int offset, int length) {
+    if (length == 0)
+      return new RequestBody(Collections.emptyList(), 0);
+
+    return new RequestBody(Collections.singletonList(ByteBuffer.wrap(bytes, offset, length)), length);
+  }
+
+  /**
+   * Concatenates the bodies provided, in order, into a single body. Chunks are shared rather than copied.
+   *
+   * @param parts the bodies to concatenate
+   * @return a new {@link RequestBody}
+   */
+  public static RequestBody concat(List<RequestBody> parts) {
+    List<ByteBuffer> buffers = new ArrayList<>();
+    long length = 0;
+
+    for (RequestBody part : parts) {
+      buffers.addAll(part.buffers);
+      length += part.length;
+    }
+
+    return new RequestBody(Collections.unmodifiableList(buffers), length);
+  }
+
+  /**
+   * @return the number of bytes in the body
+   */
+  public long length() {
+    return length;
+  }
+
+  /**
+   * Compares the serialized bytes of both bodies, regardless of how they are chunked.
+   */
+  @Override
+  public boolean equals(Object other) {
+    if (this == other) return true;
+    if (!(other instanceof RequestBody)) return false;
+
+    RequestBody that = (RequestBody) other;
+    if (length != that.length || hashCode() != that.hashCode()) return false;
+
+    int i = 0, j = 0;
+    ByteBuffer a = null, b = null;
+    for (long remaining = length; remaining > 0; remaining--) {
+      while (a == null || !a.hasRemaining()) a = buffers.get(i++).duplicate();
+      while (b == null || !b.hasRemaining()) b = that.buffers.get(j++).duplicate();
+      if (a.get() != b.get()) return false;
+    }
+    return true;
+  }
+
+  @Override
+  public int hashCode() {
+    int h = hash;
+    if (h == 0) {
+      h = 1;
+      for (ByteBuffer buffer : buffers) {
+        for (int i = buffer.position(); i < buffer.limit(); i++) {
+          h = 31 * h + buffer.get(i);
+        }
+      }
+      hash = h;
+    }
+    return h;
+  }
+
+  /**
+   * @return a {@link HttpRequest.BodyPublisher} publishing the serialized bytes
+   */
+  public HttpRequest.BodyPublisher publisher() {
+    return new Publisher();
+  }
+
+  private final class Publisher implements HttpRequest.BodyPublisher {
+    @Override
+    public long contentLength() {
+      return length;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super ByteBuffer> subscriber) {
+      BuffersSubscription subscription = new BuffersSubscription(subscriber, buffers);
+      subscriber.onSubscribe(subscription);
+      subscription.drain();
+    }
+  }
+
+  private static final class BuffersSubscription implements Flow.Subscription {
+    private final Flow.Subscriber<? super ByteBuffer> subscriber;
+    private final List<ByteBuffer> buffers;
+    private final AtomicLong demand = new AtomicLong();
+    private final AtomicInteger wip = new AtomicInteger();
+    private volatile boolean done = false;
+    private int index = 0;
+
+    private BuffersSubscription(Flow.Subscriber<? super ByteBuffer> subscriber, List<ByteBuffer> buffers) {
+      this.subscriber = subscriber;
+      this.buffers = buffers;
+    }
+
+    @Override
+    public void request(long n) {
+      if (n <= 0) {
+        done = true;
+        subscriber.onError(new IllegalArgumentException("non-positive subscription request: " + n));
+        return;
+      }
+
+      demand.getAndAccumulate(n, (current, more) -> current + more < 0 ? Long.MAX_VALUE : current + more);
+      drain();
+    }
+
+    @Override
+    public void cancel() {
+      done = true;
+    }
+
+    private void drain() {
+      if (wip.getAndIncrement() != 0) return;
+
+      do {
+        while (!done && index < buffers.size() && demand.get() > 0) {
+          demand.decrementAndGet();
+          // every subscription reads its own view of the shared chunks
+          subscriber.onNext(buffers.get(index++).duplicate());
+        }
+
+        if (!done && index == buffers.size()) {
+          done = true;
+          subscriber.onComplete();
+        }
+      } while (wip.decrementAndGet() != 0);
+    }
+  }
+
+  private static final class ChunkedOutputStream extends OutputStream {
+    private final List<ByteBuffer> chunks = new ArrayList<>();
+    private byte[] current;
+    private int position;
+    private long length;
+
+    @Override
+    public void write(int b) {
+      ensureCapacity(1);
+      current[position++] = (byte) b;
+      length += 1;
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int len) {
+      while (len > 0) {
+        ensureCapacity(len);
+        int count = Math.min(len, current.length - position);
+        System.arraycopy(bytes, offset, current, position, count);
+        position += count;
+        offset += count;
+        len -= count;
+        length += count;
+      }
+    }
+
+    private void ensureCapacity(int wanted) {
+      if (current != null && position < current.length) return;
+
+      finishChunk();
+      // grow chunks along with the body, so small queries stay small
+      int size = (int) Math.min(MAX_CHUNK_SIZE, Math.max(MIN_CHUNK_SIZE, Math.max(wanted, length)));
+      current = new byte[size];
+      position = 0;
+    }
+
+    private void finishChunk() {
+      if (current != null && position > 0) {
+        chunks.add(ByteBuffer.wrap(current, 0, position));
+      }
+      current = null;
+    }
+
+    List<ByteBuffer> buffers() {
+      finishChunk();
+      return Collections.unmodifiableList(chunks);
+    }
+
+    long length() {
+      return length;
+    }
+  }
+}
@@ -0,0 +1,149 @@
+package com.faunadb.common.http;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+
+/**
+ * A HTTP response body kept as the {@link ByteBuffer}s received from the network.
+ *
+ * <p>The body is neither copied into a single array nor decoded into a {@link String}. Instead,
+ * {@link #asInputStream()} exposes the received bytes so a JSON parser can decode them directly.</p>
+ *
+ * @see #handler()
+ */
+public final class ResponseBody {
+
+  private static final ResponseBody EMPTY = new ResponseBody(Collections.emptyList(), 0);
+
+  private final List<ByteBuffer> buffers;
+  private final long length;
+
+  private ResponseBody(List<ByteBuffer> buffers, long length) {
+    this.buffers = buffers;
+    this.length = length;
+  }
+
+  /**
+   * Returns a {@link HttpResponse.BodyHandler} that collects the response body as a {@link ResponseBody}.
+   *
+   * @return a new {@link HttpResponse.BodyHandler}
+   */
+  public static HttpResponse.BodyHandler<ResponseBody> handler() {
+    return responseInfo -> new Subscriber();
+  }
+
+  /**
+   * @return the number of bytes in the body
+   */
+  public long length() {
+    return length;
+  }
+
+  /**
+   * Returns a new {@link InputStream} reading the body bytes. Each call returns an independent stream.
+   *
+   * @return a new {@link InputStream}
+   */
+  public InputStream asInputStream() {
+    return new BuffersInputStream(buffers);
+  }
+
+  /**
+   * Decodes the body as an UTF-8 string. Meant for error messages and logging only.
+   */
+  @Override
+  public String toString() {
+    try {
+      return new String(asInputStream().readAllBytes(), StandardCharsets.UTF_8);
+    } catch (IOException ex) {
+      throw new UncheckedIOException(ex); // won't happen
+    }
+  }
+
+  private static final class Subscriber implements HttpResponse.BodySubscriber<ResponseBody> {
+    private final CompletableFuture<ResponseBody> body = new CompletableFuture<>();
+    private final List<ByteBuffer> received = new ArrayList<>();
+    private long length = 0;
+
+    @Override
+    public CompletionStage<ResponseBody> getBody() {
+      return body;
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+      subscription.request(Long.MAX_VALUE);
+    }
+
+    @Override
+    public void onNext(List<ByteBuffer> items) {
+      for (ByteBuffer item : items) {
+        if (item.hasRemaining()) {
+          received.add(item);
+          length += item.remaining();
+        }
+      }
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+      received.clear();
+      body.completeExceptionally(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+      body.complete(received.isEmpty() ? EMPTY : new ResponseBody(received, length));
+    }
+  }
+
+  private static final class BuffersInputStream extends InputStream {
+    private final List<ByteBuffer> buffers;
+    private int index = 0;
+    private ByteBuffer current;
+
+    private BuffersInputStream(List<ByteBuffer> buffers) {
+      this.buffers = buffers;
+      this.current = buffers.isEmpty() ? null : buffers.get(0).duplicate();
+    }
+
+    @Override
+    public int read() {
+      if (!advance()) return -1;
+      return current.get() & 0xff;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int len) {
+      if (len == 0) return 0;
+      if (!advance()) return -1;
+
+      int count = Math.min(len, current.remaining());
+      current.get(bytes, offset, count);
+      return count;
+    }
+
+    @Override
+    public int available() {
+      return current == null ? 0 : current.remaining();
+    }
+
+    private boolean advance() {
+      while (current != null && !current.hasRemaining()) {
+        index += 1;
+        current = index < buffers.size() ? buffers.get(index).duplicate() : null;
+      }
+      return current != null;
+    }
+  }
+}
@@ -1,5 +1,6 @@
 package com.faunadb.common.models.request;
 
+import com.faunadb.common.Deadline;
 
 import java.time.Duration;
 import java.util.HashMap;
@@ -23,6 +24,9 @@ public class RequestParameters {
     private final Optional<Duration> timeout;
     private final Optional<String> traceId;
     private final Map<String, String> tags;
+    private final boolean readOnly;
+    private final Optional<Deadline> deadline;
+    private final boolean retryable;
 
     /**
      * Constructs a {@link RequestParameters} instance from a provided timeout
@@ -40,6 +44,9 @@ public class RequestParameters {
         this.timeout = Optional.empty();
         this.traceId = Optional.empty();
         this.tags = new HashMap<>();
+        this.readOnly = false;
+        this.deadline = Optional.empty();
+        this.retryable = true;
     }
 
     /**
@@ -51,6 +58,20 @@ public class RequestParameters {
      * @throws IllegalArgumentException If the number of tags provided exceeds the maximum.
      */
     public RequestParameters(Optional<Duration> timeout, Optional<String> traceId, Map<String, String> tags) {
+        this(timeout, traceId, tags, false);
+    }
+
+    /**
+     * Constructs a {@link RequestParameters} instance, using the provided inputs.
+     * @param timeout  Timeout for the request
+     * @param traceId  A unique identifier for this query. Adheres to the
+     *                 [W3C Trace Context](https://w3c.github.io/trace-context) spec.
+     * @param tags     Key-value pair metadata to associate with this query.
+     * @param readOnly Whether the query only performs reads, so it may safely be sent more than once,
+     *                 for example by a {@link com.faunadb.common.HedgingPolicy}.
+     * @throws IllegalArgumentException If the number of tags provided exceeds the maximum.
+     */
+    public RequestParameters(Optional<Duration> timeout, Optional<String> traceId, Map<String, String> tags, boolean readOnly) {
 
         if (tags == null) {
             throw new IllegalArgumentException("Tags cannot be null. Consider passing an empty set instead");
@@ -62,6 +83,37 @@ public class RequestParameters {
         this.timeout = timeout;
         this.traceId = traceId;
         this.tags = new HashMap<>(getValidatedTags(tags));
+        this.readOnly = readOnly;
+        this.deadline = Optional.empty();
+        this.retryable = true;
+    }
+
+    private RequestParameters(RequestParameters parameters, Optional<Deadline> deadline, boolean retryable) {
+        this.timeout = parameters.timeout;
+        this.traceId = parameters.traceId;
+        this.tags = parameters.tags;
+        this.readOnly = parameters.readOnly;
+        this.deadline = deadline;
+        this.retryable = retryable;
+    }
+
+    /**
+     * Returns a copy of this {@link RequestParameters} instance with the provided deadline. The request
+     * times out when the deadline passes, and is cancelled along with the deadline.
+     * @param deadline Deadline for the request, possibly shared with other requests
+     * @return {@link RequestParameters}
+     */
+    public RequestParameters withDeadline(Deadline deadline) {
+        return new RequestParameters(this, Optional.of(deadline), retryable);
+    }
+
+    /**
+     * Returns a copy of this {@link RequestParameters} instance sent once, even if the connection has a
+     * {@link com.faunadb.common.RetryPolicy}, such as for callers retrying failed requests themselves.
+     * @return {@link RequestParameters}
+     */
+    public RequestParameters withoutRetries() {
+        return new RequestParameters(this, deadline, false);
     }
 
     /**
@@ -88,6 +140,30 @@ public class RequestParameters {
         return this.tags;
     }
 
+    /**
+     * Get the deadline associated with this request
+     * @return deadline
+     */
+    public Optional<Deadline> getDeadline() {
+        return this.deadline;
+    }
+
+    /**
+     * Whether the request only performs reads
+     * @return readOnly
+     */
+    public boolean isReadOnly() {
+        return this.readOnly;
+    }
+
+    /**
+     * Whether the request may be retried by the connection's {@link com.faunadb.common.RetryPolicy}
+     * @return retryable
+     */
+    public boolean isRetryable() {
+        return this.retryable;
+    }
+
     private Map<String, String> getValidatedTags(Map<String, String> tags) {
         tags.entrySet().stream().forEach(entry -> {
             validateKey(entry.getKey());
@@ -0,0 +1,179 @@
+package com.faunadb.common;
+
+import com.faunadb.common.CircuitBreaker.Circuit;
+import com.faunadb.common.CircuitBreaker.State;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class CircuitBreakerSpec {
+
+  private static final long MILLIS = 1_000_000;
+  private static final String ROOT = "https://db.fauna.com";
+
+  @Test
+  public void shouldOpenOnceTooManyRequestsFail() {
+    CircuitBreaker breaker = breaker(Duration.ofMinutes(1));
+    Circuit circuit = breaker.circuit(ROOT);
+
+    // not enough requests yet
+    succeed(circuit);
+    fail(circuit);
+    fail(circuit);
+    assertEquals(State.CLOSED, circuit.getState());
+
+    succeed(circuit);
+    assertEquals(State.OPEN, circuit.getState());
+    assertFalse(circuit.isAvailable());
+    assertEquals(1, breaker.getOpenCircuits());
+    assertRejected(circuit);
+  }
+
+  @Test
+  public void shouldOpenOnceTooManyRequestsAreSlow() {
+    CircuitBreaker breaker = CircuitBreaker.builder()
+      .withWindow(4, 4)
+      .withSlowRequestRateThreshold(0.5, Duration.ofMillis(100))
+      .build();
+    Circuit circuit = breaker.circuit(ROOT);
+
+    for (int i = 0; i < 2; i++) {
+      circuit.acquire();
+      circuit.onResult(MILLIS, false);
+    }
+    for (int i = 0; i < 2; i++) {
+      circuit.acquire();
+      circuit.onResult(200 * MILLIS, false);
+    }
+
+    assertEquals(State.OPEN, circuit.getState());
+  }
+
+  @Test
+  public void shouldForgetOutcomesFallingOutOfTheWindow() {
+    Circuit circuit = breaker(Duration.ofMinutes(1)).circuit(ROOT);
+
+    fail(circuit);
+    for (int i = 0; i < 4; i++)
+      succeed(circuit);
+
+    fail(circuit);
+    assertEquals(State.CLOSED, circuit.getState());
+  }
+
+  @Test
+  public void shouldCloseOnceTrialRequestsSucceed() throws Exception {
+    Circuit circuit = breaker(Duration.ofMillis(10)).circuit(ROOT);
+    open(circuit);
+
+    Thread.sleep(20);
+    assertTrue(circuit.isAvailable());
+
+    // two trial requests, and no more until they complete
+    circuit.acquire();
+    circuit.acquire();
+    assertEquals(State.HALF_OPEN, circuit.getState());
+    assertRejected(circuit);
+
+    circuit.onResult(MILLIS, false);
+    circuit.onResult(MILLIS, false);
+    assertEquals(State.CLOSED, circuit.getState());
+  }
+
+  @Test
+  public void shouldOpenAgainIfATrialRequestFails() throws Exception {
+    Circuit circuit = breaker(Duration.ofMillis(10)).circuit(ROOT);
+    open(circuit);
+
+    Thread.sleep(20);
+    circuit.acquire();
+    circuit.onResult(MILLIS, true);
+
+    assertEquals(State.OPEN, circuit.getState());
+  }
+
+  @Test
+  public void shouldReplaceAbandonedTrialRequests() throws Exception {
+    Circuit circuit = breaker(Duration.ofMillis(10)).circuit(ROOT);
+    open(circuit);
+
+    Thread.sleep(20);
+    circuit.acquire();
+    circuit.acquire();
+    circuit.release();
+
+    circuit.acquire();
+    assertEquals(State.HALF_OPEN, circuit.getState());
+  }
+
+  @Test
+  public void shouldShareTheCircuitOfAnEndpoint() {
+    CircuitBreaker breaker = breaker(Duration.ofMinutes(1));
+
+    for (int i = 0; i < 100; i++)
+      new EndpointPool(List.of(url(ROOT)), Duration.ofSeconds(1), root -> null, breaker);
+
+    assertSame(breaker.circuit(ROOT), breaker.circuit(ROOT));
+    assertNotSame(breaker.circuit(ROOT), breaker.circuit("https://other.fauna.com"));
+
+    open(breaker.circuit(ROOT));
+    assertEquals(1, breaker.getOpenCircuits());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldRejectInvalidWindows() {
+    CircuitBreaker.builder().withWindow(10, 20).build();
+  }
+
+  private static CircuitBreaker breaker(Duration openDuration) {
+    return CircuitBreaker.builder()
+      .withWindow(4, 4)
+      .withFailureRateThreshold(0.5)
+      .withOpenDuration(openDuration)
+      .withTrialRequests(2)
+      .build();
+  }
+
+  private static void succeed(Circuit circuit) {
+    circuit.acquire();
+    circuit.onResult(MILLIS, false);
+  }
+
+  private static void fail(Circuit circuit) {
+    circuit.acquire();
+    circuit.onResult(MILLIS, true);
+  }
+
+  private static void open(Circuit circuit) {
+    while (circuit.getState() != State.OPEN)
+      fail(circuit);
+  }
+
+  private static void assertRejected(Circuit circuit) {
+    try {
+      circuit.acquire();
+      Assert.fail("expected the circuit to reject the request");
+    } catch (RejectedExecutionException ex) {
+      // expected
+    }
+  }
+
+  private static URL url(String spec) {
+    try {
+      return new URL(spec);
+    } catch (MalformedURLException ex) {
+      throw new IllegalArgumentException(ex);
+    }
+  }
+}
@@ -0,0 +1,149 @@
+package com.faunadb.common;
+
+import com.faunadb.common.ConcurrencyLimiter.Outcome;
+import com.faunadb.common.ConcurrencyLimiter.Permit;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ConcurrencyLimiterSpec {
+
+  @Test
+  public void shouldGrowTheLimitWhileItIsUsedAndLatencyHolds() throws Exception {
+    ConcurrencyLimiter limiter = ConcurrencyLimiter.builder()
+      .withInitialLimit(2)
+      .build();
+
+    // a slow first sample sets the usual latency, so the following ones are never slower than usual
+    Permit first = limiter.acquire().get();
+    Thread.sleep(20);
+    first.release(Outcome.SUCCESS);
+
+    for (int round = 0; round < 10; round++) {
+      List<Permit> permits = new ArrayList<>();
+      for (int i = 0; i < limiter.getLimit(); i++)
+        permits.add(limiter.acquire().get());
+
+      permits.forEach(permit -> permit.release(Outcome.SUCCESS));
+    }
+
+    assertTrue("limit should grow, was " + limiter.getLimit(), limiter.getLimit() > 2);
+    assertEquals(0, limiter.getInFlight());
+  }
+
+  @Test
+  public void shouldCutTheLimitOnDroppedRequests() throws Exception {
+    ConcurrencyLimiter limiter = ConcurrencyLimiter.builder()
+      .withInitialLimit(10)
+      .withLimitBounds(3, 100)
+      .withBackoffRatio(0.5)
+      .build();
+
+    limiter.acquire().get().release(Outcome.DROPPED);
+    assertEquals(5, limiter.getLimit());
+
+    limiter.acquire().get().release(Outcome.DROPPED);
+    assertEquals(3, limiter.getLimit());
+
+    limiter.acquire().get().release(Outcome.IGNORED);
+    assertEquals(3, limiter.getLimit());
+  }
+
+  @Test
+  public void shouldReleasePermitsOnlyOnce() throws Exception {
+    ConcurrencyLimiter limiter = ConcurrencyLimiter.builder()
+      .withInitialLimit(2)
+      .build();
+
+    Permit permit = limiter.acquire().get();
+    limiter.acquire().get();
+    permit.release(Outcome.IGNORED);
+    permit.release(Outcome.IGNORED);
+
+    assertEquals(1, limiter.getInFlight());
+  }
+
+  @Test
+  public void shouldRejectRequestsBeyondTheQueueSize() throws Exception {
+    ConcurrencyLimiter limiter = ConcurrencyLimiter.builder()
+      .withInitialLimit(1)
+      .withMaxQueueSize(1)
+      .build();
+
+    Permit permit = limiter.acquire().get();
+    CompletableFuture<Permit> queued = limiter.acquire();
+    CompletableFuture<Permit> rejected = limiter.acquire();
+
+    assertEquals(1, limiter.getQueueSize());
+    assertCause(RejectedExecutionException.class, rejected);
+
+    permit.release(Outcome.IGNORED);
+    queued.get().release(Outcome.IGNORED);
+    assertEquals(0, limiter.getInFlight());
+  }
+
+  @Test
+  public void shouldTimeOutRequestsWaitingTooLong() throws Exception {
+    ConcurrencyLimiter limiter = ConcurrencyLimiter.builder()
+      .withInitialLimit(1)
+      .withMaxQueueWait(Duration.ofMillis(50))
+      .build();
+
+    Permit permit = limiter.acquire().get();
+    CompletableFuture<Permit> queued = limiter.acquire();
+
+    assertCause(TimeoutException.class, queued);
+    assertEquals(0, limiter.getQueueSize());
+
+    // the permit isn't handed over to the timed out request
+    permit.release(Outcome.IGNORED);
+    assertEquals(0, limiter.getInFlight());
+  }
+
+  @Test
+  public void shouldSkipCancelledWaitersWhenDraining() throws Exception {
+    ConcurrencyLimiter limiter = ConcurrencyLimiter.builder()
+      .withInitialLimit(1)
+      .build();
+
+    Permit permit = limiter.acquire().get();
+    CompletableFuture<Permit> cancelled = limiter.acquire();
+    CompletableFuture<Permit> waiting = limiter.acquire();
+
+    cancelled.cancel(true);
+    assertEquals(1, limiter.getQueueSize());
+
+    permit.release(Outcome.IGNORED);
+
+    assertTrue(waiting.isDone());
+    assertEquals(1, limiter.getInFlight());
+    assertEquals(0, limiter.getQueueSize());
+
+    waiting.get().release(Outcome.IGNORED);
+    assertEquals(0, limiter.getInFlight());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldRejectInvalidBounds() {
+    ConcurrencyLimiter.builder().withLimitBounds(10, 5).build();
+  }
+
+  private static void assertCause(Class<? extends Throwable> expected, CompletableFuture<?> future) throws InterruptedException {
+    try {
+      future.get();
+      fail("expected " + expected.getName());
+    } catch (ExecutionException ex) {
+      assertTrue("unexpected " + ex.getCause(), expected.isInstance(ex.getCause()));
+    }
+  }
+}
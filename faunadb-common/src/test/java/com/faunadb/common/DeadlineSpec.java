@@ -0,0 +1,120 @@
+package com.faunadb.common;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.faunadb.common.models.request.RequestParameters;
+import org.junit.Test;
+
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class DeadlineSpec {
+
+  private final ObjectMapper json = new ObjectMapper();
+
+  @Test
+  public void shouldCountDownToTheDeadline() throws Exception {
+    Deadline deadline = Deadline.after(Duration.ofMillis(50));
+
+    assertFalse(deadline.isExpired());
+    assertTrue(deadline.remaining().compareTo(Duration.ofMillis(50)) <= 0);
+
+    Thread.sleep(60);
+    assertTrue(deadline.isExpired());
+    assertEquals(Duration.ZERO, deadline.remaining());
+  }
+
+  @Test
+  public void shouldCancelPendingAndLaterRequests() {
+    Deadline deadline = Deadline.after(Duration.ofMinutes(1));
+    CompletableFuture<Void> pending = new CompletableFuture<>();
+    CompletableFuture<Void> completed = new CompletableFuture<>();
+    deadline.track(pending);
+    deadline.track(completed);
+    completed.complete(null);
+
+    deadline.cancel();
+    assertTrue(deadline.isCancelled());
+    assertTrue(pending.isCancelled());
+    assertFalse(completed.isCancelled());
+
+    CompletableFuture<Void> later = new CompletableFuture<>();
+    deadline.track(later);
+    assertTrue(later.isCancelled());
+  }
+
+  @Test
+  public void shouldDropThePendingRetryOnceCancelled() throws Exception {
+    AtomicInteger requests = new AtomicInteger();
+
+    try (LocalServer server = new LocalServer(exchange -> {
+      requests.incrementAndGet();
+      exchange.getResponseHeaders().add("Retry-After", "1");
+      LocalServer.respond(exchange, 429, "{}");
+    })) {
+      Connection connection = Connection.builder()
+        .withFaunaRoot(server.root())
+        .withCheckNewDriverVersion(false)
+        .withRetryPolicy(RetryPolicy.builder().withMaxAttempts(5).build())
+        .build();
+
+      Deadline deadline = Deadline.after(Duration.ofSeconds(30));
+      CompletableFuture<HttpResponse<String>> response = connection.post("/", json.createObjectNode(), parameters(deadline));
+
+      // lets the response arrive, so the retry is waiting for its delay
+      awaitRequests(requests, 1);
+      Thread.sleep(200);
+      deadline.cancel();
+      assertTrue(response.isCancelled());
+
+      // the retry was due after one second
+      Thread.sleep(1500);
+      assertEquals(1, requests.get());
+    }
+  }
+
+  @Test
+  public void shouldDropTheDelayedHedgeOnceCancelled() throws Exception {
+    AtomicInteger requests = new AtomicInteger();
+
+    try (LocalServer server = new LocalServer(exchange -> {
+      requests.incrementAndGet();
+      Thread.sleep(1000);
+      LocalServer.respond(exchange, 200, "{}");
+    })) {
+      Connection connection = Connection.builder()
+        .withFaunaRoot(server.root())
+        .withCheckNewDriverVersion(false)
+        .withHedgingPolicy(HedgingPolicy.builder().withDelay(Duration.ofMillis(300)).build())
+        .build();
+
+      Deadline deadline = Deadline.after(Duration.ofSeconds(30));
+      CompletableFuture<HttpResponse<String>> response = connection.post("/", json.createObjectNode(), parameters(deadline));
+
+      awaitRequests(requests, 1);
+      deadline.cancel();
+      assertTrue(response.isCancelled());
+
+      // the hedge was due after 300 milliseconds
+      Thread.sleep(600);
+      assertEquals(1, requests.get());
+    }
+  }
+
+  private static RequestParameters parameters(Deadline deadline) {
+    return new RequestParameters(Optional.empty(), Optional.empty(), Map.of(), true).withDeadline(deadline);
+  }
+
+  private static void awaitRequests(AtomicInteger requests, int expected) throws InterruptedException {
+    for (int i = 0; i < 500 && requests.get() < expected; i++)
+      Thread.sleep(10);
+    assertEquals(expected, requests.get());
+  }
+}
@@ -0,0 +1,105 @@
+package com.faunadb.common;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.Test;
+
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class DecodingStageSpec {
+
+  @Test
+  public void shouldDecodeSmallResponsesInline() throws Exception {
+    DecodingStage stage = DecodingStage.builder().withInlineThreshold(100).build();
+
+    CompletableFuture<Thread> decoded = stage.decode(100, Thread::currentThread);
+
+    assertTrue(decoded.isDone());
+    assertSame(Thread.currentThread(), decoded.get());
+  }
+
+  @Test
+  public void shouldDecodeLargeResponsesOnItsThreads() throws Exception {
+    DecodingStage stage = DecodingStage.builder().withInlineThreshold(100).build();
+
+    Thread thread = stage.decode(101, Thread::currentThread).get();
+
+    assertTrue(thread.getName().startsWith("fauna-decoder-"));
+    assertTrue(thread.isDaemon());
+  }
+
+  @Test
+  public void shouldDecodeOnTheCallerOnceTheQueueIsFull() throws Exception {
+    DecodingStage stage = DecodingStage.builder()
+      .withThreads(1)
+      .withMaxQueueSize(1)
+      .withInlineThreshold(0)
+      .build();
+
+    CountDownLatch release = new CountDownLatch(1);
+    CompletableFuture<Thread> busy = stage.decode(1, () -> {
+      awaitQuietly(release);
+      return Thread.currentThread();
+    });
+
+    // the first response goes straight to the new thread, the second one fills the queue
+    CompletableFuture<Thread> queued = stage.decode(1, Thread::currentThread);
+    CompletableFuture<Thread> overflow = stage.decode(1, Thread::currentThread);
+
+    assertSame(Thread.currentThread(), overflow.get());
+    assertFalse(queued.isDone());
+
+    release.countDown();
+    assertSame(busy.get(), queued.get());
+  }
+
+  @Test
+  public void shouldFailWithTheDecoderFailure() throws Exception {
+    DecodingStage stage = DecodingStage.builder().withInlineThreshold(100).build();
+    IllegalStateException failure = new IllegalStateException("malformed");
+
+    for (long size : new long[] { 1, 1000 }) {
+      try {
+        stage.decode(size, () -> { throw failure; }).get();
+        fail("expected the decoder failure");
+      } catch (ExecutionException ex) {
+        assertSame(failure, ex.getCause());
+      }
+    }
+  }
+
+  @Test
+  public void shouldRegisterItsMetrics() throws Exception {
+    DecodingStage stage = DecodingStage.builder().withInlineThreshold(100).build();
+    MetricRegistry registry = new MetricRegistry();
+    stage.registerMetrics(registry, "fauna-decoding");
+
+    stage.decode(1, () -> 1).get();
+    stage.decode(1000, () -> 1).get();
+
+    assertEquals(Set.of("fauna-decoding-decode", "fauna-decoding-inline", "fauna-decoding-queue-wait"), registry.getNames());
+    assertEquals(1, registry.counter("fauna-decoding-inline").getCount());
+    assertEquals(2, registry.timer("fauna-decoding-decode").getCount());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldRejectInvalidThreads() {
+    DecodingStage.builder().withThreads(0).build();
+  }
+
+  private static void awaitQuietly(CountDownLatch latch) {
+    try {
+      latch.await();
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
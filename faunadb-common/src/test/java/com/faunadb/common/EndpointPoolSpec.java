@@ -0,0 +1,154 @@
+package com.faunadb.common;
+
+import org.junit.Test;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+import static org.junit.Assert.assertEquals;
+
+public class EndpointPoolSpec {
+
+  private static final long MILLIS = 1_000_000;
+
+  private final URL first = url("http://first.test");
+  private final URL second = url("http://second.test");
+
+  @Test
+  public void shouldTryUntestedEndpointsFirst() {
+    EndpointPool pool = pool(List.of(first, second), root -> CompletableFuture.completedFuture(true));
+
+    EndpointPool.Endpoint endpoint = pool.acquire();
+    assertEquals(first, endpoint.root);
+    pool.complete(endpoint, 5 * MILLIS, false);
+
+    assertEquals(second, pool.acquire().root);
+  }
+
+  @Test
+  public void shouldPreferTheFastestEndpoint() {
+    EndpointPool pool = pool(List.of(first, second), root -> CompletableFuture.completedFuture(true));
+
+    pool.complete(pool.acquire(), 10 * MILLIS, false);
+    pool.complete(pool.acquire(), 2 * MILLIS, false);
+
+    for (int i = 0; i < 5; i++) {
+      EndpointPool.Endpoint endpoint = pool.acquire();
+      assertEquals(second, endpoint.root);
+      pool.complete(endpoint, 2 * MILLIS, false);
+    }
+  }
+
+  @Test
+  public void shouldWeighLatenciesByRequestsInFlight() {
+    EndpointPool pool = pool(List.of(first, second), root -> CompletableFuture.completedFuture(true));
+
+    pool.complete(pool.acquire(), 2 * MILLIS, false);
+    pool.complete(pool.acquire(), 3 * MILLIS, false);
+
+    assertEquals(first, pool.acquire().root);
+    assertEquals(second, pool.acquire().root);
+  }
+
+  @Test
+  public void shouldMoveAwayFromFailingEndpoints() {
+    EndpointPool pool = pool(List.of(first, second), root -> CompletableFuture.completedFuture(true));
+
+    pool.complete(pool.acquire(), 2 * MILLIS, false);
+    pool.complete(pool.acquire(), 3 * MILLIS, false);
+
+    EndpointPool.Endpoint failing = pool.acquire();
+    assertEquals(first, failing.root);
+    pool.complete(failing, 2 * MILLIS, true);
+
+    assertEquals(second, pool.acquire().root);
+  }
+
+  @Test
+  public void shouldEjectAndProbeEndpointsFailingRepeatedly() throws Exception {
+    AtomicBoolean recovered = new AtomicBoolean(false);
+    EndpointPool pool = pool(List.of(first, second), root -> CompletableFuture.completedFuture(recovered.get()));
+
+    // the second endpoint is slow enough for the first one to be preferred despite its failures
+    pool.complete(pool.acquire(), MILLIS, false);
+    pool.complete(pool.acquire(), 100_000 * MILLIS, false);
+
+    for (int i = 0; i < 4; i++) {
+      EndpointPool.Endpoint endpoint = pool.acquire();
+      assertEquals(first, endpoint.root);
+      pool.complete(endpoint, MILLIS, true);
+    }
+
+    assertEquals(List.of(second), pool.healthyRoots());
+    assertEquals(second, pool.acquire().root);
+
+    recovered.set(true);
+    for (int i = 0; i < 100 && pool.healthyCount() < 2; i++)
+      Thread.sleep(10);
+
+    assertEquals(List.of(first, second), pool.healthyRoots());
+  }
+
+  @Test
+  public void shouldNeverEjectTheLastHealthyEndpoint() {
+    EndpointPool pool = pool(List.of(first), root -> CompletableFuture.completedFuture(false));
+
+    for (int i = 0; i < 10; i++)
+      pool.complete(pool.acquire(), MILLIS, true);
+
+    assertEquals(List.of(first), pool.healthyRoots());
+  }
+
+  @Test
+  public void shouldKeepConnectionsForPeaksOfRequests() {
+    EndpointPool pool = pool(List.of(first), root -> CompletableFuture.completedFuture(true));
+
+    EndpointPool.Endpoint one = pool.acquire();
+    EndpointPool.Endpoint two = pool.acquire();
+    EndpointPool.Endpoint three = pool.acquire();
+    pool.complete(one, MILLIS, false);
+    pool.complete(two, MILLIS, false);
+
+    // one request is still in flight, so two of the three connections are idle
+    assertEquals(Map.of(first, 2), pool.idleConnections(1, Duration.ofMinutes(1).toNanos()));
+
+    pool.abandon(three);
+    assertEquals(Map.of(first, 3), pool.idleConnections(1, Duration.ofMinutes(1).toNanos()));
+  }
+
+  @Test
+  public void shouldForgetPeaksAfterTheIdleTimeout() {
+    EndpointPool pool = pool(List.of(first), root -> CompletableFuture.completedFuture(true));
+
+    EndpointPool.Endpoint one = pool.acquire();
+    EndpointPool.Endpoint two = pool.acquire();
+    pool.complete(one, MILLIS, false);
+    pool.complete(two, MILLIS, false);
+
+    assertEquals(Map.of(first, 2), pool.idleConnections(1, 0));
+    assertEquals(Map.of(first, 1), pool.idleConnections(1, 0));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldRequireAnEndpoint() {
+    pool(List.of(), root -> CompletableFuture.completedFuture(true));
+  }
+
+  private static EndpointPool pool(List<URL> roots, Function<URL, CompletableFuture<Boolean>> probe) {
+    return new EndpointPool(roots, Duration.ofMillis(10), probe, null);
+  }
+
+  private static URL url(String spec) {
+    try {
+      return new URL(spec);
+    } catch (MalformedURLException ex) {
+      throw new IllegalArgumentException(ex);
+    }
+  }
+}
@@ -0,0 +1,108 @@
+package com.faunadb.common;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.faunadb.common.models.request.RequestParameters;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class HedgingPolicySpec {
+
+  private static final long MILLIS = 1_000_000;
+
+  @Test
+  public void shouldDeriveTheDelayOnceEnoughLatenciesAreRecorded() {
+    HedgingPolicy policy = HedgingPolicy.builder()
+      .withPercentileDelay(0.5, Duration.ZERO)
+      .build();
+
+    for (int i = 1; i < 128; i++) {
+      policy.onResponse(i * MILLIS, false);
+      assertEquals(Optional.empty(), policy.getDelay());
+    }
+
+    policy.onResponse(128 * MILLIS, false);
+    assertEquals(Optional.of(Duration.ofMillis(64)), policy.getDelay());
+  }
+
+  @Test
+  public void shouldNotHedgeSoonerThanTheMinimumDelay() {
+    HedgingPolicy policy = HedgingPolicy.builder()
+      .withPercentileDelay(0.95, Duration.ofMillis(50))
+      .build();
+
+    for (int i = 0; i < 128; i++)
+      policy.onResponse(MILLIS, false);
+
+    assertEquals(Optional.of(Duration.ofMillis(50)), policy.getDelay());
+  }
+
+  @Test
+  public void shouldUseTheFixedDelay() {
+    HedgingPolicy policy = HedgingPolicy.builder()
+      .withDelay(Duration.ofMillis(20))
+      .build();
+
+    assertEquals(Optional.of(Duration.ofMillis(20)), policy.getDelay());
+
+    for (int i = 0; i < 128; i++)
+      policy.onResponse(i * MILLIS, false);
+
+    assertEquals(Optional.of(Duration.ofMillis(20)), policy.getDelay());
+  }
+
+  @Test
+  public void shouldLimitHedgesToTheBudget() {
+    HedgingPolicy policy = HedgingPolicy.builder()
+      .withBudget(0.5, 1)
+      .build();
+
+    assertTrue(policy.tryHedge());
+    assertFalse(policy.tryHedge());
+
+    policy.onRequest();
+    policy.onRequest();
+    assertTrue(policy.tryHedge());
+  }
+
+  @Test
+  public void shouldRecordTheLatenciesOfRequestsNotHedgedYet() throws Exception {
+    HedgingPolicy policy = HedgingPolicy.builder().build();
+    ObjectMapper json = new ObjectMapper();
+
+    try (LocalServer server = new LocalServer(exchange -> LocalServer.respond(exchange, 200, "{}"))) {
+      Connection connection = Connection.builder()
+        .withFaunaRoot(server.root())
+        .withCheckNewDriverVersion(false)
+        .withHedgingPolicy(policy)
+        .build();
+
+      RequestParameters writes = new RequestParameters(Optional.empty(), Optional.empty(), Map.of());
+      for (int i = 0; i < 128; i++)
+        connection.post("/", json.createObjectNode(), writes).get();
+
+      assertEquals(Optional.empty(), policy.getDelay());
+
+      RequestParameters reads = new RequestParameters(Optional.empty(), Optional.empty(), Map.of(), true);
+      for (int i = 0; i < 128; i++)
+        connection.post("/", json.createObjectNode(), reads).get();
+
+      // the latency is recorded once the response is handed over
+      for (int i = 0; i < 100 && policy.getDelay().isEmpty(); i++)
+        Thread.sleep(10);
+
+      assertTrue(policy.getDelay().isPresent());
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldRejectInvalidPercentiles() {
+    HedgingPolicy.builder().withPercentileDelay(1, Duration.ZERO).build();
+  }
+}
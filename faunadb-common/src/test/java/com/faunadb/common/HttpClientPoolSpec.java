@@ -0,0 +1,108 @@
+package com.faunadb.common;
+
+import org.junit.Test;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class HttpClientPoolSpec {
+
+  private final HttpClient first = HttpClient.newHttpClient();
+  private final AtomicInteger created = new AtomicInteger();
+
+  @Test
+  public void shouldFillAClientBeforeSpillingOver() {
+    HttpClientPool pool = new HttpClientPool(first, this::newClient, 2, 4, Duration.ofMinutes(1));
+
+    assertSame(first, pool.acquire().client);
+    assertSame(first, pool.acquire().client);
+    assertNotSame(first, pool.acquire().client);
+
+    assertEquals(3, pool.getStreams());
+    assertEquals(2, pool.getConnections());
+  }
+
+  @Test
+  public void shouldOversubscribeTheLeastBusyClientPastTheMaxClients() {
+    HttpClientPool pool = new HttpClientPool(first, this::newClient, 1, 2, Duration.ofMinutes(1));
+
+    pool.acquire();
+    HttpClientPool.Lease second = pool.acquire();
+    assertNotSame(first, second.client);
+
+    // both clients are full, so the least busy one takes the request
+    assertSame(first, pool.acquire().client);
+    assertSame(second.client, pool.acquire().client);
+    assertSame(first, pool.acquire().client);
+
+    assertEquals(1, created.get());
+    assertEquals(2, pool.getConnections());
+  }
+
+  @Test
+  public void shouldKeepAdditionalClientsForTheIdleTimeout() {
+    HttpClientPool pool = new HttpClientPool(first, this::newClient, 1, 4, Duration.ofMinutes(1));
+
+    for (int round = 0; round < 10; round++) {
+      HttpClientPool.Lease one = pool.acquire();
+      HttpClientPool.Lease two = pool.acquire();
+      HttpClientPool.Lease three = pool.acquire();
+      assertEquals(3, pool.getConnections());
+
+      pool.release(three);
+      pool.release(two);
+      pool.release(one);
+      assertEquals(3, pool.getConnections());
+      assertEquals(0, pool.getStreams());
+    }
+
+    // each burst reuses the clients of the previous one
+    assertEquals(2, created.get());
+    assertSame(first, pool.acquire().client);
+  }
+
+  @Test
+  public void shouldDropAdditionalClientsOnceIdle() throws Exception {
+    HttpClientPool pool = new HttpClientPool(first, this::newClient, 1, 4, Duration.ofMillis(10));
+
+    HttpClientPool.Lease one = pool.acquire();
+    HttpClientPool.Lease two = pool.acquire();
+    HttpClientPool.Lease three = pool.acquire();
+
+    pool.release(three);
+    pool.release(two);
+    assertEquals(3, pool.getConnections());
+
+    Thread.sleep(20);
+
+    pool.release(one);
+    assertEquals(1, pool.getConnections());
+    assertEquals(0, pool.getStreams());
+    assertSame(first, pool.acquire().client);
+  }
+
+  @Test
+  public void shouldOversubscribeWithoutAFactory() {
+    HttpClientPool pool = new HttpClientPool(first, null, 1, 4, Duration.ofMinutes(1));
+
+    assertSame(first, pool.acquire().client);
+    assertSame(first, pool.acquire().client);
+    assertEquals(1, pool.getConnections());
+    assertEquals(2, pool.getStreams());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldRejectInvalidMaxClients() {
+    new HttpClientPool(first, this::newClient, 10, 0, Duration.ofMinutes(1));
+  }
+
+  private HttpClient newClient() {
+    created.incrementAndGet();
+    return HttpClient.newHttpClient();
+  }
+}
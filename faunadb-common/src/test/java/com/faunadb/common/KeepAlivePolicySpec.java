@@ -0,0 +1,76 @@
+package com.faunadb.common;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class KeepAlivePolicySpec {
+
+  @Test
+  public void shouldPingTheEndpointAtEachInterval() throws Exception {
+    AtomicInteger pings = new AtomicInteger();
+
+    try (LocalServer server = new LocalServer(exchange -> {
+      pings.incrementAndGet();
+      LocalServer.respond(exchange, 200, "{}");
+    })) {
+      MetricRegistry registry = new MetricRegistry();
+      Connection connection = Connection.builder()
+        .withFaunaRoot(server.root())
+        .withCheckNewDriverVersion(false)
+        .withMetrics(registry)
+        .withKeepAlivePolicy(KeepAlivePolicy.builder().withInterval(Duration.ofMillis(50)).build())
+        .build();
+
+      for (int i = 0; i < 200 && pings.get() < 3; i++)
+        Thread.sleep(10);
+
+      assertTrue(pings.get() >= 3);
+      assertTrue(registry.meter("fauna-keepalive-pings").getCount() >= 3);
+
+      // the pings stop once the connection is no longer in use, so it must be reachable up to here
+      assertSame(registry, connection.getMetricRegistry());
+    }
+  }
+
+  @Test
+  public void shouldDefaultTheJdkKeepAliveTimeoutUnlessSet() throws Exception {
+    String timeout = System.clearProperty("jdk.httpclient.keepalive.timeout");
+    try {
+      newConnection();
+      assertEquals("4", System.getProperty("jdk.httpclient.keepalive.timeout"));
+
+      System.setProperty("jdk.httpclient.keepalive.timeout", "30");
+      newConnection();
+      assertEquals("30", System.getProperty("jdk.httpclient.keepalive.timeout"));
+    } finally {
+      if (timeout != null)
+        System.setProperty("jdk.httpclient.keepalive.timeout", timeout);
+      else
+        System.clearProperty("jdk.httpclient.keepalive.timeout");
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldRejectInvalidMinConnections() {
+    KeepAlivePolicy.builder().withMinConnections(-1).build();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldRejectInvalidIntervals() {
+    KeepAlivePolicy.builder().withInterval(Duration.ZERO).build();
+  }
+
+  private static Connection newConnection() throws Exception {
+    return Connection.builder()
+      .withFaunaRoot("http://127.0.0.1:8443")
+      .withCheckNewDriverVersion(false)
+      .build();
+  }
+}
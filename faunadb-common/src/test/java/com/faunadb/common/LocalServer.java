@@ -0,0 +1,59 @@
+package com.faunadb.common;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * A local HTTP server answering the requests of the specs, one thread per exchange.
+ */
+final class LocalServer implements AutoCloseable {
+
+  interface Handler {
+    void handle(HttpExchange exchange) throws Exception;
+  }
+
+  private final HttpServer server;
+  private final ExecutorService executor = Executors.newCachedThreadPool();
+
+  LocalServer(Handler handler) throws IOException {
+    server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    server.createContext("/", exchange -> {
+      try {
+        exchange.getRequestBody().readAllBytes();
+        handler.handle(exchange);
+      } catch (Exception ex) {
+        // the client went away
+      } finally {
+        exchange.close();
+      }
+    });
+    server.setExecutor(executor);
+    server.start();
+  }
+
+  String root() {
+    return "http://127.0.0.1:" + server.getAddress().getPort();
+  }
+
+  static void respond(HttpExchange exchange, int status, String body) throws IOException {
+    byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().add("Content-Type", "application/json");
+    exchange.sendResponseHeaders(status, bytes.length);
+    try (OutputStream out = exchange.getResponseBody()) {
+      out.write(bytes);
+    }
+  }
+
+  @Override
+  public void close() {
+    server.stop(0);
+    executor.shutdownNow();
+  }
+}
@@ -0,0 +1,104 @@
+package com.faunadb.common;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RetryPolicySpec {
+
+  private static final Optional<Duration> NO_RETRY_AFTER = Optional.empty();
+
+  @Test
+  public void shouldRetryContentionAndOverload() {
+    RetryPolicy policy = RetryPolicy.builder().build();
+
+    assertTrue(policy.retryDelay(1, Optional.of(409), null, NO_RETRY_AFTER, false).isPresent());
+    assertTrue(policy.retryDelay(1, Optional.of(429), null, NO_RETRY_AFTER, false).isPresent());
+    assertFalse(policy.retryDelay(1, Optional.of(400), null, NO_RETRY_AFTER, true).isPresent());
+    assertFalse(policy.retryDelay(1, Optional.of(500), null, NO_RETRY_AFTER, true).isPresent());
+  }
+
+  @Test
+  public void shouldRetryUnavailableReadOnlyRequestsOnly() {
+    RetryPolicy policy = RetryPolicy.builder().build();
+
+    assertTrue(policy.retryDelay(1, Optional.of(503), null, NO_RETRY_AFTER, true).isPresent());
+    assertFalse(policy.retryDelay(1, Optional.of(503), null, NO_RETRY_AFTER, false).isPresent());
+  }
+
+  @Test
+  public void shouldRetryRequestsThatNeverReachedTheServer() {
+    RetryPolicy policy = RetryPolicy.builder().build();
+
+    assertTrue(policy.retryDelay(1, Optional.empty(), new ConnectException("refused"), NO_RETRY_AFTER, false).isPresent());
+    assertTrue(policy.retryDelay(1, Optional.empty(), new CompletionException(new ConnectException("refused")), NO_RETRY_AFTER, false).isPresent());
+    assertFalse(policy.retryDelay(1, Optional.empty(), new IOException("reset"), NO_RETRY_AFTER, false).isPresent());
+  }
+
+  @Test
+  public void shouldStopAfterMaxAttempts() {
+    RetryPolicy policy = RetryPolicy.builder().withMaxAttempts(3).build();
+
+    assertTrue(policy.retryDelay(1, Optional.of(409), null, NO_RETRY_AFTER, false).isPresent());
+    assertTrue(policy.retryDelay(2, Optional.of(409), null, NO_RETRY_AFTER, false).isPresent());
+    assertFalse(policy.retryDelay(3, Optional.of(409), null, NO_RETRY_AFTER, false).isPresent());
+  }
+
+  @Test
+  public void shouldBoundBackoffDelays() {
+    RetryPolicy policy = RetryPolicy.builder()
+      .withMaxAttempts(100)
+      .withBackoff(Duration.ofMillis(10), Duration.ofMillis(100))
+      .withRetryBudget(1, 1000)
+      .build();
+
+    for (int i = 0; i < 50; i++) {
+      assertTrue(policy.retryDelay(1, Optional.of(409), null, NO_RETRY_AFTER, false).get().toMillis() <= 10);
+      assertTrue(policy.retryDelay(3, Optional.of(409), null, NO_RETRY_AFTER, false).get().toMillis() <= 40);
+      assertTrue(policy.retryDelay(20, Optional.of(409), null, NO_RETRY_AFTER, false).get().toMillis() <= 100);
+    }
+  }
+
+  @Test
+  public void shouldHonorRetryAfterUpToItsBound() {
+    RetryPolicy policy = RetryPolicy.builder()
+      .withMaxAttempts(10)
+      .withBackoff(Duration.ofMillis(10), Duration.ofMillis(100))
+      .withMaxRetryAfter(Duration.ofSeconds(5))
+      .build();
+
+    assertEquals(Duration.ofSeconds(2), policy.retryDelay(1, Optional.of(429), null, Optional.of(Duration.ofSeconds(2)), false).get());
+    assertEquals(Duration.ofSeconds(5), policy.retryDelay(1, Optional.of(429), null, Optional.of(Duration.ofSeconds(60)), false).get());
+  }
+
+  @Test
+  public void shouldStopRetryingOnceTheBudgetIsSpent() {
+    RetryPolicy policy = RetryPolicy.builder()
+      .withMaxAttempts(10)
+      .withRetryBudget(0.5, 2)
+      .build();
+
+    assertTrue(policy.retryDelay(1, Optional.of(409), null, NO_RETRY_AFTER, false).isPresent());
+    assertTrue(policy.retryDelay(1, Optional.of(409), null, NO_RETRY_AFTER, false).isPresent());
+    assertFalse(policy.retryDelay(1, Optional.of(409), null, NO_RETRY_AFTER, false).isPresent());
+
+    // two requests earn a retry back
+    policy.onRequest();
+    policy.onRequest();
+    assertTrue(policy.retryDelay(1, Optional.of(409), null, NO_RETRY_AFTER, false).isPresent());
+    assertFalse(policy.retryDelay(1, Optional.of(409), null, NO_RETRY_AFTER, false).isPresent());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldRejectInvalidBackoff() {
+    RetryPolicy.builder().withBackoff(Duration.ofSeconds(2), Duration.ofSeconds(1)).build();
+  }
+}
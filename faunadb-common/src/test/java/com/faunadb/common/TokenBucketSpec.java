@@ -0,0 +1,48 @@
+package com.faunadb.common;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TokenBucketSpec {
+
+  @Test
+  public void shouldStartFull() {
+    TokenBucket bucket = new TokenBucket(0.1, 2);
+
+    assertTrue(bucket.withdraw());
+    assertTrue(bucket.withdraw());
+    assertFalse(bucket.withdraw());
+  }
+
+  @Test
+  public void shouldEarnWholeTokensFromDeposits() {
+    TokenBucket bucket = new TokenBucket(0.25, 1);
+    assertTrue(bucket.withdraw());
+
+    for (int i = 0; i < 3; i++) {
+      bucket.deposit();
+      assertFalse(bucket.withdraw());
+    }
+
+    bucket.deposit();
+    assertTrue(bucket.withdraw());
+  }
+
+  @Test
+  public void shouldNotExceedCapacity() {
+    TokenBucket bucket = new TokenBucket(1, 1);
+
+    for (int i = 0; i < 10; i++)
+      bucket.deposit();
+
+    assertTrue(bucket.withdraw());
+    assertFalse(bucket.withdraw());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldRejectNegativeBudgets() {
+    new TokenBucket(-1, 10);
+  }
+}
@@ -0,0 +1,640 @@
+package com.faunadb.client;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
+import com.faunadb.client.errors.BadRequestException;
+import com.faunadb.client.errors.NotFoundException;
+import com.faunadb.client.errors.PermissionDeniedException;
+import com.faunadb.client.errors.TooManyRequestsException;
+import com.faunadb.client.errors.TransactionContentionException;
+import com.faunadb.client.query.Expr;
+import com.faunadb.client.types.Encoder;
+import com.faunadb.common.http.RequestBody;
+import com.faunadb.common.models.request.RequestParameters;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+
+import static com.faunadb.client.query.Language.Create;
+import static com.faunadb.client.query.Language.Do;
+import static com.faunadb.client.query.Language.Foreach;
+import static com.faunadb.client.query.Language.Lambda;
+import static com.faunadb.client.query.Language.Null;
+import static com.faunadb.client.query.Language.Obj;
+import static com.faunadb.client.query.Language.Var;
+import static java.lang.String.format;
+
+/**
+ * Writes large numbers of documents, such as when loading a collection, in batches.
+ *
+ * <p>Documents are either {@link com.faunadb.client.types.Value}s, or objects encoded with
+ * {@link Encoder}. Each document is serialized once, and packed into batches of a bounded size, in bytes
+ * and in documents. A batch is written by a single query,
+ * {@code Do(Foreach(docs, Lambda("doc", write(Var("doc")))), Null())}, where the write defaults to
+ * {@code Create(collection, Obj("data", Var("doc")))}.</p>
+ *
+ * <p>At most a few batches are in flight at once. Documents are read from their source only as batches
+ * complete, so sources larger than memory, such as a file read lazily, can be written.</p>
+ *
+ * <p>A batch runs in a single transaction, so a single failure aborts the whole batch:</p>
+ * <ul>
+ *   <li>batches failing on contention are split in halves, and batches rejected for overload are sent
+ *   again, both after an exponential backoff, up to a maximum number of retries;</li>
+ *   <li>batches failing on one of their documents, such as an invalid document, are split in halves
+ *   until the failing documents are isolated, so the others are still written;</li>
+ *   <li>batches failing otherwise, such as on network errors, fail all their documents.</li>
+ * </ul>
+ *
+ * <p>Batches are sent once per attempt, regardless of the client's
+ * {@link com.faunadb.common.RetryPolicy}, so the writer's retries don't multiply with the client's.</p>
+ *
+ * <p>Failed documents are listed in the {@link Report}, along with their position in the source, so they
+ * can be written again. Writing documents again is not idempotent with the default write.</p>
+ *
+ * <b>Example</b>:
+ *
+ * <pre>{@code
+ * BulkWriter writer = BulkWriter.builder(client, Collection("users"))
+ *   .withMaxInFlight(8)
+ *   .withProgressListener(report -> log.info("{} documents/s", report.getDocumentsPerSecond()))
+ *   .build();
+ *
+ * BulkWriter.Report report = writer.write(users.stream()).join();
+ * }</pre>
+ */
+public final class BulkWriter {
+
+  /**
+   * Returns a new {@link Builder} instance, creating each document in the collection provided.
+   *
+   * @param client the client writing the documents
+   * @param collection the collection the documents are created in
+   * @return a new {@link Builder}
+   */
+  public static Builder builder(FaunaClient client, Expr collection) {
+    return new Builder(client, doc -> Create(collection, Obj("data", doc)));
+  }
+
+  /**
+   * Returns a new {@link Builder} instance, writing each document with the expression provided.
+   *
+   * @param client the client writing the documents
+   * @param write builds the expression writing a document, given the expression of the document
+   * @return a new {@link Builder}
+   */
+  public static Builder builder(FaunaClient client, UnaryOperator<Expr> write) {
+    return new Builder(client, write);
+  }
+
+  /**
+   * A builder for the {@link BulkWriter} instance.
+   */
+  public static final class Builder {
+
+    private final FaunaClient client;
+    private final UnaryOperator<Expr> write;
+    private int maxBatchBytes = 512 * 1024;
+    private int maxBatchSize = 500;
+    private int maxInFlight = 4;
+    private int maxRetries = 8;
+    private Duration timeout = null;
+    private Consumer<Report> progressListener = report -> {};
+
+    private Builder(FaunaClient client, UnaryOperator<Expr> write) {
+      this.client = client;
+      this.write = write;
+    }
+
+    /**
+     * Sets the maximum size of the documents of a batch, once serialized. A document larger than this is
+     * written on its own. Defaults to 512 KiB.
+     *
+     * @param bytes the maximum batch size, in bytes
+     * @return this {@link Builder} object
+     */
+    public Builder withMaxBatchBytes(int bytes) {
+      this.maxBatchBytes = bytes;
+      return this;
+    }
+
+    /**
+     * Sets the maximum number of documents of a batch. Defaults to 500.
+     *
+     * @param size the maximum number of documents
+     * @return this {@link Builder} object
+     */
+    public Builder withMaxBatchSize(int size) {
+      this.maxBatchSize = size;
+      return this;
+    }
+
+    /**
+     * Sets the maximum number of batches in flight at once. No documents are read while as many batches
+     * are in flight or waiting to be retried. Defaults to 4.
+     *
+     * @param maxInFlight the maximum number of batches in flight
+     * @return this {@link Builder} object
+     */
+    public Builder withMaxInFlight(int maxInFlight) {
+      this.maxInFlight = maxInFlight;
+      return this;
+    }
+
+    /**
+     * Sets how many times a batch failing on contention or overload is retried before its documents
+     * fail. Defaults to 8.
+     *
+     * @param maxRetries the maximum number of retries
+     * @return this {@link Builder} object
+     */
+    public Builder withMaxRetries(int maxRetries) {
+      this.maxRetries = maxRetries;
+      return this;
+    }
+
+    /**
+     * Sets the query timeout of each batch. Defaults to the client's query timeout.
+     *
+     * @param timeout the query timeout
+     * @return this {@link Builder} object
+     */
+    public Builder withTimeout(Duration timeout) {
+      this.timeout = timeout;
+      return this;
+    }
+
+    /**
+     * Sets a listener notified of the progress of a write each time a batch completes, on the thread
+     * completing the batch. Listeners must not block.
+     *
+     * @param listener the progress listener
+     * @return this {@link Builder} object
+     */
+    public Builder withProgressListener(Consumer<Report> listener) {
+      this.progressListener = listener;
+      return this;
+    }
+
+    /**
+     * @return a newly constructed {@link BulkWriter}
+     * @throws IllegalArgumentException if the write expression cannot be serialized
+     */
+    public BulkWriter build() {
+      if (client == null)
+        throw new IllegalArgumentException("A client is required");
+      if (maxBatchBytes < 1)
+        throw new IllegalArgumentException(format("Invalid max batch size: %d bytes", maxBatchBytes));
+      if (maxBatchSize < 1)
+        throw new IllegalArgumentException(format("Invalid max batch size: %d documents", maxBatchSize));
+      if (maxInFlight < 1)
+        throw new IllegalArgumentException(format("Invalid max batches in flight: %d", maxInFlight));
+      if (maxRetries < 0)
+        throw new IllegalArgumentException(format("Invalid max retries: %d", maxRetries));
+
+      return new BulkWriter(this);
+    }
+  }
+
+  /**
+   * A document which could not be written.
+   */
+  public static final class Failure {
+    private final long index;
+    private final Object document;
+    private final Throwable cause;
+
+    private Failure(long index, Object document, Throwable cause) {
+      this.index = index;
+      this.document = document;
+      this.cause = cause;
+    }
+
+    /**
+     * @return the position of the document in its source, starting at 0
+     */
+    public long getIndex() {
+      return index;
+    }
+
+    /**
+     * @return the document, as provided
+     */
+    public Object getDocument() {
+      return document;
+    }
+
+    /**
+     * @return why the document could not be written
+     */
+    public Throwable getCause() {
+      return cause;
+    }
+
+    @Override
+    public String toString() {
+      return format("Failure(%d, %s)", index, cause);
+    }
+  }
+
+  /**
+   * The progress of a write, or its outcome once complete.
+   */
+  public static final class Report {
+    private final long written;
+    private final List<Failure> failures;
+    private final long requests;
+    private final long retries;
+    private final Duration elapsed;
+
+    private Report(long written, List<Failure> failures, long requests, long retries, Duration elapsed) {
+      this.written = written;
+      this.failures = failures;
+      this.requests = requests;
+      this.retries = retries;
+      this.elapsed = elapsed;
+    }
+
+    /**
+     * @return the number of documents written
+     */
+    public long getWritten() {
+      return written;
+    }
+
+    /**
+     * @return the documents which could not be written, in no particular order
+     */
+    public List<Failure> getFailures() {
+      return failures;
+    }
+
+    /**
+     * @return the number of requests sent, including retries
+     */
+    public long getRequests() {
+      return requests;
+    }
+
+    /**
+     * @return the number of batches sent again after failing on contention or overload
+     */
+    public long getRetries() {
+      return retries;
+    }
+
+    /**
+     * @return the time elapsed since the write started
+     */
+    public Duration getElapsed() {
+      return elapsed;
+    }
+
+    /**
+     * @return the number of documents written per second
+     */
+    public double getDocumentsPerSecond() {
+      long nanos = elapsed.toNanos();
+      return nanos == 0 ? 0 : written * 1e9 / nanos;
+    }
+
+    @Override
+    public String toString() {
+      return format("Report(written=%d, failed=%d, requests=%d, retries=%d, elapsed=%s)",
+        written, failures.size(), requests, retries, elapsed);
+    }
+  }
+
+  private static final ObjectMapper json = new ObjectMapper().registerModule(new Jdk8Module());
+
+  private static final RequestBody OPEN = bytes("[");
+  private static final RequestBody SEPARATOR = bytes(",");
+  private static final RequestBody CLOSE = bytes("]");
+
+  private static final long BASE_BACKOFF_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+  private static final long MAX_BACKOFF_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+  private final FaunaClient client;
+  private final PreparedQuery query;
+  private final int maxBatchBytes;
+  private final int maxBatchSize;
+  private final int maxInFlight;
+  private final int maxRetries;
+  private final Optional<Duration> timeout;
+  private final Consumer<Report> progressListener;
+
+  private BulkWriter(Builder builder) {
+    this.client = builder.client;
+    this.query = client.prepare(
+      Do(Foreach(PreparedQuery.Param("docs"), Lambda("doc", builder.write.apply(Var("doc")))), Null()));
+    this.maxBatchBytes = builder.maxBatchBytes;
+    this.maxBatchSize = builder.maxBatchSize;
+    this.maxInFlight = builder.maxInFlight;
+    this.maxRetries = builder.maxRetries;
+    this.timeout = Optional.ofNullable(builder.timeout);
+    this.progressListener = builder.progressListener;
+  }
+
+  /**
+   * Writes the documents provided. Documents are read from the iterator as batches complete, from the
+   * threads completing them.
+   *
+   * @param documents the documents to write
+   * @return a {@link CompletableFuture} containing the {@link Report} of the write, once all documents
+   * are written or failed. It fails if reading the documents fails.
+   */
+  public CompletableFuture<Report> write(Iterator<?> documents) {
+    return write(documents, (index, failure) -> {});
+  }
+
+  /**
+   * Writes the documents provided, notifying the listener of the outcome of each document.
+   */
+  CompletableFuture<Report> write(Iterator<?> documents, DocumentListener listener) {
+    Job job = new Job(documents, listener);
+    job.drain();
+    return job.result;
+  }
+
+  /**
+   * Writes the documents provided.
+   *
+   * @param documents the documents to write
+   * @return a {@link CompletableFuture} containing the {@link Report} of the write
+   * @see #write(Iterator)
+   */
+  public CompletableFuture<Report> write(Iterable<?> documents) {
+    return write(documents.iterator());
+  }
+
+  /**
+   * Writes the documents provided. The stream is consumed lazily.
+   *
+   * @param documents the documents to write
+   * @return a {@link CompletableFuture} containing the {@link Report} of the write
+   * @see #write(Iterator)
+   */
+  public CompletableFuture<Report> write(Stream<?> documents) {
+    return write(documents.iterator());
+  }
+
+  /**
+   * Notified once a document is written or failed, on the thread completing its batch.
+   */
+  interface DocumentListener {
+    /**
+     * @param index the position of the document in its source
+     * @param failure why the document could not be written, or null if it was written
+     */
+    void onCompleted(long index, Throwable failure);
+  }
+
+  private static final class Document {
+    private final long index;
+    private final Object source;
+    private final RequestBody body;
+
+    private Document(long index, Object source, RequestBody body) {
+      this.index = index;
+      this.source = source;
+      this.body = body;
+    }
+  }
+
+  private static final class Batch {
+    private final List<Document> documents;
+    private final int attempt;
+
+    private Batch(List<Document> documents, int attempt) {
+      this.documents = documents;
+      this.attempt = attempt;
+    }
+  }
+
+  private final class Job {
+    private final Iterator<?> source;
+    private final DocumentListener listener;
+    private final CompletableFuture<Report> result = new CompletableFuture<>();
+    private final long startNanos = System.nanoTime();
+
+    // batches split or retried, already counted as outstanding
+    private final ConcurrentLinkedQueue<Batch> queued = new ConcurrentLinkedQueue<>();
+    // batches in flight, queued, or waiting for a retry
+    private final AtomicInteger outstanding = new AtomicInteger();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger wip = new AtomicInteger();
+
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+    private final List<Failure> failures = Collections.synchronizedList(new ArrayList<>());
+
+    // accessed from the drain loop only
+    private long nextIndex = 0;
+    private Document carried = null;
+    private Throwable sourceFailure = null;
+    private boolean exhausted = false;
+
+    private Job(Iterator<?> source, DocumentListener listener) {
+      this.source = source;
+      this.listener = listener;
+    }
+
+    private void drain() {
+      if (wip.getAndIncrement() != 0) return;
+
+      do {
+        Batch batch;
+        while (inFlight.get() < maxInFlight && (batch = queued.poll()) != null) {
+          send(batch);
+        }
+
+        while (!exhausted && outstanding.get() < maxInFlight && inFlight.get() < maxInFlight) {
+          List<Document> documents = nextBatch();
+          if (!documents.isEmpty()) {
+            outstanding.incrementAndGet();
+            send(new Batch(documents, 0));
+          }
+        }
+
+        if (exhausted && outstanding.get() == 0 && queued.isEmpty() && !result.isDone()) {
+          if (sourceFailure != null) {
+            result.completeExceptionally(sourceFailure);
+          } else {
+            result.complete(report());
+          }
+        }
+      } while (wip.decrementAndGet() != 0);
+    }
+
+    private List<Document> nextBatch() {
+      List<Document> documents = new ArrayList<>();
+      long bytes = 0;
+
+      while (documents.size() < maxBatchSize) {
+        Document document = carried != null ? carried : nextDocument();
+        carried = null;
+        if (document == null) break;
+
+        long length = document.body.length() + 1;
+        if (!documents.isEmpty() && bytes + length > maxBatchBytes) {
+          carried = document;
+          break;
+        }
+
+        documents.add(document);
+        bytes += length;
+      }
+
+      return documents;
+    }
+
+    private Document nextDocument() {
+      while (true) {
+        Object next;
+        try {
+          if (!source.hasNext()) {
+            exhausted = true;
+            return null;
+          }
+          next = source.next();
+        } catch (RuntimeException ex) {
+          sourceFailure = ex;
+          exhausted = true;
+          return null;
+        }
+
+        long index = nextIndex++;
+        try {
+          Expr value = next instanceof Expr ? (Expr) next : Encoder.encode(next).get();
+          return new Document(index, next, RequestBody.write(json, value));
+        } catch (IOException | RuntimeException ex) {
+          failures.add(new Failure(index, next, ex));
+          listener.onCompleted(index, ex);
+        }
+      }
+    }
+
+    private void send(Batch batch) {
+      List<RequestBody> parts = new ArrayList<>(batch.documents.size() * 2 + 1);
+      parts.add(OPEN);
+      for (Document document : batch.documents) {
+        if (parts.size() > 1) parts.add(SEPARATOR);
+        parts.add(document.body);
+      }
+      parts.add(CLOSE);
+
+      inFlight.incrementAndGet();
+      requests.incrementAndGet();
+      RequestBody body = query.bindEncoded(Map.of("docs", RequestBody.concat(parts)));
+      // retried here, split on contention, rather than by the client
+      client.query(body, RequestParameters.fromOptionalTimeout(timeout).withoutRetries()).whenComplete((value, ex) -> {
+        if (ex == null) {
+          written.addAndGet(batch.documents.size());
+          for (Document document : batch.documents) {
+            listener.onCompleted(document.index, null);
+          }
+        } else {
+          recover(batch, ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex);
+        }
+
+        inFlight.decrementAndGet();
+        outstanding.decrementAndGet();
+        notifyProgress();
+        drain();
+      });
+    }
+
+    private void recover(Batch batch, Throwable cause) {
+      int size = batch.documents.size();
+
+      if (cause instanceof TransactionContentionException || cause instanceof TooManyRequestsException) {
+        if (batch.attempt >= maxRetries) {
+          fail(batch, cause);
+          return;
+        }
+
+        // smaller transactions are less likely to conflict
+        List<Batch> next = cause instanceof TransactionContentionException && size > 1
+          ? split(batch, batch.attempt + 1)
+          : List.of(new Batch(batch.documents, batch.attempt + 1));
+
+        outstanding.addAndGet(next.size());
+        retries.addAndGet(next.size());
+        CompletableFuture.delayedExecutor(backoffNanos(batch.attempt), TimeUnit.NANOSECONDS, client.callbackExecutor()).execute(() -> {
+          queued.addAll(next);
+          drain();
+        });
+      } else if (isDocumentError(cause) && size > 1) {
+        List<Batch> halves = split(batch, batch.attempt);
+        outstanding.addAndGet(halves.size());
+        queued.addAll(halves);
+      } else {
+        fail(batch, cause);
+      }
+    }
+
+    private void fail(Batch batch, Throwable cause) {
+      for (Document document : batch.documents) {
+        failures.add(new Failure(document.index, document.source, cause));
+        listener.onCompleted(document.index, cause);
+      }
+    }
+
+    private void notifyProgress() {
+      try {
+        progressListener.accept(report());
+      } catch (RuntimeException ignored) {
+        // a failing listener must not stall the write
+      }
+    }
+
+    private Report report() {
+      List<Failure> snapshot;
+      synchronized (failures) {
+        snapshot = List.copyOf(failures);
+      }
+      return new Report(written.get(), snapshot, requests.get(), retries.get(),
+        Duration.ofNanos(System.nanoTime() - startNanos));
+    }
+  }
+
+  private static List<Batch> split(Batch batch, int attempt) {
+    List<Document> documents = batch.documents;
+    int half = documents.size() / 2;
+    return List.of(
+      new Batch(documents.subList(0, half), attempt),
+      new Batch(documents.subList(half, documents.size()), attempt));
+  }
+
+  private static boolean isDocumentError(Throwable cause) {
+    return cause instanceof BadRequestException || cause instanceof NotFoundException || cause instanceof PermissionDeniedException;
+  }
+
+  private static long backoffNanos(int attempt) {
+    long ceiling = Math.min(MAX_BACKOFF_NANOS, BASE_BACKOFF_NANOS << Math.min(attempt, 16));
+    // jittered, so batches retried together don't collide again
+    return ThreadLocalRandom.current().nextLong(ceiling / 2, ceiling + 1);
+  }
+
+  private static RequestBody bytes(String text) {
+    byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+    return RequestBody.of(bytes, 0, bytes.length);
+  }
+}
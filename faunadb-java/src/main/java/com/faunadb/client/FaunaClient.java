@@ -1,21 +1,30 @@
 package com.faunadb.client;
 
 import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
-import com.fasterxml.jackson.databind.node.NullNode;
 import com.faunadb.client.errors.*;
 import com.faunadb.client.query.Expr;
+import com.faunadb.client.query.Pagination;
 import com.faunadb.client.streaming.BodyValueFlowProcessor;
 import com.faunadb.client.streaming.EventField;
 import com.faunadb.client.streaming.SnapshotEventFlowProcessor;
 import com.faunadb.client.types.Field;
 import com.faunadb.client.types.MetricsResponse;
 import com.faunadb.client.types.Value;
+import com.faunadb.common.CircuitBreaker;
+import com.faunadb.common.ConcurrencyLimiter;
 import com.faunadb.common.Connection;
 import com.faunadb.common.Connection.JvmDriver;
+import com.faunadb.common.DecodingStage;
+import com.faunadb.common.Deadline;
+import com.faunadb.common.HedgingPolicy;
+import com.faunadb.common.KeepAlivePolicy;
+import com.faunadb.common.RetryPolicy;
 import com.faunadb.client.types.Value.NullV;
 
 import java.io.IOException;
@@ -27,13 +36,18 @@ import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeoutException;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
+import com.faunadb.common.http.RequestBody;
+import com.faunadb.common.http.ResponseBody;
 import com.faunadb.common.http.ResponseBodyStringProcessor;
+import com.faunadb.common.models.request.RequestParameters;
 
 import static com.faunadb.client.query.Language.Get;
 import static com.faunadb.client.types.Codec.VALUE;
@@ -83,11 +97,26 @@ public class FaunaClient {
 
     private String secret;
     private URL endpoint;
+    private List<URL> endpoints;
     private MetricRegistry registry;
     private Duration queryTimeout;
     private String userAgent;
     private boolean checkNewVersion = true;
     private Map<String, String> customHeaders;
+    private ConcurrencyLimiter concurrencyLimiter;
+    private RetryPolicy retryPolicy;
+    private HedgingPolicy hedgingPolicy;
+    private CircuitBreaker circuitBreaker;
+    private KeepAlivePolicy keepAlivePolicy;
+    private int maxStreamsPerClient = 0;
+    private int maxHttp2Clients = 8;
+    private Executor httpExecutor;
+    private Executor callbackExecutor;
+    private boolean virtualThreads = false;
+    private DecodingStage decodingStage;
+    private boolean queryCoalescing = false;
+    private Duration batchWindow;
+    private int maxBatchSize;
 
     private Builder() {
     }
@@ -115,6 +144,25 @@ public class FaunaClient {
       return this;
     }
 
+    /**
+     * Sets several FaunaDB endpoint urls for the {@link FaunaClient} instance, such as the endpoints of different
+     * regions. Each query is routed to the healthy endpoint with the lowest expected latency, and endpoints failing
+     * repeatedly are taken out of the rotation until they recover. Replaces the endpoint set by
+     * {@link #withEndpoint(String)}.
+     *
+     * @param endpoints the root endpoint URLs, in order of preference
+     * @return this {@link Builder} object
+     * @throws MalformedURLException if an endpoint is invalid
+     */
+    public Builder withEndpoints(String... endpoints) throws MalformedURLException {
+      List<URL> urls = new ArrayList<>(endpoints.length);
+      for (String endpoint : endpoints) {
+        urls.add(new URL(endpoint));
+      }
+      this.endpoints = urls;
+      return this;
+    }
+
     /**
      * Sets a {@link MetricRegistry} that the {@link FaunaClient} will use to register and track Connection-level
      * statistics.
@@ -170,6 +218,191 @@ public class FaunaClient {
       return this;
     }
 
+    /**
+     * Sets a {@link ConcurrencyLimiter} adapting the number of concurrent queries to the server load.
+     * Queries beyond the limit wait in the limiter's queue, and fail with an {@link UnavailableException}
+     * if the queue is full or they wait for too long.
+     *
+     * @param limiter the {@link ConcurrencyLimiter} instance
+     * @return this {@link Builder} object
+     */
+    public Builder withConcurrencyLimiter(ConcurrencyLimiter limiter) {
+      this.concurrencyLimiter = limiter;
+      return this;
+    }
+
+    /**
+     * Sets a {@link RetryPolicy} retrying queries that fail due to transaction contention or server overload,
+     * such as {@link UnavailableException}s, with an exponential backoff and a retry budget.
+     * Queries are not retried by default.
+     *
+     * @param retryPolicy the {@link RetryPolicy} instance
+     * @return this {@link Builder} object
+     */
+    public Builder withRetryPolicy(RetryPolicy retryPolicy) {
+      this.retryPolicy = retryPolicy;
+      return this;
+    }
+
+    /**
+     * Sets a {@link HedgingPolicy} sending read-only queries a second time when they take longer than usual,
+     * and keeping the first successful response. Queries are not hedged by default.
+     *
+     * @param hedgingPolicy the {@link HedgingPolicy} instance
+     * @return this {@link Builder} object
+     * @see FaunaClient#query(Expr, Optional, boolean)
+     */
+    public Builder withHedgingPolicy(HedgingPolicy hedgingPolicy) {
+      this.hedgingPolicy = hedgingPolicy;
+      return this;
+    }
+
+    /**
+     * Sets a {@link CircuitBreaker} failing queries fast with an {@link UnavailableException} while the endpoint
+     * keeps failing or answering slowly, instead of letting them wait for their timeout. No circuit breaker is
+     * used by default.
+     *
+     * @param circuitBreaker the {@link CircuitBreaker} instance
+     * @return this {@link Builder} object
+     */
+    public Builder withCircuitBreaker(CircuitBreaker circuitBreaker) {
+      this.circuitBreaker = circuitBreaker;
+      return this;
+    }
+
+    /**
+     * Sets a {@link KeepAlivePolicy} keeping idle connections to FaunaDB open in the background, so queries
+     * sent after a quiet period don't wait for new connections. Idle connections are closed after 4 seconds by
+     * default.
+     *
+     * @param keepAlivePolicy the {@link KeepAlivePolicy} instance
+     * @return this {@link Builder} object
+     * @see FaunaClient#warmUp(int)
+     */
+    public Builder withKeepAlivePolicy(KeepAlivePolicy keepAlivePolicy) {
+      this.keepAlivePolicy = keepAlivePolicy;
+      return this;
+    }
+
+    /**
+     * Sends queries over HTTP/2, with up to {@code maxStreamsPerClient} concurrent queries per HTTP client, over
+     * all endpoints, and up to 8 clients, each with its own connections. Queries use HTTP/1.1 by default.
+     *
+     * @param maxStreamsPerClient the maximum concurrent queries per HTTP client, such as 100
+     * @return this {@link Builder} object
+     */
+    public Builder withHttp2(int maxStreamsPerClient) {
+      return withHttp2(maxStreamsPerClient, 8);
+    }
+
+    /**
+     * Sends queries over HTTP/2, with up to {@code maxStreamsPerClient} concurrent queries per HTTP client, over
+     * all endpoints, and up to {@code maxClients} clients, each with its own connections. Queries use HTTP/1.1
+     * by default.
+     *
+     * @param maxStreamsPerClient the maximum concurrent queries per HTTP client, such as 100
+     * @param maxClients the maximum number of HTTP clients
+     * @return this {@link Builder} object
+     * @see Connection.Builder#withHttp2(int, int)
+     */
+    public Builder withHttp2(int maxStreamsPerClient, int maxClients) {
+      this.maxStreamsPerClient = maxStreamsPerClient;
+      this.maxHttp2Clients = maxClients;
+      return this;
+    }
+
+    /**
+     * Sets the executor running the HTTP client's tasks, such as sending queries and reading responses.
+     *
+     * @param executor the HTTP executor
+     * @return this {@link Builder} object
+     * @see Connection.Builder#withHttpExecutor(Executor)
+     */
+    public Builder withHttpExecutor(Executor executor) {
+      this.httpExecutor = executor;
+      return this;
+    }
+
+    /**
+     * Sets the executor completing the {@link CompletableFuture}s returned by this client, which also decodes
+     * the responses. Defaults to {@link java.util.concurrent.ForkJoinPool#commonPool()}.
+     *
+     * @param executor the callback executor
+     * @return this {@link Builder} object
+     * @see Connection.Builder#withCallbackExecutor(Executor)
+     */
+    public Builder withCallbackExecutor(Executor executor) {
+      this.callbackExecutor = executor;
+      return this;
+    }
+
+    /**
+     * Runs both the HTTP client's tasks and the callbacks on virtual threads, one per task. Requires JDK 21 or later.
+     *
+     * @return this {@link Builder} object
+     * @see Connection.Builder#withVirtualThreads()
+     */
+    public Builder withVirtualThreads() {
+      this.virtualThreads = true;
+      return this;
+    }
+
+    /**
+     * Sets a {@link DecodingStage} decoding large responses on its own threads, instead of the threads
+     * completing the requests. Responses are decoded on the completing threads by default.
+     *
+     * <p>The stage's metrics are registered in the connection's {@link MetricRegistry} under the
+     * {@code fauna-decoding} prefix.</p>
+     *
+     * @param decodingStage the {@link DecodingStage} instance
+     * @return this {@link Builder} object
+     */
+    public Builder withDecodingStage(DecodingStage decodingStage) {
+      this.decodingStage = decodingStage;
+      return this;
+    }
+
+    /**
+     * Shares a single request among identical read-only queries in flight at the same time, such as the
+     * same read issued by many threads after a cache miss. Queries are identical when they are sent with the
+     * same secret, the same timeout and tags, and serialize to the same bytes. Queries are not coalesced by
+     * default.
+     *
+     * <p>Only queries flagged as read-only are coalesced, see {@link FaunaClient#query(Expr, Optional, boolean)}.
+     * The number of coalesced queries is registered in the client's {@link MetricRegistry} as
+     * {@code fauna-queries-coalesced}.</p>
+     *
+     * @param queryCoalescing whether identical read-only queries share their request
+     * @return this {@link Builder} object
+     */
+    public Builder withQueryCoalescing(boolean queryCoalescing) {
+      this.queryCoalescing = queryCoalescing;
+      return this;
+    }
+
+    /**
+     * Collects concurrent read-only queries into batches, each sent as a single request, like
+     * {@link FaunaClient#query(List)}. A batch collects queries for up to {@code window}, or until it holds
+     * {@code maxBatchSize} queries. Each call still gets its own result. Queries are sent right away by
+     * default.
+     *
+     * <p>Only queries flagged as read-only, without a timeout, are batched, see
+     * {@link FaunaClient#query(Expr, Optional, boolean)}: the queries of a batch run in a single transaction,
+     * so writes batched together would commit or abort together. Batched reads see the same snapshot. When one
+     * of them fails with a query error, such as a missing document, it is sent again on its own to get its own
+     * error, and the others are sent again without it. A batch failing as a whole, for example on a network
+     * error, fails all its queries.</p>
+     *
+     * @param window how long a batch collects queries, such as 2 milliseconds
+     * @param maxBatchSize the maximum number of queries per batch
+     * @return this {@link Builder} object
+     */
+    public Builder withAutoBatching(Duration window, int maxBatchSize) {
+      this.batchWindow = window;
+      this.maxBatchSize = maxBatchSize;
+      return this;
+    }
+
     /**
      * Returns a newly constructed {@link FaunaClient} with configuration based on the settings of this {@link Builder}.
      * @return {@link FaunaClient}
@@ -183,18 +416,53 @@ public class FaunaClient {
         .withJvmDriver(JvmDriver.JAVA)
         .withCheckNewDriverVersion(checkNewVersion);
 
+      if (endpoints != null) builder.withFaunaRoots(endpoints.toArray(new URL[0]));
       if (registry != null) builder.withMetrics(registry);
       if (customHeaders != null) builder.withCustomHeaders(customHeaders);
+      if (concurrencyLimiter != null) builder.withConcurrencyLimiter(concurrencyLimiter);
+      if (retryPolicy != null) builder.withRetryPolicy(retryPolicy);
+      if (hedgingPolicy != null) builder.withHedgingPolicy(hedgingPolicy);
+      if (circuitBreaker != null) builder.withCircuitBreaker(circuitBreaker);
+      if (keepAlivePolicy != null) builder.withKeepAlivePolicy(keepAlivePolicy);
+      if (maxStreamsPerClient > 0) builder.withHttp2(maxStreamsPerClient, maxHttp2Clients);
+      if (virtualThreads) builder.withVirtualThreads();
+      if (httpExecutor != null) builder.withHttpExecutor(httpExecutor);
+      if (callbackExecutor != null) builder.withCallbackExecutor(callbackExecutor);
+
+      Connection connection = builder.build();
 
-      return new FaunaClient(builder.build());
+      if (decodingStage != null) decodingStage.registerMetrics(connection.getMetricRegistry(), "fauna-decoding");
+
+      QueryCoalescer coalescer = null;
+      if (queryCoalescing) {
+        coalescer = new QueryCoalescer();
+        coalescer.registerMetrics(connection.getMetricRegistry(), "fauna-queries");
+      }
+
+      return new FaunaClient(connection, secret, decodingStage, coalescer, batchWindow, maxBatchSize);
     }
   }
 
   private static final ObjectMapper json = new ObjectMapper().registerModule(new Jdk8Module());
   private final Connection connection;
+  private final String secret;
+  private final DecodingStage decodingStage;
+  private final QueryCoalescer coalescer;
+  private final Duration batchWindow;
+  private final int maxBatchSize;
+  private final QueryBatcher batcher;
 
-  private FaunaClient(Connection connection) {
+  private FaunaClient(Connection connection, String secret, DecodingStage decodingStage, QueryCoalescer coalescer,
+                      Duration batchWindow, int maxBatchSize) {
     this.connection = connection;
+    this.secret = secret;
+    this.decodingStage = decodingStage;
+    this.coalescer = coalescer;
+    this.batchWindow = batchWindow;
+    this.maxBatchSize = maxBatchSize;
+    this.batcher = batchWindow == null ? null : new QueryBatcher(batchWindow, maxBatchSize, connection.getCallbackExecutor(),
+      expr -> performRequest(expr, readOnlyParameters()),
+      exprs -> performBatchRequest(exprs, readOnlyParameters()));
   }
 
   /**
@@ -205,7 +473,7 @@ public class FaunaClient {
    * @return a new {@link FaunaClient}
    */
   public FaunaClient newSessionClient(String secret) {
-    return new FaunaClient(connection.newSessionConnection(secret));
+    return new FaunaClient(connection.newSessionConnection(secret), secret, decodingStage, coalescer, batchWindow, maxBatchSize);
   }
 
   /**
@@ -262,7 +530,35 @@ public class FaunaClient {
    * @see com.faunadb.client.query.Language
    */
   public CompletableFuture<Value> query(Expr expr, Optional<Duration> timeout) {
-    return performRequest(json.valueToTree(expr), timeout);
+    return performRequest(expr, RequestParameters.fromOptionalTimeout(timeout));
+  }
+
+  /**
+   * Issues a Query to FaunaDB.
+   * <p>
+   * Queries are constructed by the helper methods in the {@link com.faunadb.client.query.Language} class.
+   * <p>
+   * Responses are represented as structured tree where each node is a {@link Value} instance.
+   * {@link Value} instances can be converted to native types. See {@link Value} class for details.
+   *
+   * @param expr the query to be executed.
+   * @param timeout the timeout for the current query. It replaces the timeout value set for this
+   *                {@link FaunaClient} (if any), for the scope of this query. The timeout value
+   *                has milliseconds precision.
+   * @param readOnly whether the query only performs reads. Read-only queries may be sent more than once,
+   *                 if this client has a {@link HedgingPolicy}, and batched with others, if this client
+   *                 has auto-batching.
+   * @return a {@link CompletableFuture} containing the root node of the response tree.
+   * @see Value
+   * @see com.faunadb.client.query.Language
+   * @see Builder#withHedgingPolicy(HedgingPolicy)
+   * @see Builder#withAutoBatching(Duration, int)
+   */
+  public CompletableFuture<Value> query(Expr expr, Optional<Duration> timeout, boolean readOnly) {
+    if (batcher != null && readOnly && timeout.isEmpty()) {
+      return batcher.submit(expr);
+    }
+    return performRequest(expr, new RequestParameters(timeout, Optional.empty(), new HashMap<>(), readOnly));
   }
 
   /**
@@ -282,7 +578,7 @@ public class FaunaClient {
    * @see com.faunadb.client.query.Language
    */
   public CompletableFuture<MetricsResponse> queryWithMetrics(Expr expr, Optional<Duration> timeout) {
-    return performRequestWithMetrics(json.valueToTree(expr), timeout);
+    return performRequestWithMetrics(expr, RequestParameters.fromOptionalTimeout(timeout));
   }
 
   /**
@@ -344,7 +640,152 @@ public class FaunaClient {
    * @return a {@link CompletableFuture} containing an ordered list of the query's responses.
    */
   public CompletableFuture<List<Value>> query(List<? extends Expr> exprs, Optional<Duration> timeout) {
-    return performRequest(json.valueToTree(exprs), timeout).thenApply(result -> result.collect(Field.as(VALUE)));
+    return performBatchRequest(exprs, RequestParameters.fromOptionalTimeout(timeout));
+  }
+
+  /**
+   * Issues a Query to FaunaDB, which must complete before the deadline provided.
+   * <p>
+   * The query's timeout is the time remaining until the deadline, and the query is not retried past it.
+   * Cancelling the deadline, or the returned {@link CompletableFuture}, cancels the query: it is neither
+   * retried nor hedged any further, and its HTTP exchange is aborted on JDK 16 and later. On earlier JDKs,
+   * an exchange in flight runs to completion, and its response is discarded.
+   *
+   * @param expr the query to be executed.
+   * @param deadline the deadline of the query, possibly shared with other queries.
+   * @return a {@link CompletableFuture} containing the root node of the response tree.
+   * @see Value
+   * @see Deadline
+   */
+  public CompletableFuture<Value> query(Expr expr, Deadline deadline) {
+    return performRequest(expr, RequestParameters.fromOptionalTimeout(Optional.empty()).withDeadline(deadline));
+  }
+
+  /**
+   * Issues multiple queries to FaunaDB, which must complete before the deadline provided.
+   * <p>
+   * These queries are sent to FaunaDB in a single request. A list containing all responses is returned
+   * in the same order as the issued queries.
+   * <p>
+   *
+   * @param exprs the list of queries to be sent to FaunaDB.
+   * @param deadline the deadline of the request, possibly shared with other queries.
+   * @return a {@link CompletableFuture} containing an ordered list of the query's responses.
+   * @see Deadline
+   */
+  public CompletableFuture<List<Value>> query(List<? extends Expr> exprs, Deadline deadline) {
+    return performBatchRequest(exprs, RequestParameters.fromOptionalTimeout(Optional.empty()).withDeadline(deadline));
+  }
+
+  /**
+   * Walks all the pages of a set, fetching the next page while the current one is consumed.
+   *
+   * <p>For example:</p>
+   *
+   * <pre>{@code
+   * Iterator<Value> refs = client.paginate(Documents(Collection("users"))).withPageSize(100).iterator();
+   * }</pre>
+   *
+   * @param set the set to paginate, such as {@code Documents(Collection("users"))} or an index
+   *            {@code Match}. Pagination options are set on the {@link Paginator}, so this must not be a
+   *            {@code Paginate} expression.
+   * @return a new {@link Paginator}
+   * @see Paginator
+   */
+  public Paginator paginate(Expr set) {
+    if (set instanceof Pagination)
+      throw new IllegalArgumentException("Expected a set, not a Paginate expression");
+
+    return new Paginator(this, set);
+  }
+
+  /**
+   * Prepares a query template for repeated execution. Parameters are declared in the template with
+   * {@link PreparedQuery#Param(String)} placeholders and bound to values on each execution.
+   * <p>
+   * The template is serialized only once, here. Prepared queries can be kept and reused across clients.
+   *
+   * @param template the query template, containing zero or more parameter placeholders.
+   * @return a new {@link PreparedQuery}
+   * @throws IllegalArgumentException if the template cannot be serialized
+   * @see #query(PreparedQuery, Map)
+   */
+  public PreparedQuery prepare(Expr template) {
+    try {
+      return PreparedQuery.prepare(json, template);
+    } catch (IOException ex) {
+      throw new IllegalArgumentException("Cannot prepare query template", ex);
+    }
+  }
+
+  /**
+   * Issues a prepared query to FaunaDB, with its parameters bound to the values provided.
+   * <p>
+   * Only the parameter values are serialized. They are spliced into the pre-serialized template.
+   *
+   * @param query the prepared query to be executed.
+   * @param params the values of the query parameters, by name. All parameters must be bound.
+   * @return a {@link CompletableFuture} containing the root node of the response tree.
+   * @see #prepare(Expr)
+   */
+  public CompletableFuture<Value> query(PreparedQuery query, Map<String, ? extends Expr> params) {
+    return query(query, params, Optional.empty());
+  }
+
+  /**
+   * Issues a prepared query to FaunaDB, with its parameters bound to the values provided.
+   * <p>
+   * Only the parameter values are serialized. They are spliced into the pre-serialized template.
+   *
+   * @param query the prepared query to be executed.
+   * @param params the values of the query parameters, by name. All parameters must be bound.
+   * @param timeout the timeout for the current query. It replaces the timeout value set for this
+   *                {@link FaunaClient} (if any), for the scope of this query. The timeout value
+   *                has milliseconds precision.
+   * @return a {@link CompletableFuture} containing the root node of the response tree.
+   * @see #prepare(Expr)
+   */
+  public CompletableFuture<Value> query(PreparedQuery query, Map<String, ? extends Expr> params, Optional<Duration> timeout) {
+    RequestBody body;
+    try {
+      body = query.bind(json, params);
+    } catch (IOException | IllegalArgumentException ex) {
+      return CompletableFuture.failedFuture(ex);
+    }
+    return query(body, timeout);
+  }
+
+  /**
+   * Issues an already serialized query, such as a {@link PreparedQuery} bound to pre-serialized values.
+   */
+  CompletableFuture<Value> query(RequestBody body, Optional<Duration> timeout) {
+    return query(body, RequestParameters.fromOptionalTimeout(timeout));
+  }
+
+  /**
+   * Issues an already serialized query with the request parameters provided.
+   */
+  CompletableFuture<Value> query(RequestBody body, RequestParameters requestParameters) {
+    return handle(post(body, requestParameters), this::handleResponse);
+  }
+
+  /**
+   * The executor completing this client's futures, also running the work it schedules for later.
+   */
+  Executor callbackExecutor() {
+    return connection.getCallbackExecutor();
+  }
+
+  /**
+   * Issues a read-only query, and returns its response body without decoding it, such as to copy the
+   * result elsewhere without building {@link Value}s.
+   */
+  CompletableFuture<ResponseBody> queryResponseBody(Expr expr, Optional<Duration> timeout) {
+    RequestParameters parameters = new RequestParameters(timeout, Optional.empty(), new HashMap<>(), true);
+    return handle(post(expr, parameters), response -> {
+      handleQueryErrors(response.statusCode(), response.body());
+      return response.body();
+    });
   }
 
   /**
@@ -360,6 +801,17 @@ public class FaunaClient {
     connection.syncLastTxnTime(timestamp);
   }
 
+  /**
+   * Opens connections to FaunaDB ahead of the first queries, such as when an application starts.
+   *
+   * @param connections the number of connections to open to each endpoint
+   * @return a {@link CompletableFuture} completed once the connections are open, or failed to open
+   * @see Builder#withKeepAlivePolicy(KeepAlivePolicy)
+   */
+  public CompletableFuture<Void> warmUp(int connections) {
+    return connection.warmUp(connections);
+  }
+
   /**
    * Get the freshest timestamp reported to this client.
    */
@@ -367,27 +819,16 @@ public class FaunaClient {
     return connection.getLastTxnTime();
   }
 
-  private Value handleResponse(HttpResponse<String> response) {
+  private Value handleResponse(HttpResponse<ResponseBody> response) {
     try {
       handleQueryErrors(response.statusCode(), response.body());
-      JsonNode responseBody = parseResponseBody(response.body());
-      JsonNode resource = responseBody.get("resource");
-
-      if(resource == null) {
-        throw new IllegalArgumentException("Invalid JSON.");
-      }
-
-      if(resource instanceof NullNode) {
-        return NullV.NULL;
-      }
-
-      return json.treeToValue(resource, Value.class);
-    } catch (JsonProcessingException | IllegalArgumentException ex) {
+      return parseResource(response.body());
+    } catch (IOException | IllegalArgumentException ex) {
       throw new AssertionError(ex);
     }
   }
 
-  private MetricsResponse handleResponseWithMetrics(HttpResponse<String> response) {
+  private MetricsResponse handleResponseWithMetrics(HttpResponse<ResponseBody> response) {
     Map<MetricsResponse.Metrics, String> metrics = new HashMap<>();
     MetricsResponse.Metrics.vals().forEach(m ->
         response.headers().firstValue(m.getMetric()).ifPresent(v -> metrics.put(m, v))
@@ -396,12 +837,69 @@ public class FaunaClient {
     return MetricsResponse.of(value, metrics);
   }
 
-  private CompletableFuture<Value> performRequest(JsonNode body, Optional<Duration> queryTimeout) {
-    return handleNetworkExceptions(connection.post("", body, queryTimeout).thenApply(this::handleResponse));
+  private CompletableFuture<Value> performRequest(Object body, RequestParameters requestParameters) {
+    if (coalescer == null || !QueryCoalescer.canCoalesce(requestParameters)) {
+      return handle(post(body, requestParameters), this::handleResponse);
+    }
+
+    RequestBody requestBody;
+    try {
+      requestBody = RequestBody.write(json, body);
+    } catch (IOException ex) {
+      return CompletableFuture.failedFuture(ex);
+    }
+    return coalescer.coalesce(secret, requestParameters, requestBody,
+      () -> handle(post(requestBody, requestParameters), this::handleResponse));
+  }
+
+  private static RequestParameters readOnlyParameters() {
+    return new RequestParameters(Optional.empty(), Optional.empty(), new HashMap<>(), true);
+  }
+
+  private CompletableFuture<List<Value>> performBatchRequest(List<? extends Expr> exprs, RequestParameters requestParameters) {
+    CompletableFuture<Value> result = performRequest(exprs, requestParameters);
+    return cancelling(result, result.thenApply(value -> value.collect(Field.as(VALUE))));
+  }
+
+  private CompletableFuture<MetricsResponse> performRequestWithMetrics(Object body, RequestParameters requestParameters) {
+    return handle(post(body, requestParameters), this::handleResponseWithMetrics);
+  }
+
+  private <T> CompletableFuture<T> handle(CompletableFuture<HttpResponse<ResponseBody>> response,
+                                          Function<HttpResponse<ResponseBody>, T> handler) {
+    return cancelling(response, handleNetworkExceptions(decode(response, handler)));
+  }
+
+  /**
+   * Cancels the source future when the result derived from it is cancelled, down to the HTTP exchange.
+   */
+  private static <T> CompletableFuture<T> cancelling(CompletableFuture<?> source, CompletableFuture<T> result) {
+    result.whenComplete((value, ex) -> {
+      if (result.isCancelled()) source.cancel(true);
+    });
+    return result;
+  }
+
+  private <T> CompletableFuture<T> decode(CompletableFuture<HttpResponse<ResponseBody>> response,
+                                          Function<HttpResponse<ResponseBody>, T> handler) {
+    if (decodingStage == null) {
+      return response.thenApply(handler);
+    }
+    return response.thenCompose(rsp -> decodingStage.decode(rsp.body().length(), () -> handler.apply(rsp)));
+  }
+
+  private CompletableFuture<HttpResponse<ResponseBody>> post(Object body, RequestParameters requestParameters) {
+    RequestBody requestBody;
+    try {
+      requestBody = RequestBody.write(json, body);
+    } catch (IOException ex) {
+      return CompletableFuture.failedFuture(ex);
+    }
+    return post(requestBody, requestParameters);
   }
 
-  private CompletableFuture<MetricsResponse> performRequestWithMetrics(JsonNode body, Optional<Duration> queryTimeout) {
-    return handleNetworkExceptions(connection.post("", body, queryTimeout).thenApply(this::handleResponseWithMetrics));
+  private CompletableFuture<HttpResponse<ResponseBody>> post(RequestBody body, RequestParameters requestParameters) {
+    return connection.post("", body, requestParameters, ResponseBody.handler());
   }
 
   /**
@@ -482,6 +980,12 @@ public class FaunaClient {
     }
   }
 
+  private void handleQueryErrors(int statusCode, ResponseBody body) {
+    if (statusCode >= 300) {
+      handleQueryErrors(statusCode, body.toString());
+    }
+  }
+
   private void handleQueryErrors(int statusCode, String body) {
     if (statusCode >= 300) {
       try {
@@ -529,19 +1033,50 @@ public class FaunaClient {
   }
 
   private <V> CompletableFuture<V> handleNetworkExceptions(CompletableFuture<V> f) {
-    return f.whenComplete((v, ex) -> {
-      if (ex instanceof ConnectException || ex instanceof TimeoutException) {
-        throw new UnavailableException(ex.getMessage(), ex);
+    // whenComplete would drop the mapped exception, keeping the original one
+    return f.handle((v, ex) -> {
+      if (ex == null) {
+        return v;
+      }
+      Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+      if (cause instanceof ConnectException || cause instanceof TimeoutException) {
+        throw new CompletionException(new UnavailableException(cause.getMessage(), cause));
       }
-      if (ex instanceof CompletionException && ex.getCause() instanceof IOException && ex.getMessage().contains("header parser received no bytes")) {
-        throw new UnavailableException(ex.getMessage(), ex);
+      if (cause instanceof RejectedExecutionException) {
+        // the concurrency limiter or the circuit breaker did not let the request through
+        throw new CompletionException(new UnavailableException(cause.getMessage(), cause));
       }
-      if (ex instanceof CompletionException && ex.getCause() instanceof IOException && ex.getMessage().contains("too many concurrent streams")) {
-        throw new BadRequestException("the maximum number of streams has been reached for this client");
+      if (cause instanceof IOException && ex.getMessage().contains("header parser received no bytes")) {
+        throw new CompletionException(new UnavailableException(ex.getMessage(), ex));
       }
+      if (cause instanceof IOException && ex.getMessage().contains("too many concurrent streams")) {
+        throw new CompletionException(new BadRequestException("the maximum number of streams has been reached for this client"));
+      }
+      throw ex instanceof CompletionException ? (CompletionException) ex : new CompletionException(ex);
     });
   }
 
+  private Value parseResource(ResponseBody responseBody) throws IOException, IllegalArgumentException {
+    try (JsonParser parser = json.getFactory().createParser(responseBody.asInputStream())) {
+      if (parser.nextToken() != JsonToken.START_OBJECT) {
+        throw new IllegalArgumentException("Invalid JSON.");
+      }
+
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        String field = parser.getCurrentName();
+        JsonToken token = parser.nextToken();
+
+        if (field.equals("resource")) {
+          return token == JsonToken.VALUE_NULL ? NullV.NULL : json.readValue(parser, Value.class);
+        }
+
+        parser.skipChildren();
+      }
+
+      throw new IllegalArgumentException("Invalid JSON.");
+    }
+  }
+
   private JsonNode parseResponseBody(String responseBody) throws JsonProcessingException, IllegalArgumentException {
     JsonNode body = json.readTree(responseBody);
     if (body == null) {
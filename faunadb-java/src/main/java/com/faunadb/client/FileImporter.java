@@ -0,0 +1,729 @@
+package com.faunadb.client;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
+import com.faunadb.client.types.Value;
+import com.faunadb.client.types.Value.ObjectV;
+import com.faunadb.client.types.Value.StringV;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.lang.String.format;
+
+/**
+ * Imports the records of a local file, in newline-delimited JSON or CSV, through a {@link BulkWriter}.
+ *
+ * <p>The file is read through memory-mapped chunks, cut at line boundaries. Chunks are parsed in parallel,
+ * ahead of the writer, and their records are written in order. JSON lines are parsed into {@link Value}s
+ * as FaunaDB responses are, so files written by {@link SetExporter} are imported as they were exported.
+ * CSV lines become objects of strings, keyed by the names of the header line. Records must fit on a
+ * single line: CSV fields quoted over several lines are not supported, since chunks are cut at any line
+ * break. Such a record fails as an unterminated quoted field, and the lines it continues on are parsed as
+ * records of their own.</p>
+ *
+ * <p>Progress is saved to a side file at a regular interval: the offset up to which all records are
+ * either written or failed. An interrupted import resumes from that offset when run again. Records past
+ * that offset may have been written already, and are written again. Records which cannot be parsed or
+ * written are appended to an error file, one JSON line per record with its line number, offset and error.
+ * The error file is emptied first, unless the import resumes. Once the import completes, its progress file
+ * records the end of the file, so running it again writes nothing: delete the progress file to import the
+ * file again.</p>
+ *
+ * <b>Example</b>:
+ *
+ * <pre>{@code
+ * BulkWriter writer = BulkWriter.builder(client, doc ->
+ *   Replace(Select("ref", doc), Obj("data", Select("data", doc)))).build();
+ *
+ * FileImporter.Report report = FileImporter.builder(writer).build().importFile(Paths.get("users.ndjson"));
+ * }</pre>
+ */
+public final class FileImporter {
+
+  /**
+   * The format of the imported files.
+   */
+  public enum Format {
+    /**
+     * One JSON value per line.
+     */
+    NDJSON,
+    /**
+     * Comma-separated values, with a header line naming the fields.
+     */
+    CSV
+  }
+
+  /**
+   * Returns a new {@link Builder} instance.
+   *
+   * @param writer the writer the records are written with
+   * @return a new {@link Builder}
+   */
+  public static Builder builder(BulkWriter writer) {
+    return new Builder(writer);
+  }
+
+  /**
+   * A builder for the {@link FileImporter} instance.
+   */
+  public static final class Builder {
+
+    private final BulkWriter writer;
+    private Format format = Format.NDJSON;
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+    private int chunkBytes = 4 * 1024 * 1024;
+    private Path progressFile = null;
+    private Path errorFile = null;
+    private Duration progressInterval = Duration.ofSeconds(5);
+
+    private Builder(BulkWriter writer) {
+      this.writer = writer;
+    }
+
+    /**
+     * Sets the format of the imported files. Defaults to {@link Format#NDJSON}.
+     *
+     * @param format the file format
+     * @return this {@link Builder} object
+     */
+    public Builder withFormat(Format format) {
+      this.format = format;
+      return this;
+    }
+
+    /**
+     * Sets the number of threads parsing chunks. Defaults to the number of available processors.
+     *
+     * @param parallelism the number of parsing threads
+     * @return this {@link Builder} object
+     */
+    public Builder withParallelism(int parallelism) {
+      this.parallelism = parallelism;
+      return this;
+    }
+
+    /**
+     * Sets the size of the chunks the file is mapped and parsed by. Chunks are cut at the end of the last
+     * line they contain, and extended for lines longer than a chunk. Defaults to 4 MiB.
+     *
+     * @param bytes the chunk size, in bytes
+     * @return this {@link Builder} object
+     */
+    public Builder withChunkBytes(int bytes) {
+      this.chunkBytes = bytes;
+      return this;
+    }
+
+    /**
+     * Sets the file progress is saved to. Defaults to the imported file's name, followed by
+     * {@code .progress}.
+     *
+     * @param progressFile the progress file
+     * @return this {@link Builder} object
+     */
+    public Builder withProgressFile(Path progressFile) {
+      this.progressFile = progressFile;
+      return this;
+    }
+
+    /**
+     * Sets the file failed records are reported to. Defaults to the imported file's name, followed by
+     * {@code .errors}.
+     *
+     * @param errorFile the error file
+     * @return this {@link Builder} object
+     */
+    public Builder withErrorFile(Path errorFile) {
+      this.errorFile = errorFile;
+      return this;
+    }
+
+    /**
+     * Sets the minimum interval between two saves of the progress. Defaults to 5 seconds.
+     *
+     * @param interval the progress interval
+     * @return this {@link Builder} object
+     */
+    public Builder withProgressInterval(Duration interval) {
+      this.progressInterval = interval;
+      return this;
+    }
+
+    /**
+     * @return a newly constructed {@link FileImporter}
+     */
+    public FileImporter build() {
+      if (writer == null)
+        throw new IllegalArgumentException("A writer is required");
+      if (format == null)
+        throw new IllegalArgumentException("A format is required");
+      if (parallelism < 1)
+        throw new IllegalArgumentException(format("Invalid parallelism: %d", parallelism));
+      if (chunkBytes < 1)
+        throw new IllegalArgumentException(format("Invalid chunk size: %d bytes", chunkBytes));
+      if (progressInterval.isNegative())
+        throw new IllegalArgumentException(format("Invalid progress interval: %s", progressInterval));
+
+      return new FileImporter(this);
+    }
+  }
+
+  /**
+   * The outcome of an import.
+   */
+  public static final class Report {
+    private final long records;
+    private final long written;
+    private final long failed;
+    private final long offset;
+    private final boolean resumed;
+    private final Duration elapsed;
+
+    private Report(long records, long written, long failed, long offset, boolean resumed, Duration elapsed) {
+      this.records = records;
+      this.written = written;
+      this.failed = failed;
+      this.offset = offset;
+      this.resumed = resumed;
+      this.elapsed = elapsed;
+    }
+
+    /**
+     * @return the number of records read by this run
+     */
+    public long getRecords() {
+      return records;
+    }
+
+    /**
+     * @return the number of records written by this run
+     */
+    public long getWritten() {
+      return written;
+    }
+
+    /**
+     * @return the number of records which could not be parsed or written by this run
+     */
+    public long getFailed() {
+      return failed;
+    }
+
+    /**
+     * @return the offset up to which all records are imported, the size of the file once complete
+     */
+    public long getOffset() {
+      return offset;
+    }
+
+    /**
+     * @return whether the import resumed from saved progress
+     */
+    public boolean isResumed() {
+      return resumed;
+    }
+
+    /**
+     * @return the time spent by this run
+     */
+    public Duration getElapsed() {
+      return elapsed;
+    }
+
+    @Override
+    public String toString() {
+      return format("Report(records=%d, written=%d, failed=%d, offset=%d, resumed=%s, elapsed=%s)",
+        records, written, failed, offset, resumed, elapsed);
+    }
+  }
+
+  private static final ObjectMapper json = new ObjectMapper().registerModule(new Jdk8Module());
+  private static final AtomicInteger importerCount = new AtomicInteger();
+
+  private final BulkWriter writer;
+  private final Format format;
+  private final int parallelism;
+  private final int chunkBytes;
+  private final Path progressFile;
+  private final Path errorFile;
+  private final long progressIntervalNanos;
+
+  private FileImporter(Builder builder) {
+    this.writer = builder.writer;
+    this.format = builder.format;
+    this.parallelism = builder.parallelism;
+    this.chunkBytes = builder.chunkBytes;
+    this.progressFile = builder.progressFile;
+    this.errorFile = builder.errorFile;
+    this.progressIntervalNanos = builder.progressInterval.toNanos();
+  }
+
+  /**
+   * Imports the records of the file provided, or the records past the saved progress, blocking until the
+   * import completes.
+   *
+   * @param file the file to import
+   * @return the {@link Report} of the import
+   * @throws IOException if reading the file, or writing the progress or error files fails
+   */
+  public Report importFile(Path file) throws IOException {
+    Path progress = progressFile != null ? progressFile : file.resolveSibling(file.getFileName() + ".progress");
+    Path errors = errorFile != null ? errorFile : file.resolveSibling(file.getFileName() + ".errors");
+
+    int id = importerCount.incrementAndGet();
+    AtomicInteger threadCount = new AtomicInteger();
+    ThreadFactory threadFactory = task -> {
+      Thread thread = new Thread(task, format("fauna-import-%d-%d", id, threadCount.incrementAndGet()));
+      thread.setDaemon(true);
+      return thread;
+    };
+    ExecutorService parsers = Executors.newFixedThreadPool(parallelism, threadFactory);
+
+    // errors of a previous import are kept when resuming it only
+    boolean resumed = Files.exists(progress);
+    StandardOpenOption errorMode = resumed ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING;
+
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+         BufferedWriter errorWriter = Files.newBufferedWriter(errors, StandardCharsets.UTF_8,
+           StandardOpenOption.CREATE, StandardOpenOption.WRITE, errorMode)) {
+      return new Job(channel, parsers, progress, resumed, errorWriter).run();
+    } finally {
+      parsers.shutdownNow();
+    }
+  }
+
+  private static final class Record {
+    private final int line; // within its chunk
+    private final long start;
+    private final long end;
+    private final Value value;
+    private final String error;
+
+    private Record(int line, long start, long end, Value value, String error) {
+      this.line = line;
+      this.start = start;
+      this.end = end;
+      this.value = value;
+      this.error = error;
+    }
+  }
+
+  private static final class Chunk {
+    private final List<Record> records;
+    private final int lines;
+
+    private Chunk(List<Record> records, int lines) {
+      this.records = records;
+      this.lines = lines;
+    }
+  }
+
+  private static final class Pending {
+    private final long line;
+    private final long start;
+    private final long end;
+
+    private Pending(long line, long start, long end) {
+      this.line = line;
+      this.start = start;
+      this.end = end;
+    }
+  }
+
+  private final class Job implements Iterator<Value>, BulkWriter.DocumentListener {
+    private final FileChannel channel;
+    private final ExecutorService parsers;
+    private final Path progressFile;
+    private final boolean resumed;
+    private final BufferedWriter errorWriter;
+    private final long size;
+    private final long startNanos = System.nanoTime();
+
+    // accessed from the writer's source iterator only
+    private final ArrayDeque<CompletableFuture<Chunk>> chunks = new ArrayDeque<>();
+    private List<String> header = null;
+    private long position;
+    private long lineBase;
+    private Chunk current = null;
+    private int currentIndex = 0;
+    private long currentLineBase = 0;
+    private long nextIndex = 0;
+    private Value next = null;
+    private boolean exhausted = false;
+
+    // records handed to the writer, by index, until they are committed
+    private final Map<Long, Pending> pending = new ConcurrentHashMap<>();
+
+    // guarded by this
+    private final TreeSet<Long> completed = new TreeSet<>();
+    private long nextCommit = 0;
+    private long committedOffset;
+    private long committedLine;
+    private long records = 0;
+    private long failed = 0;
+    private long lastSaveNanos = System.nanoTime();
+    private IOException ioFailure = null;
+
+    private Job(FileChannel channel, ExecutorService parsers, Path progressFile, boolean resumed,
+                BufferedWriter errorWriter) throws IOException {
+      this.channel = channel;
+      this.parsers = parsers;
+      this.progressFile = progressFile;
+      this.resumed = resumed;
+      this.errorWriter = errorWriter;
+      this.size = channel.size();
+    }
+
+    private Report run() throws IOException {
+      long dataStart = 0;
+      if (format == Format.CSV) {
+        dataStart = readHeader();
+      }
+
+      if (resumed) {
+        JsonNode saved = json.readTree(progressFile.toFile());
+        committedOffset = Math.max(dataStart, saved.path("offset").asLong());
+        committedLine = saved.path("line").asLong();
+      } else {
+        committedOffset = dataStart;
+        committedLine = dataStart > 0 ? 1 : 0;
+      }
+      position = committedOffset;
+      lineBase = committedLine;
+
+      BulkWriter.Report written;
+      try {
+        written = writer.write(this, this).join();
+      } catch (CompletionException ex) {
+        Throwable cause = ex.getCause() instanceof UncheckedIOException ? ex.getCause().getCause() : ex.getCause();
+        synchronized (this) {
+          saveProgress();
+        }
+        if (cause instanceof IOException) throw (IOException) cause;
+        if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+        throw ex;
+      }
+
+      synchronized (this) {
+        if (ioFailure != null) {
+          throw ioFailure;
+        }
+        // failed records past the last committed one are reported already
+        committedOffset = size;
+        committedLine = lineBase;
+        saveProgress();
+
+        return new Report(records, written.getWritten(), failed, committedOffset, resumed,
+          Duration.ofNanos(System.nanoTime() - startNanos));
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      if (next == null && !exhausted) {
+        next = advance();
+        exhausted = next == null;
+      }
+      return next != null;
+    }
+
+    @Override
+    public Value next() {
+      if (!hasNext()) throw new NoSuchElementException();
+      Value value = next;
+      next = null;
+      return value;
+    }
+
+    private Value advance() {
+      while (true) {
+        synchronized (this) {
+          // stops feeding the writer once the progress can't be saved
+          if (ioFailure != null) return null;
+        }
+
+        if (current != null && currentIndex < current.records.size()) {
+          Record record = current.records.get(currentIndex++);
+          long line = currentLineBase + record.line + 1;
+
+          synchronized (this) {
+            records++;
+            if (record.error != null) {
+              failed++;
+              reportError(line, record.start, record.error);
+              continue;
+            }
+          }
+
+          pending.put(nextIndex++, new Pending(line, record.start, record.end));
+          return record.value;
+        }
+
+        try {
+          while (chunks.size() < parallelism * 2 && position < size) {
+            chunks.add(nextChunk());
+          }
+        } catch (IOException ex) {
+          throw new UncheckedIOException(ex);
+        }
+
+        CompletableFuture<Chunk> chunk = chunks.poll();
+        if (chunk == null) return null;
+
+        current = chunk.join();
+        currentIndex = 0;
+        currentLineBase = lineBase;
+        lineBase += current.lines;
+      }
+    }
+
+    @Override
+    public synchronized void onCompleted(long index, Throwable failure) {
+      if (failure != null) {
+        Pending record = pending.get(index);
+        failed++;
+        reportError(record.line, record.start, describe(failure));
+      }
+
+      completed.add(index);
+      while (!completed.isEmpty() && completed.first() == nextCommit) {
+        completed.pollFirst();
+        Pending record = pending.remove(nextCommit++);
+        committedOffset = record.end;
+        committedLine = record.line;
+      }
+
+      if (System.nanoTime() - lastSaveNanos >= progressIntervalNanos) {
+        saveProgress();
+      }
+    }
+
+    /**
+     * Maps the next chunk, up to the end of its last line, and parses it in the background.
+     */
+    private CompletableFuture<Chunk> nextChunk() throws IOException {
+      long start = position;
+      long length = Math.min(chunkBytes, size - start);
+
+      while (true) {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+        int end = start + length == size ? (int) length : lastLineEnd(buffer);
+
+        if (end > 0) {
+          buffer.limit(end);
+          position = start + end;
+          return CompletableFuture.supplyAsync(() -> parse(buffer, start), parsers);
+        }
+
+        // a line longer than the chunk
+        length = Math.min(length * 2, size - start);
+      }
+    }
+
+    private long readHeader() throws IOException {
+      long length = Math.min(chunkBytes, size);
+
+      while (true) {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+        int end = firstLineEnd(buffer);
+        if (end < 0 && length == size) end = (int) length;
+
+        if (end >= 0) {
+          byte[] bytes = new byte[end];
+          buffer.get(bytes);
+          header = parseCsv(trimLine(new String(bytes, StandardCharsets.UTF_8)));
+          return end;
+        }
+
+        length = Math.min(length * 2, size);
+      }
+    }
+
+    private Chunk parse(ByteBuffer buffer, long offset) {
+      List<Record> parsed = new ArrayList<>();
+      byte[] line = new byte[256];
+      int lines = 0;
+      int start = 0;
+      int limit = buffer.limit();
+
+      while (start < limit) {
+        int end = start;
+        while (end < limit && buffer.get(end) != '\n') end++;
+        int next = end < limit ? end + 1 : end;
+
+        int length = end - start;
+        if (length > 0 && buffer.get(end - 1) == '\r') length--;
+
+        if (length > 0) {
+          if (line.length < length) line = new byte[Math.max(length, line.length * 2)];
+          buffer.position(start);
+          buffer.get(line, 0, length);
+          parsed.add(parseRecord(line, length, lines, offset + start, offset + next));
+        }
+
+        lines++;
+        start = next;
+      }
+
+      return new Chunk(parsed, lines);
+    }
+
+    private Record parseRecord(byte[] bytes, int length, int line, long start, long end) {
+      try {
+        Value value;
+        if (format == Format.NDJSON) {
+          value = json.readValue(bytes, 0, length, Value.class);
+        } else {
+          List<String> fields = parseCsv(new String(bytes, 0, length, StandardCharsets.UTF_8));
+          if (fields.size() != header.size())
+            throw new IllegalArgumentException(format("Expected %d fields but got %d", header.size(), fields.size()));
+
+          Map<String, Value> object = new LinkedHashMap<>();
+          for (int i = 0; i < fields.size(); i++) {
+            object.put(header.get(i), new StringV(fields.get(i)));
+          }
+          value = new ObjectV(object);
+        }
+        return new Record(line, start, end, value, null);
+      } catch (JsonProcessingException ex) {
+        return new Record(line, start, end, null, ex.getOriginalMessage());
+      } catch (IOException | RuntimeException ex) {
+        return new Record(line, start, end, null, ex.getMessage());
+      }
+    }
+
+    // guarded by this
+    private void reportError(long line, long offset, String error) {
+      if (ioFailure != null) return;
+
+      try {
+        ObjectNode node = json.createObjectNode();
+        node.put("line", line);
+        node.put("offset", offset);
+        node.put("error", error);
+        errorWriter.write(json.writeValueAsString(node));
+        errorWriter.newLine();
+      } catch (IOException ex) {
+        ioFailure = ex;
+      }
+    }
+
+    // guarded by this
+    private void saveProgress() {
+      if (ioFailure != null) return;
+
+      Path tmp = null;
+      try {
+        // errors of committed records are saved before the progress moves past them
+        errorWriter.flush();
+
+        ObjectNode node = json.createObjectNode();
+        node.put("offset", committedOffset);
+        node.put("line", committedLine);
+
+        // written aside and moved, so a crash never leaves a partial file
+        tmp = Files.createTempFile(progressFile.toAbsolutePath().getParent(), progressFile.getFileName().toString(), ".tmp");
+        json.writeValue(tmp.toFile(), node);
+        Files.move(tmp, progressFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        lastSaveNanos = System.nanoTime();
+      } catch (IOException ex) {
+        ioFailure = ex;
+      } finally {
+        try {
+          if (tmp != null) Files.deleteIfExists(tmp);
+        } catch (IOException ignored) {
+        }
+      }
+    }
+  }
+
+  private static String describe(Throwable failure) {
+    return failure.getMessage() != null ? failure.getMessage() : failure.getClass().getName();
+  }
+
+  private static int lastLineEnd(ByteBuffer buffer) {
+    for (int i = buffer.limit() - 1; i >= 0; i--) {
+      if (buffer.get(i) == '\n') return i + 1;
+    }
+    return -1;
+  }
+
+  private static int firstLineEnd(ByteBuffer buffer) {
+    for (int i = 0; i < buffer.limit(); i++) {
+      if (buffer.get(i) == '\n') return i + 1;
+    }
+    return -1;
+  }
+
+  private static String trimLine(String line) {
+    int end = line.length();
+    while (end > 0 && (line.charAt(end - 1) == '\n' || line.charAt(end - 1) == '\r')) end--;
+    return line.substring(0, end);
+  }
+
+  /**
+   * Splits a CSV line into its fields. Fields may be quoted, with quotes escaped by doubling them.
+   */
+  private static List<String> parseCsv(String line) {
+    List<String> fields = new ArrayList<>();
+    StringBuilder field = new StringBuilder();
+    boolean quoted = false;
+
+    for (int i = 0; i < line.length(); i++) {
+      char c = line.charAt(i);
+      if (quoted) {
+        if (c != '"') {
+          field.append(c);
+        } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+          field.append('"');
+          i++;
+        } else {
+          quoted = false;
+        }
+      } else if (c == '"') {
+        quoted = true;
+      } else if (c == ',') {
+        fields.add(field.toString());
+        field.setLength(0);
+      } else {
+        field.append(c);
+      }
+    }
+
+    if (quoted)
+      throw new IllegalArgumentException("Unterminated quoted field");
+
+    fields.add(field.toString());
+    return fields;
+  }
+}
@@ -0,0 +1,313 @@
+package com.faunadb.client;
+
+import com.faunadb.client.query.Expr;
+import com.faunadb.client.query.Language;
+import com.faunadb.client.query.Pagination;
+import com.faunadb.client.types.Codec;
+import com.faunadb.client.types.Value;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import static com.faunadb.client.query.Language.Paginate;
+import static java.lang.String.format;
+
+/**
+ * Walks all the pages of a set, and provides their elements one by one, as a
+ * {@link java.util.concurrent.Flow.Publisher}, an {@link Iterator} or a {@link Stream}.
+ *
+ * <p>Each page is queried with the {@code after} cursor of the previous one. As soon as a page is received,
+ * the next one is fetched, while the elements of the current page are consumed. At most one page is
+ * fetched ahead, so a slow consumer holds back the pagination.</p>
+ *
+ * <p>Instances are immutable. Each subscription, iterator or stream walks the set from its start, with its
+ * own queries.</p>
+ *
+ * <b>Example</b>:
+ *
+ * <pre>{@code
+ * client.paginate(Documents(Collection("users")))
+ *   .withPageSize(500)
+ *   .withLambda(Lambda("ref", Get(Var("ref"))))
+ *   .stream()
+ *   .forEach(user -> System.out.println(user.at("data", "name")));
+ * }</pre>
+ *
+ * @see FaunaClient#paginate(Expr)
+ */
+public final class Paginator implements Flow.Publisher<Value>, Iterable<Value> {
+
+  private final FaunaClient client;
+  private final Expr set;
+  private final Optional<Integer> pageSize;
+  private final Optional<Expr> lambda;
+  private final Optional<Duration> timeout;
+
+  Paginator(FaunaClient client, Expr set) {
+    this(client, set, Optional.empty(), Optional.empty(), Optional.empty());
+  }
+
+  private Paginator(FaunaClient client, Expr set, Optional<Integer> pageSize, Optional<Expr> lambda,
+                    Optional<Duration> timeout) {
+    this.client = client;
+    this.set = set;
+    this.pageSize = pageSize;
+    this.lambda = lambda;
+    this.timeout = timeout;
+  }
+
+  /**
+   * Returns a copy of this paginator, fetching pages of the size provided. Defaults to FaunaDB's default
+   * page size.
+   *
+   * @param pageSize the number of elements per page
+   * @return a new {@link Paginator}
+   */
+  public Paginator withPageSize(int pageSize) {
+    if (pageSize < 1)
+      throw new IllegalArgumentException(format("Invalid page size: %d", pageSize));
+
+    return new Paginator(client, set, Optional.of(pageSize), lambda, timeout);
+  }
+
+  /**
+   * Returns a copy of this paginator, mapping each element with the lambda provided, within the query
+   * fetching its page.
+   *
+   * @param lambda the lambda applied to each element, such as {@code Lambda("ref", Get(Var("ref")))}
+   * @return a new {@link Paginator}
+   */
+  public Paginator withLambda(Expr lambda) {
+    return new Paginator(client, set, pageSize, Optional.of(lambda), timeout);
+  }
+
+  /**
+   * Returns a copy of this paginator, querying each page with the timeout provided. Defaults to the
+   * client's query timeout.
+   *
+   * @param timeout the query timeout of each page
+   * @return a new {@link Paginator}
+   */
+  public Paginator withTimeout(Duration timeout) {
+    return new Paginator(client, set, pageSize, lambda, Optional.of(timeout));
+  }
+
+  /**
+   * Subscribes to the elements of the set. The first page is fetched once elements are requested.
+   * Cancelling the subscription cancels the query in flight, if any.
+   *
+   * @param subscriber the subscriber to the elements
+   */
+  @Override
+  public void subscribe(Flow.Subscriber<? super Value> subscriber) {
+    subscriber.onSubscribe(new PageSubscription(subscriber));
+  }
+
+  /**
+   * Returns an iterator over the elements of the set, blocking while the next page is fetched. Errors
+   * are thrown by {@link Iterator#hasNext()}.
+   *
+   * @return a new {@link Iterator}
+   */
+  @Override
+  public Iterator<Value> iterator() {
+    return new PageIterator();
+  }
+
+  /**
+   * Returns a spliterator over the elements of the set, of unknown size.
+   *
+   * @return a new {@link Spliterator}
+   */
+  @Override
+  public Spliterator<Value> spliterator() {
+    return Spliterators.spliteratorUnknownSize(iterator(), Spliterator.ORDERED | Spliterator.NONNULL);
+  }
+
+  /**
+   * Returns a sequential stream of the elements of the set. Closing the stream cancels the query in
+   * flight, if any.
+   *
+   * @return a new {@link Stream}
+   */
+  public Stream<Value> stream() {
+    PageIterator iterator = new PageIterator();
+    Spliterator<Value> spliterator = Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL);
+    return StreamSupport.stream(spliterator, false).onClose(iterator::cancel);
+  }
+
+  private static final class Page {
+    private final List<Value> elements;
+    private final Optional<Value> after;
+
+    private Page(List<Value> elements, Optional<Value> after) {
+      this.elements = elements;
+      this.after = after;
+    }
+  }
+
+  private CompletableFuture<Page> fetch(Optional<Value> after) {
+    Pagination pagination = Paginate(set);
+    pageSize.ifPresent(pagination::size);
+    after.ifPresent(pagination::after);
+
+    Expr query = lambda.isPresent() ? Language.Map(pagination, lambda.get()) : pagination;
+    CompletableFuture<Value> page = client.query(query, timeout, true);
+    CompletableFuture<Page> result = page.thenApply(value ->
+      new Page(value.at("data").to(Codec.ARRAY).get(), value.at("after").getOptional()));
+
+    // cancelling the page cancels its query
+    result.whenComplete((value, ex) -> {
+      if (result.isCancelled()) page.cancel(true);
+    });
+    return result;
+  }
+
+  private static Throwable unwrap(Throwable ex) {
+    return ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+  }
+
+  private final class PageIterator implements Iterator<Value> {
+    private List<Value> current = List.of();
+    private int index = 0;
+    private CompletableFuture<Page> next = null;
+    private boolean started = false;
+
+    @Override
+    public boolean hasNext() {
+      if (!started) {
+        started = true;
+        next = fetch(Optional.empty());
+      }
+
+      while (index == current.size()) {
+        if (next == null) return false;
+
+        Page page;
+        try {
+          page = next.join();
+        } catch (CompletionException ex) {
+          next = null;
+          Throwable cause = unwrap(ex);
+          throw cause instanceof RuntimeException ? (RuntimeException) cause : ex;
+        }
+
+        current = page.elements;
+        index = 0;
+        // fetched while this page is consumed
+        next = page.after.map(after -> fetch(Optional.of(after))).orElse(null);
+      }
+      return true;
+    }
+
+    @Override
+    public Value next() {
+      if (!hasNext()) throw new NoSuchElementException();
+      return current.get(index++);
+    }
+
+    private void cancel() {
+      CompletableFuture<Page> pending = next;
+      next = null;
+      current = List.of();
+      if (pending != null) pending.cancel(true);
+    }
+  }
+
+  private final class PageSubscription implements Flow.Subscription {
+    private final Flow.Subscriber<? super Value> subscriber;
+    private final AtomicLong demand = new AtomicLong();
+    private final AtomicInteger wip = new AtomicInteger();
+    private volatile boolean done = false;
+    private volatile CompletableFuture<Page> next = null;
+
+    // accessed from the drain loop only
+    private boolean started = false;
+    private List<Value> current = List.of();
+    private int index = 0;
+
+    private PageSubscription(Flow.Subscriber<? super Value> subscriber) {
+      this.subscriber = subscriber;
+    }
+
+    @Override
+    public void request(long n) {
+      if (n <= 0) {
+        cancel();
+        subscriber.onError(new IllegalArgumentException("non-positive subscription request: " + n));
+        return;
+      }
+
+      demand.getAndAccumulate(n, (current, more) -> current + more < 0 ? Long.MAX_VALUE : current + more);
+      drain();
+    }
+
+    @Override
+    public void cancel() {
+      done = true;
+      CompletableFuture<Page> pending = next;
+      if (pending != null) pending.cancel(true);
+    }
+
+    private void drain() {
+      if (wip.getAndIncrement() != 0) return;
+
+      do {
+        if (!started && !done && demand.get() > 0) {
+          started = true;
+          next = subscribe(fetch(Optional.empty()));
+        }
+
+        while (started && !done) {
+          if (index == current.size()) {
+            CompletableFuture<Page> pending = next;
+            if (pending == null) {
+              done = true;
+              subscriber.onComplete();
+              break;
+            }
+            if (!pending.isDone()) break;
+
+            Page page;
+            try {
+              page = pending.join();
+            } catch (CompletionException | CancellationException ex) {
+              done = true;
+              subscriber.onError(unwrap(ex));
+              break;
+            }
+
+            current = page.elements;
+            index = 0;
+            // fetched while this page is consumed
+            next = page.after.isPresent() ? subscribe(fetch(page.after)) : null;
+            continue;
+          }
+
+          if (demand.get() == 0) break;
+          demand.decrementAndGet();
+          subscriber.onNext(current.get(index++));
+        }
+      } while (wip.decrementAndGet() != 0);
+    }
+
+    private CompletableFuture<Page> subscribe(CompletableFuture<Page> page) {
+      page.whenComplete((value, ex) -> drain());
+      if (done) page.cancel(true);
+      return page;
+    }
+  }
+}
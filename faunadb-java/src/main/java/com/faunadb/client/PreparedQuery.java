@@ -0,0 +1,204 @@
+package com.faunadb.client;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.faunadb.client.query.Expr;
+import com.faunadb.common.http.RequestBody;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import static java.lang.String.format;
+
+/**
+ * A query template with named parameters, serialized once and executed many times.
+ *
+ * <p>The template is rendered to JSON when prepared. Executing it only serializes the parameter
+ * values and splices them in between the pre-rendered segments of the template.</p>
+ *
+ * <p>Instances are immutable and thread safe. They can be kept around and shared by any number of
+ * {@link FaunaClient} instances, including session clients.</p>
+ *
+ * <b>Example</b>:
+ *
+ * <pre>{@code
+ * PreparedQuery getUser = client.prepare(
+ *   Get(Ref(Collection("users"), PreparedQuery.Param("id")))
+ * );
+ *
+ * Value user = client.query(getUser, Collections.singletonMap("id", Value("181388642581742080"))).get();
+ * }</pre>
+ *
+ * @see FaunaClient#prepare(Expr)
+ * @see FaunaClient#query(PreparedQuery, Map)
+ */
+public final class PreparedQuery {
+
+  /**
+   * A placeholder for a parameter of a {@link PreparedQuery}.
+   *
+   * @see #Param(String)
+   */
+  @JsonSerialize(using = PlaceholderSerializer.class)
+  private static final class Placeholder extends Expr {
+    private final String name;
+
+    private Placeholder(String name) {
+      this.name = Objects.requireNonNull(name);
+    }
+
+    @Override
+    protected String toJson() {
+      return name;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      return other instanceof Placeholder && name.equals(((Placeholder) other).name);
+    }
+
+    @Override
+    public int hashCode() {
+      return name.hashCode();
+    }
+  }
+
+  /**
+   * Creates a placeholder for the named parameter. The placeholder is replaced by the value bound to
+   * the parameter each time the prepared query is executed. Placeholders can only be used in
+   * templates given to {@link FaunaClient#prepare(Expr)}.
+   *
+   * @param name the parameter name
+   * @return a new placeholder expression
+   */
+  public static Expr Param(String name) {
+    return new Placeholder(name);
+  }
+
+  private final List<RequestBody> segments;
+  private final List<String> params;
+  private final Set<String> parameters;
+
+  private PreparedQuery(List<RequestBody> segments, List<String> params) {
+    this.segments = segments;
+    this.params = params;
+    this.parameters = Collections.unmodifiableSet(new LinkedHashSet<>(params));
+  }
+
+  /**
+   * @return the names of the parameters in the template
+   */
+  public Set<String> parameters() {
+    return parameters;
+  }
+
+  static PreparedQuery prepare(ObjectMapper json, Expr template) throws IOException {
+    Recorder recorder = new Recorder();
+    json.writer()
+      .withAttribute(Recorder.class, recorder)
+      .writeValue(recorder.out, template);
+
+    return recorder.result();
+  }
+
+  RequestBody bind(ObjectMapper json, Map<String, ? extends Expr> values) throws IOException {
+    Map<String, RequestBody> encoded = new HashMap<>();
+    for (Map.Entry<String, ? extends Expr> entry : values.entrySet()) {
+      if (!parameters.contains(entry.getKey()))
+        throw new IllegalArgumentException(format("Unknown parameter %s", entry.getKey()));
+      if (entry.getValue() == null)
+        throw new IllegalArgumentException(format("Missing value for parameter %s", entry.getKey()));
+
+      encoded.put(entry.getKey(), RequestBody.write(json, entry.getValue()));
+    }
+
+    return bindEncoded(encoded);
+  }
+
+  /**
+   * Binds already serialized values to the parameters, such as values serialized ahead of time to
+   * measure them.
+   */
+  RequestBody bindEncoded(Map<String, RequestBody> encoded) {
+    List<RequestBody> parts = new ArrayList<>(segments.size() + params.size());
+    parts.add(segments.get(0));
+
+    for (int i = 0; i < params.size(); i++) {
+      String name = params.get(i);
+      RequestBody value = encoded.get(name);
+      if (value == null)
+        throw new IllegalArgumentException(format("Missing value for parameter %s", name));
+
+      parts.add(value);
+      parts.add(segments.get(i + 1));
+    }
+
+    return RequestBody.concat(parts);
+  }
+
+  @Override
+  public String toString() {
+    return format("PreparedQuery(%s)", parameters);
+  }
+
+  /**
+   * Collects the template segments in between parameters while the template is serialized.
+   */
+  private static final class Recorder {
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    private final List<Integer> marks = new ArrayList<>();
+    private final List<String> params = new ArrayList<>();
+
+    private void mark(String name) {
+      marks.add(out.size());
+      params.add(name);
+    }
+
+    private PreparedQuery result() {
+      byte[] bytes = out.toByteArray();
+      List<RequestBody> segments = new ArrayList<>(marks.size() + 1);
+      int start = 0;
+
+      for (int mark : marks) {
+        segments.add(RequestBody.of(bytes, start, mark - start));
+        start = mark;
+      }
+
+      segments.add(RequestBody.of(bytes, start, bytes.length - start));
+      return new PreparedQuery(Collections.unmodifiableList(segments), Collections.unmodifiableList(params));
+    }
+  }
+
+  static final class PlaceholderSerializer extends StdSerializer<Placeholder> {
+    private static final long serialVersionUID = 1L;
+
+    PlaceholderSerializer() {
+      super(Placeholder.class);
+    }
+
+    @Override
+    public void serialize(Placeholder param, JsonGenerator gen, SerializerProvider provider) throws IOException {
+      Recorder recorder = (Recorder) provider.getAttribute(Recorder.class);
+
+      if (recorder == null)
+        throw JsonMappingException.from(provider, format("Parameter %s used outside of a prepared query", param.name));
+
+      // writes the separator preceding the value, if any, leaving the generator ready for the next token
+      gen.writeRawValue("");
+      gen.flush();
+      recorder.mark(param.name);
+    }
+  }
+}
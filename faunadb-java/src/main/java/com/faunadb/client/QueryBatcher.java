@@ -0,0 +1,184 @@
+package com.faunadb.client;
+
+import com.faunadb.client.errors.BadRequestException;
+import com.faunadb.client.errors.FaunaException;
+import com.faunadb.client.errors.NotFoundException;
+import com.faunadb.client.errors.PermissionDeniedException;
+import com.faunadb.client.query.Expr;
+import com.faunadb.client.types.Value;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Collects concurrent single read-only queries into batches, each sent as one multi-expression request.
+ *
+ * <p>The first query of a batch opens a time window. The batch is sent once the window closes, or as
+ * soon as it is full. A batch of a single query is sent as a single query.</p>
+ *
+ * <p>The expressions of a multi-expression request run in a single transaction, which is why only reads
+ * are batched: writes would commit or abort together. A query failing aborts the whole batch. When the
+ * failure points to one of the queries, such as an invalid reference or a missing document, that query is
+ * sent again on its own to get its own error, and the others are sent again as a batch. If the failing query
+ * cannot be told, all queries are sent again on their own. Failures of the whole request, such as network
+ * errors or overload, fail all its queries.</p>
+ */
+final class QueryBatcher {
+
+  private static final class Pending {
+    private final Expr expr;
+    private final CompletableFuture<Value> result = new CompletableFuture<>();
+
+    private Pending(Expr expr) {
+      this.expr = expr;
+    }
+  }
+
+  private final long windowNanos;
+  private final int maxBatchSize;
+  private final Executor executor;
+  private final Function<Expr, CompletableFuture<Value>> sendOne;
+  private final Function<List<Expr>, CompletableFuture<List<Value>>> sendAll;
+
+  private List<Pending> batch = new ArrayList<>(); // guarded by this
+
+  /**
+   * @param window how long a batch collects queries
+   * @param maxBatchSize the maximum number of queries per batch
+   * @param executor runs the batches sent once their window closes
+   * @param sendOne sends a single query
+   * @param sendAll sends several queries in one request
+   */
+  QueryBatcher(Duration window, int maxBatchSize, Executor executor,
+               Function<Expr, CompletableFuture<Value>> sendOne,
+               Function<List<Expr>, CompletableFuture<List<Value>>> sendAll) {
+    if (window.isNegative())
+      throw new IllegalArgumentException("Batching window must not be negative");
+    if (maxBatchSize < 1)
+      throw new IllegalArgumentException("Batch size must be at least 1");
+
+    this.windowNanos = window.toNanos();
+    this.maxBatchSize = maxBatchSize;
+    this.executor = executor;
+    this.sendOne = sendOne;
+    this.sendAll = sendAll;
+  }
+
+  /**
+   * Adds a query to the current batch.
+   *
+   * @param expr the query
+   * @return a {@link CompletableFuture} completed with the query's own result
+   */
+  CompletableFuture<Value> submit(Expr expr) {
+    Pending pending = new Pending(expr);
+    List<Pending> opened = null;
+    List<Pending> full = null;
+
+    synchronized (this) {
+      batch.add(pending);
+      if (batch.size() == 1) {
+        opened = batch;
+      }
+      if (batch.size() >= maxBatchSize) {
+        full = batch;
+        batch = new ArrayList<>();
+      }
+    }
+
+    if (full != null) {
+      send(full);
+    } else if (opened != null) {
+      List<Pending> window = opened;
+      CompletableFuture.delayedExecutor(windowNanos, TimeUnit.NANOSECONDS, executor).execute(() -> flush(window));
+    }
+
+    return pending.result;
+  }
+
+  private void flush(List<Pending> window) {
+    synchronized (this) {
+      // already sent once full
+      if (batch != window) return;
+      batch = new ArrayList<>();
+    }
+    send(window);
+  }
+
+  private void send(List<Pending> queries) {
+    if (queries.size() == 1) {
+      Pending pending = queries.get(0);
+      sendOne.apply(pending.expr).whenComplete((value, ex) -> {
+        if (ex != null) {
+          pending.result.completeExceptionally(ex);
+        } else {
+          pending.result.complete(value);
+        }
+      });
+      return;
+    }
+
+    List<Expr> exprs = new ArrayList<>(queries.size());
+    for (Pending pending : queries) {
+      exprs.add(pending.expr);
+    }
+
+    sendAll.apply(exprs).whenComplete((values, ex) -> {
+      if (ex == null) {
+        for (int i = 0; i < queries.size(); i++) {
+          queries.get(i).result.complete(values.get(i));
+        }
+        return;
+      }
+
+      Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+      if (!isQueryError(cause)) {
+        for (Pending pending : queries) {
+          pending.result.completeExceptionally(ex);
+        }
+        return;
+      }
+
+      int failed = failedQuery((FaunaException) cause, queries.size());
+      if (failed < 0) {
+        for (Pending pending : queries) {
+          send(List.of(pending));
+        }
+        return;
+      }
+
+      List<Pending> others = new ArrayList<>(queries);
+      send(List.of(others.remove(failed)));
+      send(others);
+    });
+  }
+
+  /**
+   * @return whether the failure is caused by the queries themselves, rather than the request
+   */
+  private static boolean isQueryError(Throwable cause) {
+    return cause instanceof BadRequestException || cause instanceof NotFoundException || cause instanceof PermissionDeniedException;
+  }
+
+  /**
+   * @return the index of the query the error points to, or -1 if unknown
+   */
+  private static int failedQuery(FaunaException ex, int size) {
+    List<HttpResponses.QueryError> errors = ex.errors();
+    if (errors.isEmpty() || errors.get(0).position().isEmpty())
+      return -1;
+
+    try {
+      int index = Integer.parseInt(errors.get(0).position().get(0));
+      return index >= 0 && index < size ? index : -1;
+    } catch (NumberFormatException nfe) {
+      return -1;
+    }
+  }
+}
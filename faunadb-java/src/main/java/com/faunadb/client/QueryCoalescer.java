@@ -0,0 +1,107 @@
+package com.faunadb.client;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import com.faunadb.client.types.Value;
+import com.faunadb.common.http.RequestBody;
+import com.faunadb.common.models.request.RequestParameters;
+
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Shares a single request among identical read-only queries in flight at the same time.
+ *
+ * <p>Queries are identical when they are sent with the same secret, the same serialized body, the same
+ * timeout and the same tags. The first of them is sent to FaunaDB, and the others wait for its response,
+ * decoded once. Queries arriving once the response is in are sent again, so results are never older than
+ * the queries themselves.</p>
+ *
+ * <p>A coalescer is shared by a {@link FaunaClient} and all its session clients.</p>
+ */
+final class QueryCoalescer {
+
+  private static final class Key {
+    private final String secret;
+    private final RequestParameters parameters;
+    private final RequestBody body;
+
+    private Key(String secret, RequestParameters parameters, RequestBody body) {
+      this.secret = secret;
+      this.parameters = parameters;
+      this.body = body;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (this == other) return true;
+      if (!(other instanceof Key)) return false;
+
+      Key that = (Key) other;
+      return Objects.equals(secret, that.secret) &&
+        parameters.getTimeout().equals(that.parameters.getTimeout()) &&
+        parameters.getTags().equals(that.parameters.getTags()) &&
+        body.equals(that.body);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(secret, parameters.getTimeout(), parameters.getTags(), body);
+    }
+  }
+
+  private final ConcurrentHashMap<Key, CompletableFuture<Value>> inFlight = new ConcurrentHashMap<>();
+  private final Counter coalesced = new Counter();
+
+  /**
+   * @return whether queries sent with the parameters provided may share their request with others
+   */
+  static boolean canCoalesce(RequestParameters parameters) {
+    // traced and deadline-bound queries keep their own request
+    return parameters.isReadOnly() && parameters.getTraceId().isEmpty() && parameters.getDeadline().isEmpty();
+  }
+
+  /**
+   * Joins the identical query in flight, if any, or sends this one.
+   *
+   * @param secret the secret the query is authenticated with
+   * @param parameters the query parameters
+   * @param body the serialized query
+   * @param send sends the query and decodes its response
+   * @return a {@link CompletableFuture} completed with the shared response. Cancelling it only stops waiting.
+   */
+  CompletableFuture<Value> coalesce(String secret, RequestParameters parameters, RequestBody body,
+                                    Supplier<CompletableFuture<Value>> send) {
+    Key key = new Key(secret, parameters, body);
+    CompletableFuture<Value> shared = new CompletableFuture<>();
+    CompletableFuture<Value> existing = inFlight.putIfAbsent(key, shared);
+    if (existing != null) {
+      coalesced.inc();
+      return existing.copy();
+    }
+
+    send.get().whenComplete((value, ex) -> {
+      // later queries must not get this response once it is delivered
+      inFlight.remove(key, shared);
+      if (ex != null) {
+        shared.completeExceptionally(ex);
+      } else {
+        shared.complete(value);
+      }
+    });
+    return shared.copy();
+  }
+
+  /**
+   * Registers the coalescer's metrics in the registry provided: the number of queries which shared the
+   * request of another one.
+   *
+   * @param registry the {@link MetricRegistry} instance
+   * @param prefix the prefix of the metric names
+   */
+  void registerMetrics(MetricRegistry registry, String prefix) {
+    registry.counter(prefix + "-coalesced", () -> coalesced);
+  }
+}
@@ -0,0 +1,241 @@
+package com.faunadb.client;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
+import com.faunadb.client.query.Expr;
+import com.faunadb.client.query.Language;
+import com.faunadb.client.types.Value;
+import com.faunadb.client.types.Value.ArrayV;
+import com.faunadb.client.types.Value.NullV;
+import com.faunadb.client.types.Value.RefV;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static com.faunadb.client.query.Language.Arr;
+import static com.faunadb.client.query.Language.Exists;
+import static com.faunadb.client.query.Language.Get;
+import static com.faunadb.client.query.Language.If;
+import static com.faunadb.client.query.Language.Lambda;
+import static com.faunadb.client.query.Language.Null;
+import static com.faunadb.client.query.Language.Var;
+
+/**
+ * Loads documents by reference in batches, such as the documents referenced by the results of a query.
+ *
+ * <p>References loaded within a short window are collected, deduplicated, and fetched with a single read-only
+ * query, {@code Map(refs, Lambda("ref", If(Exists(Var("ref")), Get(Var("ref")), Null())))}, or a few queries
+ * if the references are too many to fit in one request. Loading a reference already being fetched joins the
+ * fetch in flight. Each caller gets its own document, or an empty result if the document does not exist, so
+ * missing documents don't fail the others.</p>
+ *
+ * <p>Instances are thread safe. Documents are not cached once fetched, so loading the same reference
+ * later reads it again.</p>
+ *
+ * <b>Example</b>:
+ *
+ * <pre>{@code
+ * RefLoader loader = RefLoader.builder(client).build();
+ *
+ * CompletableFuture<Optional<Value>> author = loader.load(post.at("data", "author").to(RefV.class).get());
+ * }</pre>
+ */
+public final class RefLoader {
+
+  /**
+   * Returns a new {@link Builder} instance.
+   *
+   * @param client the client fetching the documents
+   * @return a new {@link Builder}
+   */
+  public static Builder builder(FaunaClient client) {
+    return new Builder(client);
+  }
+
+  /**
+   * A builder for the {@link RefLoader} instance.
+   */
+  public static final class Builder {
+
+    private final FaunaClient client;
+    private Duration window = Duration.ofMillis(1);
+    private int maxRequestBytes = 64 * 1024;
+
+    private Builder(FaunaClient client) {
+      this.client = client;
+    }
+
+    /**
+     * Sets how long references are collected before being fetched. Defaults to 1 millisecond.
+     *
+     * @param window the collection window
+     * @return this {@link Builder} object
+     */
+    public Builder withWindow(Duration window) {
+      this.window = window;
+      return this;
+    }
+
+    /**
+     * Sets the maximum size of a query fetching documents, beyond which references are fetched by several
+     * queries. Defaults to 64 KiB.
+     *
+     * @param bytes the maximum request size, in bytes
+     * @return this {@link Builder} object
+     */
+    public Builder withMaxRequestBytes(int bytes) {
+      this.maxRequestBytes = bytes;
+      return this;
+    }
+
+    /**
+     * @return a newly constructed {@link RefLoader}
+     */
+    public RefLoader build() {
+      if (client == null)
+        throw new IllegalArgumentException("A client is required");
+      if (window.isNegative())
+        throw new IllegalArgumentException("Window must not be negative");
+      if (maxRequestBytes < 1)
+        throw new IllegalArgumentException("Max request size must be at least 1 byte");
+
+      return new RefLoader(this);
+    }
+  }
+
+  // serialized size of the query around the references
+  private static final int QUERY_OVERHEAD_BYTES = 128;
+  private static final ObjectMapper json = new ObjectMapper().registerModule(new Jdk8Module());
+
+  private final FaunaClient client;
+  private final long windowNanos;
+  private final int maxRequestBytes;
+
+  private final Map<RefV, CompletableFuture<Optional<Value>>> inFlight = new ConcurrentHashMap<>();
+  private Map<RefV, CompletableFuture<Optional<Value>>> pending = new LinkedHashMap<>(); // guarded by this
+
+  private RefLoader(Builder builder) {
+    this.client = builder.client;
+    this.windowNanos = builder.window.toNanos();
+    this.maxRequestBytes = builder.maxRequestBytes;
+  }
+
+  /**
+   * Loads the document referenced.
+   *
+   * @param ref the document reference
+   * @return a {@link CompletableFuture} containing the document, or an empty result if it does not exist.
+   * Cancelling it only stops waiting for the document.
+   */
+  public CompletableFuture<Optional<Value>> load(RefV ref) {
+    CompletableFuture<Optional<Value>> result;
+    boolean opened = false;
+
+    synchronized (this) {
+      result = inFlight.get(ref);
+      if (result == null) {
+        result = pending.get(ref);
+      }
+      if (result == null) {
+        result = new CompletableFuture<>();
+        pending.put(ref, result);
+        opened = pending.size() == 1;
+      }
+    }
+
+    if (opened) {
+      CompletableFuture.delayedExecutor(windowNanos, TimeUnit.NANOSECONDS, client.callbackExecutor()).execute(this::flush);
+    }
+
+    return result.copy();
+  }
+
+  /**
+   * Loads several documents.
+   *
+   * @param refs the document references
+   * @return a {@link CompletableFuture} containing the documents, or empty results for the documents which do not
+   * exist, in the same order as the references
+   */
+  public CompletableFuture<List<Optional<Value>>> loadAll(List<RefV> refs) {
+    List<CompletableFuture<Optional<Value>>> results = new ArrayList<>(refs.size());
+    for (RefV ref : refs) {
+      results.add(load(ref));
+    }
+
+    return CompletableFuture.allOf(results.toArray(new CompletableFuture<?>[0])).thenApply(ignored -> {
+      List<Optional<Value>> documents = new ArrayList<>(results.size());
+      for (CompletableFuture<Optional<Value>> result : results) {
+        documents.add(result.join());
+      }
+      return documents;
+    });
+  }
+
+  private void flush() {
+    Map<RefV, CompletableFuture<Optional<Value>>> batch;
+    synchronized (this) {
+      batch = pending;
+      pending = new LinkedHashMap<>();
+      inFlight.putAll(batch);
+    }
+
+    List<RefV> chunk = new ArrayList<>();
+    int chunkBytes = QUERY_OVERHEAD_BYTES;
+    for (RefV ref : batch.keySet()) {
+      int refBytes = serializedSize(ref);
+      if (!chunk.isEmpty() && chunkBytes + refBytes > maxRequestBytes) {
+        fetch(chunk, batch);
+        chunk = new ArrayList<>();
+        chunkBytes = QUERY_OVERHEAD_BYTES;
+      }
+      chunk.add(ref);
+      chunkBytes += refBytes;
+    }
+
+    if (!chunk.isEmpty()) {
+      fetch(chunk, batch);
+    }
+  }
+
+  private void fetch(List<RefV> refs, Map<RefV, CompletableFuture<Optional<Value>>> batch) {
+    Expr query = Language.Map(Arr(refs), Lambda("ref", If(Exists(Var("ref")), Get(Var("ref")), Null())));
+
+    client.query(query, Optional.empty(), true).whenComplete((result, ex) -> {
+      Throwable failure = ex;
+      if (failure == null && !(result instanceof ArrayV)) {
+        failure = new IllegalStateException("Expected an array of documents but got " + result);
+      }
+
+      for (int i = 0; i < refs.size(); i++) {
+        RefV ref = refs.get(i);
+        CompletableFuture<Optional<Value>> document = batch.get(ref);
+        inFlight.remove(ref, document);
+
+        if (failure != null) {
+          document.completeExceptionally(failure);
+        } else {
+          Value value = result.at(i);
+          document.complete(value instanceof NullV ? Optional.empty() : Optional.of(value));
+        }
+      }
+    });
+  }
+
+  private static int serializedSize(RefV ref) {
+    try {
+      return json.writeValueAsBytes(ref).length + 1;
+    } catch (JsonProcessingException ex) {
+      // fetched on its own chunk at worst
+      return Integer.MAX_VALUE / 2;
+    }
+  }
+}
@@ -0,0 +1,479 @@
+package com.faunadb.client;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
+import com.faunadb.client.query.Expr;
+import com.faunadb.client.query.Language;
+import com.faunadb.client.query.Pagination;
+import com.faunadb.client.types.Value;
+import com.faunadb.common.http.ResponseBody;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static com.faunadb.client.query.Language.Get;
+import static com.faunadb.client.query.Language.Lambda;
+import static com.faunadb.client.query.Language.Paginate;
+import static com.faunadb.client.query.Language.Var;
+import static java.lang.String.format;
+
+/**
+ * Exports the elements of a set, such as all the documents of a collection, as newline-delimited JSON.
+ *
+ * <p>The set is read page by page. The next page is fetched while the current one is written, so fetching
+ * and writing overlap. Each element is copied from the response to the output as is, one per line, in the
+ * same JSON format as FaunaDB responses, without being decoded. At most two pages are held in memory.</p>
+ *
+ * <p>With a checkpoint file, the cursor of the next page is saved at a regular interval, along with the
+ * amount of output written so far, once the output is flushed to disk. An export interrupted by a crash
+ * resumes from the last checkpoint when run again: files are truncated to the size recorded, so no
+ * element is written twice. The checkpoint file is deleted once the export completes.</p>
+ *
+ * <b>Example</b>:
+ *
+ * <pre>{@code
+ * SetExporter exporter = SetExporter.builder(client, Documents(Collection("users")))
+ *   .withCheckpoint(Paths.get("users.ndjson.checkpoint"))
+ *   .build();
+ *
+ * SetExporter.Report report = exporter.export(Paths.get("users.ndjson"));
+ * }</pre>
+ */
+public final class SetExporter {
+
+  /**
+   * Returns a new {@link Builder} instance.
+   *
+   * @param client the client reading the set
+   * @param set the set to export, such as {@code Documents(Collection("users"))} or an index {@code Match}
+   * @return a new {@link Builder}
+   */
+  public static Builder builder(FaunaClient client, Expr set) {
+    return new Builder(client, set);
+  }
+
+  /**
+   * A builder for the {@link SetExporter} instance.
+   */
+  public static final class Builder {
+
+    private final FaunaClient client;
+    private final Expr set;
+    private int pageSize = 1000;
+    private Expr lambda = Lambda("ref", Get(Var("ref")));
+    private Path checkpoint = null;
+    private Duration checkpointInterval = Duration.ofSeconds(10);
+    private Duration timeout = null;
+
+    private Builder(FaunaClient client, Expr set) {
+      this.client = client;
+      this.set = set;
+    }
+
+    /**
+     * Sets the number of elements per page. Defaults to 1000.
+     *
+     * @param pageSize the page size
+     * @return this {@link Builder} object
+     */
+    public Builder withPageSize(int pageSize) {
+      this.pageSize = pageSize;
+      return this;
+    }
+
+    /**
+     * Sets the lambda mapping each element of the set to what is exported, within the same query.
+     * Defaults to {@code Lambda("ref", Get(Var("ref")))}, exporting the documents referenced.
+     * If null, the elements are exported as they are.
+     *
+     * @param lambda the lambda applied to each element
+     * @return this {@link Builder} object
+     */
+    public Builder withLambda(Expr lambda) {
+      this.lambda = lambda;
+      return this;
+    }
+
+    /**
+     * Sets the file the progress of the export is saved to, so an interrupted export resumes where it
+     * left off. No checkpoints are saved by default.
+     *
+     * @param checkpoint the checkpoint file
+     * @return this {@link Builder} object
+     */
+    public Builder withCheckpoint(Path checkpoint) {
+      this.checkpoint = checkpoint;
+      return this;
+    }
+
+    /**
+     * Sets the minimum interval between two checkpoints. Defaults to 10 seconds.
+     *
+     * @param interval the checkpoint interval
+     * @return this {@link Builder} object
+     */
+    public Builder withCheckpointInterval(Duration interval) {
+      this.checkpointInterval = interval;
+      return this;
+    }
+
+    /**
+     * Sets the query timeout of each page. Defaults to the client's query timeout.
+     *
+     * @param timeout the query timeout
+     * @return this {@link Builder} object
+     */
+    public Builder withTimeout(Duration timeout) {
+      this.timeout = timeout;
+      return this;
+    }
+
+    /**
+     * @return a newly constructed {@link SetExporter}
+     */
+    public SetExporter build() {
+      if (client == null)
+        throw new IllegalArgumentException("A client is required");
+      if (set == null)
+        throw new IllegalArgumentException("A set is required");
+      if (pageSize < 1)
+        throw new IllegalArgumentException(format("Invalid page size: %d", pageSize));
+      if (checkpointInterval.isNegative())
+        throw new IllegalArgumentException(format("Invalid checkpoint interval: %s", checkpointInterval));
+
+      return new SetExporter(this);
+    }
+  }
+
+  /**
+   * The outcome of an export.
+   */
+  public static final class Report {
+    private final long exported;
+    private final long pages;
+    private final boolean resumed;
+    private final Duration elapsed;
+
+    private Report(long exported, long pages, boolean resumed, Duration elapsed) {
+      this.exported = exported;
+      this.pages = pages;
+      this.resumed = resumed;
+      this.elapsed = elapsed;
+    }
+
+    /**
+     * @return the number of elements exported, including those exported before resuming
+     */
+    public long getExported() {
+      return exported;
+    }
+
+    /**
+     * @return the number of pages read, including those read before resuming
+     */
+    public long getPages() {
+      return pages;
+    }
+
+    /**
+     * @return whether the export resumed from a checkpoint
+     */
+    public boolean isResumed() {
+      return resumed;
+    }
+
+    /**
+     * @return the time spent exporting, since the export started or resumed
+     */
+    public Duration getElapsed() {
+      return elapsed;
+    }
+
+    @Override
+    public String toString() {
+      return format("Report(exported=%d, pages=%d, resumed=%s, elapsed=%s)", exported, pages, resumed, elapsed);
+    }
+  }
+
+  private static final ObjectMapper json = new ObjectMapper().registerModule(new Jdk8Module());
+
+  private final FaunaClient client;
+  private final Expr set;
+  private final int pageSize;
+  private final Expr lambda;
+  private final Path checkpoint;
+  private final long checkpointIntervalNanos;
+  private final Optional<Duration> timeout;
+
+  private SetExporter(Builder builder) {
+    this.client = builder.client;
+    this.set = builder.set;
+    this.pageSize = builder.pageSize;
+    this.lambda = builder.lambda;
+    this.checkpoint = builder.checkpoint;
+    this.checkpointIntervalNanos = builder.checkpointInterval.toNanos();
+    this.timeout = Optional.ofNullable(builder.timeout);
+  }
+
+  /**
+   * Exports the set to the file provided, blocking until the export completes. The file is overwritten,
+   * unless the export resumes from a checkpoint.
+   *
+   * @param file the file to export to
+   * @return the {@link Report} of the export
+   * @throws IOException if writing the file or the checkpoint fails
+   * @throws com.faunadb.client.errors.FaunaException if reading the set fails
+   */
+  public Report export(Path file) throws IOException {
+    Progress progress = readCheckpoint();
+
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+      // anything past the checkpoint is written again
+      channel.truncate(progress.offset);
+      channel.position(progress.offset);
+
+      return export(Channels.newOutputStream(channel), progress, () -> channel.force(false));
+    }
+  }
+
+  /**
+   * Exports the set to the stream provided, blocking until the export completes. The stream is flushed, but
+   * not closed.
+   *
+   * <p>When resuming from a checkpoint, the elements after the checkpoint are written to the stream.
+   * Elements written to the stream after the last checkpoint of the interrupted export are written again.</p>
+   *
+   * @param out the stream to export to
+   * @return the {@link Report} of the export
+   * @throws IOException if writing the stream or the checkpoint fails
+   * @throws com.faunadb.client.errors.FaunaException if reading the set fails
+   */
+  public Report export(OutputStream out) throws IOException {
+    return export(out, readCheckpoint(), () -> {});
+  }
+
+  private interface Sync {
+    void sync() throws IOException;
+  }
+
+  private static final class Progress {
+    private final JsonNode after;
+    private final long offset;
+    private final long exported;
+    private final long pages;
+
+    private Progress(JsonNode after, long offset, long exported, long pages) {
+      this.after = after;
+      this.offset = offset;
+      this.exported = exported;
+      this.pages = pages;
+    }
+  }
+
+  private Report export(OutputStream target, Progress progress, Sync sync) throws IOException {
+    long startNanos = System.nanoTime();
+    boolean resumed = progress.after != null;
+
+    CountingOutputStream out = new CountingOutputStream(target, progress.offset);
+    JsonGenerator generator = json.getFactory().createGenerator(out);
+    generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    generator.setRootValueSeparator(null);
+
+    long exported = progress.exported;
+    long pages = progress.pages;
+    long lastCheckpointNanos = System.nanoTime();
+
+    CompletableFuture<ResponseBody> page = fetch(progress.after);
+    try {
+      while (page != null) {
+        ResponseBody body = await(page);
+        JsonNode after = readAfter(body);
+
+        // fetched while this page is written
+        page = after != null ? fetch(after) : null;
+
+        exported += writeData(body, generator);
+        pages++;
+
+        if (checkpoint != null && after != null && System.nanoTime() - lastCheckpointNanos >= checkpointIntervalNanos) {
+          generator.flush();
+          sync.sync();
+          writeCheckpoint(new Progress(after, out.count, exported, pages));
+          lastCheckpointNanos = System.nanoTime();
+        }
+      }
+
+      generator.flush();
+      sync.sync();
+    } finally {
+      if (page != null) page.cancel(true);
+      generator.close();
+    }
+
+    if (checkpoint != null) {
+      Files.deleteIfExists(checkpoint);
+    }
+
+    return new Report(exported, pages, resumed, Duration.ofNanos(System.nanoTime() - startNanos));
+  }
+
+  private CompletableFuture<ResponseBody> fetch(JsonNode after) {
+    Pagination pagination = Paginate(set).size(pageSize);
+    if (after != null) {
+      try {
+        pagination.after(json.treeToValue(after, Value.class));
+      } catch (IOException ex) {
+        return CompletableFuture.failedFuture(ex);
+      }
+    }
+
+    Expr query = lambda == null ? pagination : Language.Map(pagination, lambda);
+    return client.queryResponseBody(query, timeout);
+  }
+
+  /**
+   * @return the cursor of the next page, or null if this page is the last one
+   */
+  private static JsonNode readAfter(ResponseBody body) throws IOException {
+    try (JsonParser parser = openPage(body)) {
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        String field = parser.getCurrentName();
+        parser.nextToken();
+
+        if (field.equals("after")) {
+          return json.readTree(parser);
+        }
+
+        parser.skipChildren();
+      }
+      return null;
+    }
+  }
+
+  /**
+   * Copies the elements of the page, one per line.
+   *
+   * @return the number of elements copied
+   */
+  private static long writeData(ResponseBody body, JsonGenerator generator) throws IOException {
+    long count = 0;
+
+    try (JsonParser parser = openPage(body)) {
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        String field = parser.getCurrentName();
+        JsonToken token = parser.nextToken();
+
+        if (!field.equals("data") || token != JsonToken.START_ARRAY) {
+          parser.skipChildren();
+          continue;
+        }
+
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+          generator.copyCurrentStructure(parser);
+          generator.writeRaw('\n');
+          count++;
+        }
+      }
+    }
+
+    return count;
+  }
+
+  /**
+   * @return a parser positioned at the start of the page, within the response
+   */
+  private static JsonParser openPage(ResponseBody body) throws IOException {
+    JsonParser parser = json.getFactory().createParser(body.asInputStream());
+
+    if (parser.nextToken() == JsonToken.START_OBJECT) {
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        String field = parser.getCurrentName();
+        if (parser.nextToken() == JsonToken.START_OBJECT && field.equals("resource")) {
+          return parser;
+        }
+        parser.skipChildren();
+      }
+    }
+
+    parser.close();
+    throw new IOException("Expected a page of elements but got " + body);
+  }
+
+  private Progress readCheckpoint() throws IOException {
+    if (checkpoint == null || !Files.exists(checkpoint)) {
+      return new Progress(null, 0, 0, 0);
+    }
+
+    JsonNode node = json.readTree(checkpoint.toFile());
+    JsonNode after = node.get("after");
+    if (after == null || after.isNull())
+      throw new IOException("Invalid checkpoint file " + checkpoint);
+
+    return new Progress(after, node.path("offset").asLong(), node.path("exported").asLong(), node.path("pages").asLong());
+  }
+
+  private void writeCheckpoint(Progress progress) throws IOException {
+    ObjectNode node = json.createObjectNode();
+    node.set("after", progress.after);
+    node.put("offset", progress.offset);
+    node.put("exported", progress.exported);
+    node.put("pages", progress.pages);
+
+    // written aside and moved, so a crash never leaves a partial checkpoint
+    Path tmp = Files.createTempFile(checkpoint.toAbsolutePath().getParent(), checkpoint.getFileName().toString(), ".tmp");
+    try {
+      json.writeValue(tmp.toFile(), node);
+      Files.move(tmp, checkpoint, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(tmp);
+    }
+  }
+
+  private static <T> T await(CompletableFuture<T> future) throws IOException {
+    try {
+      return future.join();
+    } catch (CompletionException ex) {
+      Throwable cause = ex.getCause();
+      if (cause instanceof IOException) throw (IOException) cause;
+      if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+      throw ex;
+    }
+  }
+
+  private static final class CountingOutputStream extends FilterOutputStream {
+    private long count;
+
+    private CountingOutputStream(OutputStream out, long count) {
+      super(out);
+      this.count = count;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      out.write(b);
+      count++;
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+      out.write(bytes, offset, length);
+      count += length;
+    }
+  }
+}
@@ -4,11 +4,16 @@ package com.faunadb.client.query;
  * A query language expression. Constructors for this class are at the {@link Language} class.
  * Expressions are not evaluated until sent to a FaunaDB server.
  *
+ * <p>Expressions built from {@link Language} are compared structurally: two expressions with the same
+ * shape and literals are equal, have the same hash code, and serialize to the same bytes. They can
+ * therefore be used as cache keys. {@link Pagination} expressions are mutable, so they must not be modified
+ * once used as keys.</p>
+ *
  * @see Language
  */
 public abstract class Expr {
 
-  // To be used by Jackson
+  // To be used by Jackson, unless written by a dedicated serializer, and by toString
   protected abstract Object toJson();
 
   @Override
@@ -1,76 +1,222 @@
 package com.faunadb.client.query;
 
-import com.fasterxml.jackson.annotation.JsonValue;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.faunadb.client.types.Value;
+import com.faunadb.client.util.JsonFragments;
 
+import java.io.IOException;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 final class Fn {
 
-  private static abstract class Unescaped<T> extends Expr {
-    final T body;
+  // Function names are a fixed set, but named arguments also carry user defined names, such as let bindings
+  private static final int MAX_CACHED_KEYS = 1024;
+  private static final Map<String, SerializedString> KEYS = new ConcurrentHashMap<>();
 
-    private Unescaped(T body) {
-      this.body = body;
+  /**
+   * Keeps its keys pre-encoded, so they are written to the generator without being escaped again.
+   */
+  @JsonSerialize(using = ObjectSerializer.class)
+  private static final class UnescapedObject extends Expr {
+    final SerializableString[] keys;
+    final Expr[] values;
+    final boolean constant;
+    volatile SerializedString json;
+
+    private UnescapedObject(SerializableString[] keys, Expr[] values) {
+      this.keys = keys;
+      this.values = values;
+      this.constant = isConstant(values);
+    }
+
+    @Override
+    protected Map<String, Expr> toJson() {
+      Map<String, Expr> body = new LinkedHashMap<>();
+      for (int i = 0; i < keys.length; i++) {
+        body.put(keys[i].getValue(), values[i]);
+      }
+      return Collections.unmodifiableMap(body);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      return other instanceof UnescapedObject &&
+        Arrays.equals(keys, ((UnescapedObject) other).keys) &&
+        Arrays.equals(values, ((UnescapedObject) other).values);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * Arrays.hashCode(keys) + Arrays.hashCode(values);
+    }
+  }
+
+  @JsonSerialize(using = ArraySerializer.class)
+  private static final class UnescapedArray extends Expr {
+    final List<Expr> body;
+    final boolean constant;
+    volatile SerializedString json;
+
+    private UnescapedArray(List<? extends Expr> body) {
+      this.body = Collections.unmodifiableList(body);
+      this.constant = isConstant(this.body);
     }
 
     @Override
-    @JsonValue
-    protected T toJson() {
+    protected List<Expr> toJson() {
       return body;
     }
+
+    @Override
+    public boolean equals(Object other) {
+      return other instanceof UnescapedArray &&
+        body.equals(((UnescapedArray) other).body);
+    }
+
+    @Override
+    public int hashCode() {
+      return body.hashCode();
+    }
   }
 
-  private static final class UnescapedObject extends Unescaped<Map<String, Expr>> {
-    private UnescapedObject(Map<String, ? extends Expr> body) {
-      super(Collections.unmodifiableMap(body));
+  static final class ObjectSerializer extends StdSerializer<UnescapedObject> {
+
+    private static final long serialVersionUID = 1L;
+
+    ObjectSerializer() {
+      super(UnescapedObject.class);
+    }
+
+    @Override
+    public void serialize(UnescapedObject obj, JsonGenerator gen, SerializerProvider provider) throws IOException {
+      if (obj.constant)
+        obj.json = JsonFragments.write(obj.json, gen, provider, out -> writeFields(obj, out, provider));
+      else
+        writeFields(obj, gen, provider);
+    }
+
+    private static void writeFields(UnescapedObject obj, JsonGenerator gen, SerializerProvider provider) throws IOException {
+      gen.writeStartObject();
+      for (int i = 0; i < obj.keys.length; i++) {
+        gen.writeFieldName(obj.keys[i]);
+        provider.defaultSerializeValue(obj.values[i], gen);
+      }
+      gen.writeEndObject();
     }
   }
 
-  private static final class UnescapedArray extends Unescaped<List<Expr>> {
-    private UnescapedArray(List<? extends Expr> body) {
-      super(Collections.unmodifiableList(body));
+  static final class ArraySerializer extends StdSerializer<UnescapedArray> {
+
+    private static final long serialVersionUID = 1L;
+
+    ArraySerializer() {
+      super(UnescapedArray.class);
+    }
+
+    @Override
+    public void serialize(UnescapedArray arr, JsonGenerator gen, SerializerProvider provider) throws IOException {
+      if (arr.constant)
+        arr.json = JsonFragments.write(arr.json, gen, provider, out -> writeElements(arr, out, provider));
+      else
+        writeElements(arr, gen, provider);
+    }
+
+    private static void writeElements(UnescapedArray arr, JsonGenerator gen, SerializerProvider provider) throws IOException {
+      gen.writeStartArray();
+      for (Expr value : arr.body) {
+        provider.defaultSerializeValue(value, gen);
+      }
+      gen.writeEndArray();
     }
   }
 
+  /**
+   * Values and function calls over constants are immutable, so their encoding can be cached.
+   * Other expressions, such as {@link Pagination}, may change after being built.
+   */
+  private static boolean isConstant(Expr expr) {
+    return expr instanceof Value ||
+      (expr instanceof UnescapedObject && ((UnescapedObject) expr).constant) ||
+      (expr instanceof UnescapedArray && ((UnescapedArray) expr).constant);
+  }
+
+  private static boolean isConstant(Expr[] exprs) {
+    for (Expr expr : exprs) {
+      if (!isConstant(expr)) return false;
+    }
+    return true;
+  }
+
+  private static boolean isConstant(List<Expr> exprs) {
+    for (Expr expr : exprs) {
+      if (!isConstant(expr)) return false;
+    }
+    return true;
+  }
+
+  static SerializableString key(String name) {
+    SerializedString key = KEYS.get(name);
+    if (key != null)
+      return key;
+
+    key = new SerializedString(name);
+    if (KEYS.size() < MAX_CACHED_KEYS)
+      KEYS.putIfAbsent(name, key);
+
+    return key;
+  }
+
   static Expr apply(List<? extends Expr> args) {
     return new UnescapedArray(args);
   }
 
   static Expr apply(Map<String, ? extends Expr> args) {
-    return new UnescapedObject(args);
+    SerializableString[] keys = new SerializableString[args.size()];
+    Expr[] values = new Expr[args.size()];
+    int i = 0;
+
+    for (Map.Entry<String, ? extends Expr> arg : args.entrySet()) {
+      // arbitrary user keys, such as object fields, are not worth caching
+      keys[i] = new SerializedString(arg.getKey());
+      values[i] = arg.getValue();
+      i += 1;
+    }
+
+    return new UnescapedObject(keys, values);
   }
 
   static Expr apply(String k1, Expr p1) {
-    Map<String, Expr> kvs = new LinkedHashMap<>();
-    kvs.put(k1, p1);
-    return apply(kvs);
+    return new UnescapedObject(
+      new SerializableString[] { key(k1) },
+      new Expr[] { p1 });
   }
 
   static Expr apply(String k1, Expr p1, String k2, Expr p2) {
-    Map<String, Expr> kvs = new LinkedHashMap<>();
-    kvs.put(k1, p1);
-    kvs.put(k2, p2);
-    return apply(kvs);
+    return new UnescapedObject(
+      new SerializableString[] { key(k1), key(k2) },
+      new Expr[] { p1, p2 });
   }
 
   static Expr apply(String k1, Expr p1, String k2, Expr p2, String k3, Expr p3) {
-    Map<String, Expr> kvs = new LinkedHashMap<>();
-    kvs.put(k1, p1);
-    kvs.put(k2, p2);
-    kvs.put(k3, p3);
-    return apply(kvs);
+    return new UnescapedObject(
+      new SerializableString[] { key(k1), key(k2), key(k3) },
+      new Expr[] { p1, p2, p3 });
   }
 
   static Expr apply(String k1, Expr p1, String k2, Expr p2, String k3, Expr p3, String k4, Expr p4) {
-    Map<String, Expr> kvs = new LinkedHashMap<>();
-    kvs.put(k1, p1);
-    kvs.put(k2, p2);
-    kvs.put(k3, p3);
-    kvs.put(k4, p4);
-    return apply(kvs);
+    return new UnescapedObject(
+      new SerializableString[] { key(k1), key(k2), key(k3), key(k4) },
+      new Expr[] { p1, p2, p3, p4 });
   }
 
 }
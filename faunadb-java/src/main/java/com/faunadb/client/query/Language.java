@@ -13,7 +13,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.function.UnaryOperator;
 
-import static com.faunadb.client.util.SymbolGenerator.genSym;
+import static com.faunadb.client.util.SymbolGenerator.withSym;
 
 /**
  * The {@link Language} class contains static constructors for the FaunaDB Query Language expressions.
@@ -1376,8 +1376,8 @@ public final class Language {
    * @see <a href="https://docs.fauna.com/fauna/current/api/fql/functions/map?lang=java">Map</a>
    */
   public static Expr Map(Expr collection, UnaryOperator<Expr> lambda) {
-    String sym = genSym("map");
-    return Map(collection, Lambda(sym, lambda.apply(Var(sym))));
+    Expr fn = withSym("map", sym -> Lambda(sym, lambda.apply(Var(sym))));
+    return Map(collection, fn);
   }
 
   /**
@@ -1412,8 +1412,8 @@ public final class Language {
    * @see <a href="https://docs.fauna.com/fauna/current/api/fql/functions/foreach?lang=java">Foreach</a>
    */
   public static Expr Foreach(Expr collection, UnaryOperator<Expr> lambda) {
-    String sym = genSym("foreach");
-    return Foreach(collection, Lambda(sym, lambda.apply(Var(sym))));
+    Expr fn = withSym("foreach", sym -> Lambda(sym, lambda.apply(Var(sym))));
+    return Foreach(collection, fn);
   }
 
   /**
@@ -1441,8 +1441,8 @@ public final class Language {
    * @see <a href="https://docs.fauna.com/fauna/current/api/fql/functions/filter?lang=java">Filter</a>
    */
   public static Expr Filter(Expr collection, UnaryOperator<Expr> lambda) {
-    String sym = genSym("filter");
-    return Filter(collection, Lambda(sym, lambda.apply(Var(sym))));
+    Expr fn = withSym("filter", sym -> Lambda(sym, lambda.apply(Var(sym))));
+    return Filter(collection, fn);
   }
 
   /**
@@ -2113,8 +2113,8 @@ public final class Language {
    * @see <a href="https://docs.fauna.com/fauna/current/api/fql/functions/join?lang=java">Join</a>
    */
   public static Expr Join(Expr source, UnaryOperator<Expr> lambda) {
-    String sym = genSym("join");
-    return Join(source, Lambda(sym, lambda.apply(Var(sym))));
+    Expr fn = withSym("join", sym -> Lambda(sym, lambda.apply(Var(sym))));
+    return Join(source, fn);
   }
 
   /**
@@ -1,9 +1,14 @@
 package com.faunadb.client.query;
 
-import com.fasterxml.jackson.annotation.JsonValue;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
 import com.faunadb.client.types.Value;
 import com.faunadb.client.types.Value.LongV;
 
+import java.io.IOException;
 import java.time.Instant;
 import java.util.Collections;
 import java.util.LinkedHashMap;
@@ -15,18 +20,33 @@ import java.util.Optional;
  * A pagination expression. Instances of this class are not thread safe and must not be
  * modified concurrently from different threads.
  * <p>
+ * Like other expressions, pagination expressions are compared structurally, so queries paginating the same
+ * set the same way are equal. Since they are mutable, their hash code changes along with them: like the
+ * elements of a hash-based collection, a pagination expression must not be modified once it, or a query
+ * containing it, is used as a key.
+ * <p>
  * See {@link Language#Paginate(Expr)} for details.
  *
  * @see <a href="https://docs.fauna.com/fauna/current/api/fql/functions/paginate?lang=java">Paginate</a>
  * @see Language#Paginate(Expr)
  */
+@JsonSerialize(using = Pagination.PaginationSerializer.class)
 public final class Pagination extends Expr {
 
+  private static final SerializedString PAGINATE = new SerializedString("paginate");
+  private static final SerializedString BEFORE = new SerializedString("before");
+  private static final SerializedString AFTER = new SerializedString("after");
+  private static final SerializedString CURSOR = new SerializedString("cursor");
+  private static final SerializedString EVENTS = new SerializedString("events");
+  private static final SerializedString SOURCES = new SerializedString("sources");
+  private static final SerializedString TS = new SerializedString("ts");
+  private static final SerializedString SIZE = new SerializedString("size");
+
   private static abstract class Cursor {
-    private final String name;
+    private final SerializedString name;
     private final Expr ref;
 
-    private Cursor(String name, Expr ref) {
+    private Cursor(SerializedString name, Expr ref) {
       this.name = Objects.requireNonNull(name);
       this.ref = Objects.requireNonNull(ref);
     }
@@ -34,19 +54,19 @@ public final class Pagination extends Expr {
 
   private static final class Before extends Cursor {
     private Before(Expr ref) {
-      super("before", ref);
+      super(BEFORE, ref);
     }
   }
 
   private static final class After extends Cursor {
     private After(Expr ref) {
-      super("after", ref);
+      super(AFTER, ref);
     }
   }
 
   private static final class RawCursor extends Cursor {
     private RawCursor(Expr obj) {
-      super("cursor", obj);
+      super(CURSOR, obj);
     }
   }
 
@@ -62,22 +82,76 @@ public final class Pagination extends Expr {
   }
 
   @Override
-  @JsonValue
   protected Map<String, Expr> toJson() {
     Map<String, Expr> res = new LinkedHashMap<>();
-    res.put("paginate", resource);
+    res.put(PAGINATE.getValue(), resource);
 
-    cursor.ifPresent(cur -> res.put(cur.name, cur.ref));
-    putIfPresent(events, res, "events");
-    putIfPresent(sources, res, "sources");
-    putIfPresent(ts, res, "ts");
-    putIfPresent(size, res, "size");
+    cursor.ifPresent(cur -> res.put(cur.name.getValue(), cur.ref));
+    putIfPresent(events, res, EVENTS);
+    putIfPresent(sources, res, SOURCES);
+    putIfPresent(ts, res, TS);
+    putIfPresent(size, res, SIZE);
 
     return Collections.unmodifiableMap(res);
   }
 
-  private static void putIfPresent(Optional<Expr> optExpr, Map<String, Expr> res, String name) {
-    optExpr.ifPresent(expr -> res.put(name, expr));
+  private static void putIfPresent(Optional<Expr> optExpr, Map<String, Expr> res, SerializedString name) {
+    optExpr.ifPresent(expr -> res.put(name.getValue(), expr));
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (!(obj instanceof Pagination))
+      return false;
+
+    Pagination other = (Pagination) obj;
+
+    return resource.equals(other.resource) &&
+      cursor.map(c -> c.name).equals(other.cursor.map(c -> c.name)) &&
+      cursor.map(c -> c.ref).equals(other.cursor.map(c -> c.ref)) &&
+      ts.equals(other.ts) &&
+      size.equals(other.size) &&
+      sources.equals(other.sources) &&
+      events.equals(other.events);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(resource, cursor.map(c -> c.name), cursor.map(c -> c.ref), ts, size, sources, events);
+  }
+
+  static final class PaginationSerializer extends StdSerializer<Pagination> {
+
+    private static final long serialVersionUID = 1L;
+
+    PaginationSerializer() {
+      super(Pagination.class);
+    }
+
+    @Override
+    public void serialize(Pagination pagination, JsonGenerator gen, SerializerProvider provider) throws IOException {
+      gen.writeStartObject();
+      writeField(PAGINATE, pagination.resource, gen, provider);
+
+      if (pagination.cursor.isPresent())
+        writeField(pagination.cursor.get().name, pagination.cursor.get().ref, gen, provider);
+
+      writeIfPresent(EVENTS, pagination.events, gen, provider);
+      writeIfPresent(SOURCES, pagination.sources, gen, provider);
+      writeIfPresent(TS, pagination.ts, gen, provider);
+      writeIfPresent(SIZE, pagination.size, gen, provider);
+      gen.writeEndObject();
+    }
+
+    private static void writeIfPresent(SerializedString name, Optional<Expr> optExpr, JsonGenerator gen, SerializerProvider provider) throws IOException {
+      if (optExpr.isPresent())
+        writeField(name, optExpr.get(), gen, provider);
+    }
+
+    private static void writeField(SerializedString name, Expr expr, JsonGenerator gen, SerializerProvider provider) throws IOException {
+      gen.writeFieldName(name);
+      provider.defaultSerializeValue(expr, gen);
+    }
   }
 
   /**
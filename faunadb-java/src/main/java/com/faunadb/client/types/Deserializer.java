@@ -1,149 +1,235 @@
 package com.faunadb.client.types;
 
-import com.fasterxml.jackson.core.JsonLocation;
 import com.fasterxml.jackson.core.JsonParseException;
 import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.DeserializationContext;
 import com.fasterxml.jackson.databind.JsonDeserializer;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedHashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
 import static com.faunadb.client.types.Value.ArrayV.*;
 import static java.lang.String.format;
 
+/**
+ * Single pass, token driven deserializers for {@link Value} trees. Values are built directly
+ * from the {@link JsonParser} tokens, without materializing an intermediate {@code JsonNode} tree.
+ *
+ * <p>Following Jackson's contract, every read method expects the parser to be positioned at the
+ * first token of the value and leaves it positioned at the last token of the value.</p>
+ */
 class Deserializer {
 
-  private static abstract class TreeDeserializer<T> extends JsonDeserializer<T> {
+  static class ValueDeserializer extends JsonDeserializer<Value> {
     @Override
-    public T deserialize(JsonParser jsonParser, DeserializationContext context) throws IOException {
-      JsonLocation location = jsonParser.getTokenLocation();
-      ObjectMapper json = (ObjectMapper) jsonParser.getCodec();
-      JsonNode tree = json.readTree(jsonParser);
-
-      return deserializeTree(jsonParser, tree, json, location);
+    public Value deserialize(JsonParser jsonParser, DeserializationContext context) throws IOException {
+      return readValue(jsonParser, context);
     }
+  }
 
-    abstract T deserializeTree(
-      JsonParser jsonParser, JsonNode tree, ObjectMapper json, JsonLocation loc) throws JsonParseException;
+  static class ArrayDeserializer extends JsonDeserializer<ArrayV> {
+    @Override
+    public ArrayV deserialize(JsonParser jsonParser, DeserializationContext context) throws IOException {
+      if (jsonParser.currentToken() != JsonToken.START_ARRAY)
+        throw unexpectedToken(jsonParser);
+
+      return readArray(jsonParser, context);
+    }
   }
 
-  static class ValueDeserializer extends TreeDeserializer<Value> {
+  static class ObjectDeserializer extends JsonDeserializer<ObjectV> {
     @Override
-    Value deserializeTree(JsonParser jsonParser, JsonNode tree, ObjectMapper json, JsonLocation loc)
-      throws JsonParseException {
-
-      switch (tree.getNodeType()) {
-        case OBJECT:
-          return deserializeSpecial(tree, json);
-        case ARRAY:
-          return json.convertValue(tree, ArrayV.class);
-        case STRING:
-          return json.convertValue(tree, StringV.class);
-        case BOOLEAN:
-          return json.convertValue(tree, BooleanV.class);
-        case NUMBER:
-          return tree.isDouble() ?
-            json.convertValue(tree, DoubleV.class) :
-            json.convertValue(tree, LongV.class);
-        case NULL:
-          return NullV.NULL;
-        default:
-          throw new JsonParseException(jsonParser, "Cannot deserialize as a Value", loc);
-      }
+    public ObjectV deserialize(JsonParser jsonParser, DeserializationContext context) throws IOException {
+      JsonToken token = jsonParser.currentToken();
+
+      if (token == JsonToken.START_OBJECT)
+        token = jsonParser.nextToken();
+
+      if (token != JsonToken.FIELD_NAME && token != JsonToken.END_OBJECT)
+        throw unexpectedToken(jsonParser);
+
+      return new ObjectV(readFields(jsonParser, context));
+    }
+  }
+
+  private static Value readValue(JsonParser jsonParser, DeserializationContext context) throws IOException {
+    JsonToken token = jsonParser.currentToken();
+
+    if (token == null)
+      throw new JsonParseException(jsonParser, "Cannot deserialize as a Value: unexpected end of input", jsonParser.getTokenLocation());
+
+    switch (token) {
+      case START_OBJECT:
+        return readSpecial(jsonParser, context, jsonParser.nextToken());
+      case FIELD_NAME:
+      case END_OBJECT:
+        // Jackson may hand over an object whose START_OBJECT token was already consumed
+        return readSpecial(jsonParser, context, token);
+      case START_ARRAY:
+        return readArray(jsonParser, context);
+      case VALUE_STRING:
+        return new StringV(jsonParser.getText());
+      case VALUE_NUMBER_INT:
+        return new LongV(jsonParser.getLongValue());
+      case VALUE_NUMBER_FLOAT:
+        return new DoubleV(jsonParser.getDoubleValue());
+      case VALUE_TRUE:
+        return BooleanV.TRUE;
+      case VALUE_FALSE:
+        return BooleanV.FALSE;
+      case VALUE_NULL:
+        return NullV.NULL;
+      default:
+        throw new JsonParseException(jsonParser, "Cannot deserialize as a Value", jsonParser.getTokenLocation());
     }
+  }
+
+  private static Value readSpecial(JsonParser jsonParser, DeserializationContext context, JsonToken token) throws IOException {
+    if (token == JsonToken.END_OBJECT)
+      return new ObjectV(Collections.emptyMap());
+
+    if (token != JsonToken.FIELD_NAME)
+      throw unexpectedToken(jsonParser);
+
+    switch (jsonParser.getCurrentName()) {
+      case "@ref":
+        jsonParser.nextToken();
+        return endSpecial(jsonParser, readRef(jsonParser, context));
+      case "@set":
+        jsonParser.nextToken();
+        return endSpecial(jsonParser, new SetRefV(readNestedFields(jsonParser, context)));
+      case "@ts":
+        return endSpecial(jsonParser, new TimeV(readText(jsonParser)));
+      case "@date":
+        return endSpecial(jsonParser, new DateV(readText(jsonParser)));
+      case "@bytes":
+        return endSpecial(jsonParser, new BytesV(readText(jsonParser)));
+      case "@query":
+        jsonParser.nextToken();
+        return endSpecial(jsonParser, new QueryV(readLambda(jsonParser, context)));
+      case "@obj":
+        jsonParser.nextToken();
+        return endSpecial(jsonParser, new ObjectV(readNestedFields(jsonParser, context)));
+      default:
+        return new ObjectV(readFields(jsonParser, context));
+    }
+  }
 
-    private Value deserializeSpecial(JsonNode tree, ObjectMapper json) {
-      if (tree.size() == 0)
-        return json.convertValue(tree, ObjectV.class);
-
-      String firstField = tree.fieldNames().next();
-
-      switch (firstField) {
-        case "@ref":
-          return deserializeRefs(tree);
-        case "@set":
-          return json.convertValue(tree, SetRefV.class);
-        case "@ts":
-          return json.convertValue(tree, TimeV.class);
-        case "@date":
-          return json.convertValue(tree, DateV.class);
-        case "@bytes":
-          return json.convertValue(tree, BytesV.class);
-        case "@query":
-          return json.convertValue(tree, QueryV.class);
-        case "@obj":
-          return json.convertValue(tree.get("@obj"), ObjectV.class);
+  private static RefV readRef(JsonParser jsonParser, DeserializationContext context) throws IOException {
+    if (jsonParser.currentToken() != JsonToken.START_OBJECT)
+      throw unexpectedToken(jsonParser);
+
+    String id = null;
+    RefV collection = null;
+    RefV database = null;
+
+    while (jsonParser.nextToken() == JsonToken.FIELD_NAME) {
+      switch (jsonParser.getCurrentName()) {
+        case "id":
+          id = readText(jsonParser);
+          break;
+        case "collection":
+          jsonParser.nextToken();
+          collection = readNestedRef(jsonParser, context);
+          break;
+        case "database":
+          jsonParser.nextToken();
+          database = readNestedRef(jsonParser, context);
+          break;
         default:
-          return json.convertValue(tree, ObjectV.class);
+          jsonParser.nextToken();
+          jsonParser.skipChildren();
       }
     }
 
-    private RefV deserializeRefs(JsonNode node) {
-      if (node == null)
-        return null;
+    if (jsonParser.currentToken() != JsonToken.END_OBJECT)
+      throw unexpectedToken(jsonParser);
 
-      JsonNode ref = node.get("@ref");
+    if (id == null)
+      throw new JsonParseException(jsonParser, "Malformed @ref: missing id", jsonParser.getTokenLocation());
 
-      if (ref != null)
-        return makeRef(ref);
+    if (collection == null && database == null)
+      return Native.fromName(id);
 
-      throw new IllegalArgumentException(format("Malformed @ref: %s", node));
-    }
+    return new RefV(id, collection, database);
+  }
 
-    private RefV makeRef(JsonNode node) {
-      JsonNode id = node.get("id");
-      RefV collection = deserializeRefs(node.get("collection"));
-      RefV database = deserializeRefs(node.get("database"));
+  private static RefV readNestedRef(JsonParser jsonParser, DeserializationContext context) throws IOException {
+    Value value = readValue(jsonParser, context);
 
-      String idE = id.textValue();
+    if (value instanceof NullV)
+      return null;
 
-      if (collection == null && database == null)
-        return Native.fromName(idE);
+    if (!(value instanceof RefV))
+      throw new JsonParseException(jsonParser, format("Malformed @ref: %s", value), jsonParser.getTokenLocation());
 
-      return new RefV(idE, collection, database);
-    }
+    return (RefV) value;
   }
 
-  static class ArrayDeserializer extends TreeDeserializer<ArrayV> {
-    @Override
-    ArrayV deserializeTree(JsonParser jsonParser, JsonNode tree, final ObjectMapper json, JsonLocation loc) {
+  @SuppressWarnings("unchecked")
+  private static Map<String, Object> readLambda(JsonParser jsonParser, DeserializationContext context) throws IOException {
+    if (jsonParser.currentToken() != JsonToken.START_OBJECT)
+      throw unexpectedToken(jsonParser);
 
-      List<Value> values = new ArrayList<>();
+    return context.readValue(jsonParser, Map.class);
+  }
 
-      for (Iterator<JsonNode> elements = tree.elements(); elements.hasNext(); ) {
-        values.add(toValueOrNullV(elements.next(), json));
-      }
+  private static ArrayV readArray(JsonParser jsonParser, DeserializationContext context) throws IOException {
+    List<Value> values = new ArrayList<>();
 
-      return new ArrayV(values);
+    while (jsonParser.nextToken() != JsonToken.END_ARRAY) {
+      values.add(readValue(jsonParser, context));
     }
 
+    return new ArrayV(values);
   }
 
-  static class ObjectDeserializer extends TreeDeserializer<ObjectV> {
-    @Override
-    ObjectV deserializeTree(JsonParser jsonParser, final JsonNode tree, final ObjectMapper json, JsonLocation loc) {
+  private static Map<String, Value> readNestedFields(JsonParser jsonParser, DeserializationContext context) throws IOException {
+    if (jsonParser.currentToken() != JsonToken.START_OBJECT)
+      throw unexpectedToken(jsonParser);
 
-      Map<String, Value> values = new LinkedHashMap<>();
+    jsonParser.nextToken();
+    return readFields(jsonParser, context);
+  }
 
-      for (Iterator<Map.Entry<String, JsonNode>> entries = tree.fields(); entries.hasNext(); ) {
-        Map.Entry<String, JsonNode> entry = entries.next();
-        values.put(entry.getKey(), toValueOrNullV(entry.getValue(), json));
-      }
+  private static Map<String, Value> readFields(JsonParser jsonParser, DeserializationContext context) throws IOException {
+    Map<String, Value> values = new LinkedHashMap<>();
+    JsonToken token = jsonParser.currentToken();
 
-      return new ObjectV(values);
+    while (token == JsonToken.FIELD_NAME) {
+      String name = jsonParser.getCurrentName();
+      jsonParser.nextToken();
+      values.put(name, readValue(jsonParser, context));
+      token = jsonParser.nextToken();
     }
+
+    if (token != JsonToken.END_OBJECT)
+      throw unexpectedToken(jsonParser);
+
+    return values;
+  }
+
+  private static String readText(JsonParser jsonParser) throws IOException {
+    if (jsonParser.nextToken() != JsonToken.VALUE_STRING)
+      throw unexpectedToken(jsonParser);
+
+    return jsonParser.getText();
+  }
+
+  private static <T extends Value> T endSpecial(JsonParser jsonParser, T value) throws IOException {
+    if (jsonParser.nextToken() != JsonToken.END_OBJECT)
+      throw new JsonParseException(jsonParser, format("Unexpected field in special type %s", value.getClass().getSimpleName()), jsonParser.getTokenLocation());
+
+    return value;
   }
 
-  private static Value toValueOrNullV(JsonNode node, ObjectMapper json) {
-    Value value = json.convertValue(node, Value.class);
-    return value != null ? value : NullV.NULL;
+  private static JsonParseException unexpectedToken(JsonParser jsonParser) {
+    return new JsonParseException(jsonParser, format("Unexpected token %s", jsonParser.currentToken()), jsonParser.getTokenLocation());
   }
 
 }
@@ -0,0 +1,272 @@
+package com.faunadb.client.types;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.faunadb.client.util.JsonFragments;
+
+import java.io.IOException;
+import java.util.Base64;
+import java.util.Map;
+
+import static com.faunadb.client.types.Value.ArrayV.*;
+
+/**
+ * Serializers for {@link Value} trees. Values are written directly to the {@link JsonGenerator},
+ * without wrapping them into intermediate maps, and using pre-encoded keys for the special types.
+ *
+ * @see Deserializer
+ */
+class Serializer {
+
+  private static final SerializedString OBJECT = new SerializedString("object");
+  private static final SerializedString REF = new SerializedString("@ref");
+  private static final SerializedString SET = new SerializedString("@set");
+  private static final SerializedString TS = new SerializedString("@ts");
+  private static final SerializedString DATE = new SerializedString("@date");
+  private static final SerializedString BYTES = new SerializedString("@bytes");
+  private static final SerializedString QUERY = new SerializedString("@query");
+  private static final SerializedString ID = new SerializedString("id");
+  private static final SerializedString COLLECTION = new SerializedString("collection");
+  private static final SerializedString DATABASE = new SerializedString("database");
+
+  static class ObjectSerializer extends StdSerializer<ObjectV> {
+
+    private static final long serialVersionUID = 1L;
+
+    ObjectSerializer() {
+      super(ObjectV.class);
+    }
+
+    @Override
+    public void serialize(ObjectV value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+      gen.writeStartObject();
+      gen.writeFieldName(OBJECT);
+      writeFields(value.values, gen, provider);
+      gen.writeEndObject();
+    }
+  }
+
+  static class ArraySerializer extends StdSerializer<ArrayV> {
+
+    private static final long serialVersionUID = 1L;
+
+    ArraySerializer() {
+      super(ArrayV.class);
+    }
+
+    @Override
+    public void serialize(ArrayV value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+      gen.writeStartArray();
+      for (Value element : value.values) {
+        provider.defaultSerializeValue(element, gen);
+      }
+      gen.writeEndArray();
+    }
+  }
+
+  static class BooleanSerializer extends StdSerializer<BooleanV> {
+
+    private static final long serialVersionUID = 1L;
+
+    BooleanSerializer() {
+      super(BooleanV.class);
+    }
+
+    @Override
+    public void serialize(BooleanV value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+      gen.writeBoolean(value.value);
+    }
+  }
+
+  static class DoubleSerializer extends StdSerializer<DoubleV> {
+
+    private static final long serialVersionUID = 1L;
+
+    DoubleSerializer() {
+      super(DoubleV.class);
+    }
+
+    @Override
+    public void serialize(DoubleV value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+      gen.writeNumber(value.value);
+    }
+  }
+
+  static class LongSerializer extends StdSerializer<LongV> {
+
+    private static final long serialVersionUID = 1L;
+
+    LongSerializer() {
+      super(LongV.class);
+    }
+
+    @Override
+    public void serialize(LongV value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+      gen.writeNumber(value.value);
+    }
+  }
+
+  static class StringSerializer extends StdSerializer<StringV> {
+
+    private static final long serialVersionUID = 1L;
+
+    StringSerializer() {
+      super(StringV.class);
+    }
+
+    @Override
+    public void serialize(StringV value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+      gen.writeString(value.value);
+    }
+  }
+
+  static class NullSerializer extends StdSerializer<NullV> {
+
+    private static final long serialVersionUID = 1L;
+
+    NullSerializer() {
+      super(NullV.class);
+    }
+
+    @Override
+    public void serialize(NullV value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+      gen.writeNull();
+    }
+  }
+
+  static class TimeSerializer extends StdSerializer<TimeV> {
+
+    private static final long serialVersionUID = 1L;
+
+    TimeSerializer() {
+      super(TimeV.class);
+    }
+
+    @Override
+    public void serialize(TimeV value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+      gen.writeStartObject();
+      gen.writeFieldName(TS);
+      gen.writeString(value.value.toString());
+      gen.writeEndObject();
+    }
+  }
+
+  static class DateSerializer extends StdSerializer<DateV> {
+
+    private static final long serialVersionUID = 1L;
+
+    DateSerializer() {
+      super(DateV.class);
+    }
+
+    @Override
+    public void serialize(DateV value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+      gen.writeStartObject();
+      gen.writeFieldName(DATE);
+      gen.writeString(value.value.toString());
+      gen.writeEndObject();
+    }
+  }
+
+  static class SetRefSerializer extends StdSerializer<SetRefV> {
+
+    private static final long serialVersionUID = 1L;
+
+    SetRefSerializer() {
+      super(SetRefV.class);
+    }
+
+    @Override
+    public void serialize(SetRefV value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+      gen.writeStartObject();
+      gen.writeFieldName(SET);
+      writeFields(value.value, gen, provider);
+      gen.writeEndObject();
+    }
+  }
+
+  static class RefSerializer extends StdSerializer<RefV> {
+
+    private static final long serialVersionUID = 1L;
+
+    RefSerializer() {
+      super(RefV.class);
+    }
+
+    @Override
+    public void serialize(RefV value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+      // refs are immutable and usually reused across queries
+      value.json = JsonFragments.write(value.json, gen, provider, out -> writeRef(value.value, out, provider));
+    }
+
+    private void writeRef(RefID ref, JsonGenerator gen, SerializerProvider provider) throws IOException {
+      gen.writeStartObject();
+      gen.writeFieldName(REF);
+      gen.writeStartObject();
+
+      if (ref.id != null) {
+        gen.writeFieldName(ID);
+        gen.writeString(ref.id);
+      }
+
+      if (ref.collection != null) {
+        gen.writeFieldName(COLLECTION);
+        serialize(ref.collection, gen, provider);
+      }
+
+      if (ref.database != null) {
+        gen.writeFieldName(DATABASE);
+        serialize(ref.database, gen, provider);
+      }
+
+      gen.writeEndObject();
+      gen.writeEndObject();
+    }
+  }
+
+  static class BytesSerializer extends StdSerializer<BytesV> {
+
+    private static final long serialVersionUID = 1L;
+
+    BytesSerializer() {
+      super(BytesV.class);
+    }
+
+    @Override
+    public void serialize(BytesV value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+      gen.writeStartObject();
+      gen.writeFieldName(BYTES);
+      gen.writeString(Base64.getUrlEncoder().encodeToString(value.value));
+      gen.writeEndObject();
+    }
+  }
+
+  static class QuerySerializer extends StdSerializer<QueryV> {
+
+    private static final long serialVersionUID = 1L;
+
+    QuerySerializer() {
+      super(QueryV.class);
+    }
+
+    @Override
+    public void serialize(QueryV value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+      gen.writeStartObject();
+      gen.writeFieldName(QUERY);
+      provider.defaultSerializeValue(value.toJson(), gen);
+      gen.writeEndObject();
+    }
+  }
+
+  private static void writeFields(Map<String, Value> fields, JsonGenerator gen, SerializerProvider provider) throws IOException {
+    gen.writeStartObject();
+    for (Map.Entry<String, Value> field : fields.entrySet()) {
+      gen.writeFieldName(field.getKey());
+      provider.defaultSerializeValue(field.getValue(), gen);
+    }
+    gen.writeEndObject();
+  }
+
+}
@@ -1,8 +1,10 @@
 package com.faunadb.client.types;
 
 import com.fasterxml.jackson.annotation.*;
+import com.fasterxml.jackson.core.io.SerializedString;
 import com.fasterxml.jackson.databind.JsonDeserializer;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import com.fasterxml.jackson.databind.node.NullNode;
 import com.faunadb.client.query.Expr;
 import com.faunadb.client.query.Language;
@@ -319,6 +321,7 @@ public abstract class Value extends Expr {
    * @see Value
    */
   @JsonDeserialize(using = Deserializer.ObjectDeserializer.class)
+  @JsonSerialize(using = Serializer.ObjectSerializer.class)
   public static final class ObjectV extends Value {
 
     final Map<String, Value> values;
@@ -328,7 +331,6 @@ public abstract class Value extends Expr {
     }
 
     @Override
-    @JsonValue
     protected Map<String, Map<String, Value>> toJson() {
         return Collections.singletonMap("object", values);
     }
@@ -363,6 +365,7 @@ public abstract class Value extends Expr {
    * @see Value
    */
   @JsonDeserialize(using = Deserializer.ArrayDeserializer.class)
+  @JsonSerialize(using = Serializer.ArraySerializer.class)
   public static final class ArrayV extends Value {
 
     final List<Value> values;
@@ -372,7 +375,6 @@ public abstract class Value extends Expr {
     }
 
     @Override
-    @JsonValue
     protected List<Value> toJson() {
       return values;
     }
@@ -406,6 +408,7 @@ public abstract class Value extends Expr {
    * @see Language#Value(boolean)
    * @see Value
    */
+  @JsonSerialize(using = Serializer.BooleanSerializer.class)
   public static final class BooleanV extends ScalarValue<Boolean> {
 
     public final static BooleanV TRUE = new BooleanV(true);
@@ -420,7 +423,6 @@ public abstract class Value extends Expr {
     }
 
     @Override
-    @JsonValue
     protected Boolean toJson() {
       return value;
     }
@@ -435,13 +437,13 @@ public abstract class Value extends Expr {
    * @see Language#Value(double)
    * @see Value
    */
+  @JsonSerialize(using = Serializer.DoubleSerializer.class)
   public static final class DoubleV extends ScalarValue<Double> {
     public DoubleV(double value) {
       super(value);
     }
 
     @Override
-    @JsonValue
     protected Double toJson() {
       return value;
     }
@@ -455,13 +457,13 @@ public abstract class Value extends Expr {
    * @see Language#Value(long)
    * @see Value
    */
+  @JsonSerialize(using = Serializer.LongSerializer.class)
   public static final class LongV extends ScalarValue<Long> {
     public LongV(long value) {
       super(value);
     }
 
     @Override
-    @JsonValue
     protected Long toJson() {
       return value;
     }
@@ -475,13 +477,13 @@ public abstract class Value extends Expr {
    * @see Language#Value(String)
    * @see Value
    */
+  @JsonSerialize(using = Serializer.StringSerializer.class)
   public static final class StringV extends ScalarValue<String> {
     public StringV(String value) {
       super(value);
     }
 
     @Override
-    @JsonValue
     protected String toJson() {
       return value;
     }
@@ -500,6 +502,7 @@ public abstract class Value extends Expr {
    * @see Language#Null()
    * @see Value
    */
+  @JsonSerialize(using = Serializer.NullSerializer.class)
   public static final class NullV extends Value {
 
     public static final NullV NULL = new NullV();
@@ -514,7 +517,6 @@ public abstract class Value extends Expr {
     }
 
     @Override
-    @JsonValue
     protected NullNode toJson() {
       return NullNode.getInstance();
     }
@@ -544,6 +546,7 @@ public abstract class Value extends Expr {
    * @see Language#Value(Instant)
    * @see Value
    */
+  @JsonSerialize(using = Serializer.TimeSerializer.class)
   public static final class TimeV extends ScalarValue<Instant> {
 
     public TimeV(Instant value) {
@@ -551,7 +554,7 @@ public abstract class Value extends Expr {
     }
 
     @JsonCreator
-    private TimeV(@JsonProperty("@ts") String value) {
+    TimeV(@JsonProperty("@ts") String value) {
       this(Instant.from(DateTimeFormatter.ISO_OFFSET_DATE_TIME.parse(value)));
     }
 
@@ -560,7 +563,6 @@ public abstract class Value extends Expr {
     }
 
     @Override
-    @JsonProperty("@ts")
     protected String toJson() {
       return value.toString();
     }
@@ -575,6 +577,7 @@ public abstract class Value extends Expr {
    * @see Language#Value(LocalDate)
    * @see Value
    */
+  @JsonSerialize(using = Serializer.DateSerializer.class)
   public static final class DateV extends ScalarValue<LocalDate> {
 
     public DateV(LocalDate value) {
@@ -582,12 +585,11 @@ public abstract class Value extends Expr {
     }
 
     @JsonCreator
-    private DateV(@JsonProperty("@date") String value) {
+    DateV(@JsonProperty("@date") String value) {
       super(LocalDate.parse(value));
     }
 
     @Override
-    @JsonProperty("@date")
     protected String toJson() {
       return value.toString();
     }
@@ -601,6 +603,7 @@ public abstract class Value extends Expr {
    * @see <a href="https://docs.fauna.com/fauna/current/api/fql/types?lang=java#literal">Fauna Literal Type</a>
    * @see Value
    */
+  @JsonSerialize(using = Serializer.SetRefSerializer.class)
   public static final class SetRefV extends ScalarValue<Map<String, Value>> {
 
     public SetRefV(@JsonProperty("@set") Map<String, Value> parameters) {
@@ -619,7 +622,6 @@ public abstract class Value extends Expr {
     }
 
     @Override
-    @JsonProperty("@set")
     protected Map<String, Value> toJson() {
       return value;
     }
@@ -644,9 +646,9 @@ public abstract class Value extends Expr {
    */
   @JsonInclude(JsonInclude.Include.NON_ABSENT)
   public static class RefID {
-    @JsonProperty("id")         private final String id;
-    @JsonProperty("collection") private final RefV collection;
-    @JsonProperty("database")   private final RefV database;
+    @JsonProperty("id")         final String id;
+    @JsonProperty("collection") final RefV collection;
+    @JsonProperty("database")   final RefV database;
 
     private RefID(String id, RefV collection, RefV database) {
       this.id = id;
@@ -683,8 +685,12 @@ public abstract class Value extends Expr {
    * @see Language#Ref(Expr, String)
    * @see Value
    */
+  @JsonSerialize(using = Serializer.RefSerializer.class)
   public static final class RefV extends Value.ScalarValue<RefID> {
 
+    @JsonIgnore
+    volatile SerializedString json;
+
     public RefV(String id, RefV collection, RefV database) {
       super(new RefID(id, collection, database));
     }
@@ -715,7 +721,6 @@ public abstract class Value extends Expr {
     }
 
     @Override
-    @JsonProperty("@ref")
     protected Object toJson() {
       return value;
     }
@@ -784,6 +789,7 @@ public abstract class Value extends Expr {
    * @see Language#Value(byte[])
    * @see Value
    */
+  @JsonSerialize(using = Serializer.BytesSerializer.class)
   public static final class BytesV extends ScalarValue<byte[]> {
 
     public BytesV(byte[] bytes) {
@@ -796,7 +802,6 @@ public abstract class Value extends Expr {
     }
 
     @Override
-    @JsonProperty("@bytes")
     protected Object toJson() {
       return Base64.getUrlEncoder().encodeToString(value);
     }
@@ -829,16 +834,16 @@ public abstract class Value extends Expr {
    * @see Value
    */
   @JsonDeserialize(using = JsonDeserializer.None.class) // Disables generic value deserializer for query values
+  @JsonSerialize(using = Serializer.QuerySerializer.class)
   public static final class QueryV extends Value {
 
     private Map<String, Object> lambda;
 
-    private QueryV(@JsonProperty("@query") Map<String, Object> lambda) {
+    QueryV(@JsonProperty("@query") Map<String, Object> lambda) {
       this.lambda = lambda;
     }
 
     @Override
-    @JsonProperty("@query")
     protected Map<String, Object> toJson() {
       return lambda;
     }
@@ -0,0 +1,104 @@
+package com.faunadb.client.util;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializerProvider;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+/**
+ * Memoizes the encoded JSON of immutable expressions, so expressions kept and sent over and over,
+ * such as {@code Collection("users")}, are serialized once and then copied into the request as is.
+ *
+ * <p>Expressions are written normally the first time they are serialized. They are encoded and
+ * cached the second time only, so expressions built for a single query don't pay for the cache.
+ * While an expression is being encoded, its subexpressions don't cache themselves, since only the
+ * outermost fragment is ever written again.</p>
+ *
+ * <p>Callers keep the cache state returned by {@link #write} in a volatile field of the expression.
+ * Races are harmless, as every thread computes the same encoding.</p>
+ *
+ * <p><b>WARNING:</b> Internal API. Must not be used in production code.</p>
+ */
+public final class JsonFragments {
+
+  /**
+   * Writes the expression's JSON to the generator provided.
+   */
+  @FunctionalInterface
+  public interface Writer {
+    void writeTo(JsonGenerator gen) throws IOException;
+  }
+
+  private static final SerializedString SEEN = new SerializedString("");
+  private static final Object ENCODING = new Object();
+
+  private JsonFragments() {
+  }
+
+  /**
+   * Writes an immutable expression, either from its cached encoding or through the writer provided.
+   *
+   * @param state the cache state previously returned for the expression, or null
+   * @param gen the generator to write to
+   * @param provider the current serializer provider
+   * @param writer writes the expression when it is not cached
+   * @return the new cache state for the expression
+   * @throws IOException if the expression cannot be written
+   */
+  public static SerializedString write(SerializedString state, JsonGenerator gen, SerializerProvider provider, Writer writer) throws IOException {
+    if (state instanceof Fragment) {
+      // generators configured differently than the one the fragment was encoded for write the expression themselves
+      if (((Fragment) state).matches(gen))
+        gen.writeRawValue(state);
+      else
+        writer.writeTo(gen);
+      return state;
+    }
+
+    boolean cacheable = state == SEEN &&
+      isPlain(gen) &&
+      gen.getCodec() != null &&
+      provider.getAttribute(ENCODING) == null;
+
+    if (!cacheable) {
+      writer.writeTo(gen);
+      return state == null ? SEEN : state;
+    }
+
+    StringWriter out = new StringWriter();
+    provider.setAttribute(ENCODING, Boolean.TRUE);
+    try (JsonGenerator fragment = gen.getCodec().getFactory().createGenerator(out)) {
+      fragment.overrideStdFeatures(gen.getFeatureMask(), ~0);
+      writer.writeTo(fragment);
+    } finally {
+      provider.setAttribute(ENCODING, null);
+    }
+
+    Fragment encoded = new Fragment(out.toString(), gen.getFeatureMask());
+    gen.writeRawValue(encoded);
+    return encoded;
+  }
+
+  // pretty printed or escaped output would not match an encoding copied as is
+  private static boolean isPlain(JsonGenerator gen) {
+    return gen.getPrettyPrinter() == null &&
+      gen.getCharacterEscapes() == null &&
+      gen.getHighestEscapedChar() == 0 &&
+      !gen.isEnabled(JsonGenerator.Feature.ESCAPE_NON_ASCII);
+  }
+
+  private static final class Fragment extends SerializedString {
+    private final int features;
+
+    Fragment(String json, int features) {
+      super(json);
+      this.features = features;
+    }
+
+    boolean matches(JsonGenerator gen) {
+      return gen.getFeatureMask() == features && isPlain(gen);
+    }
+  }
+}
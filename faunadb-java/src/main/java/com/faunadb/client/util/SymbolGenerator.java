@@ -1,16 +1,22 @@
 package com.faunadb.client.util;
 
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
 
 /**
  * The singleton SymbolGenerator is used to automatically generate
  * symbol names when a Java lambda function is provided where a
- * FaunaDB lambda expression is accepted. The symbol space is 2^64 and
- * thread-safe.
+ * FaunaDB lambda expression is accepted.
+ *
+ * <p>Symbols are named after the nesting depth of the lambda being
+ * built, so structurally identical queries always produce the same
+ * symbols, and therefore the same serialized bytes. Sibling lambdas
+ * share symbols, which is safe since their scopes never overlap.</p>
  */
 final public class SymbolGenerator {
     private static final AtomicLong counter = new AtomicLong(0);
-    
+    private static final ThreadLocal<int[]> depth = ThreadLocal.withInitial(() -> new int[1]);
+
     private SymbolGenerator() {
     }
 
@@ -19,9 +25,32 @@ final public class SymbolGenerator {
      *
      * @param prefix the symbol prefix
      * @return a new symbol
+     * @deprecated Symbols from a global counter differ on every call. Use {@link #withSym(String, Function)}.
      */
+    @Deprecated
     public static String genSym(String prefix) {
         long i = counter.incrementAndGet();
-        return String.format("%s%s", prefix, i);
+        return prefix + i;
+    }
+
+    /**
+     * Generates a symbol with the provided prefix and passes it to the scope function.
+     * Symbols generated while the scope function runs are named after the next nesting depth.
+     *
+     * @param prefix the symbol prefix
+     * @param scope the function building the expression in which the symbol is bound
+     * @param <T> the type of the expression built
+     * @return the result of the scope function
+     */
+    public static <T> T withSym(String prefix, Function<String, T> scope) {
+        int[] current = depth.get();
+        String sym = prefix + current[0];
+
+        current[0] += 1;
+        try {
+            return scope.apply(sym);
+        } finally {
+            current[0] -= 1;
+        }
     }
 }
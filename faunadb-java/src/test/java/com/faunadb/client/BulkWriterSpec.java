@@ -0,0 +1,165 @@
+package com.faunadb.client;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.faunadb.client.errors.BadRequestException;
+import com.faunadb.client.errors.TransactionContentionException;
+import com.faunadb.common.RetryPolicy;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.faunadb.client.query.Language.Collection;
+import static org.junit.Assert.*;
+
+public class BulkWriterSpec {
+
+  private final Set<Integer> created = new ConcurrentSkipListSet<>();
+
+  @Test
+  public void shouldWriteAllDocuments() throws Exception {
+    try (LocalFauna fauna = new LocalFauna(query -> create(query, -1))) {
+      BulkWriter writer = BulkWriter.builder(fauna.client(), Collection("users")).withMaxBatchSize(100).build();
+
+      BulkWriter.Report report = writer.write(documents(250)).get();
+
+      assertEquals(250, report.getWritten());
+      assertEquals(List.of(), report.getFailures());
+      assertEquals(3, report.getRequests());
+      assertEquals(250, created.size());
+    }
+  }
+
+  @Test
+  public void shouldIsolateTheInvalidDocumentOfABatch() throws Exception {
+    try (LocalFauna fauna = new LocalFauna(query -> create(query, 137))) {
+      BulkWriter writer = BulkWriter.builder(fauna.client(), Collection("users")).build();
+
+      BulkWriter.Report report = writer.write(documents(500)).get();
+
+      assertEquals(499, report.getWritten());
+      assertEquals(1, report.getFailures().size());
+
+      BulkWriter.Failure failure = report.getFailures().get(0);
+      assertEquals(137, failure.getIndex());
+      assertEquals(Map.of("n", 137), failure.getDocument());
+      assertTrue(failure.getCause() instanceof BadRequestException);
+
+      assertEquals(499, created.size());
+      assertFalse(created.contains(137));
+      assertEquals(0, report.getRetries());
+    }
+  }
+
+  @Test
+  public void shouldRetryOnContentionUpToTheMaxRetries() throws Exception {
+    try (LocalFauna fauna = new LocalFauna(query -> LocalFauna.error(409, "contended transaction"))) {
+      // the client's own retries must not multiply the writer's
+      FaunaClient client = fauna.clientBuilder()
+        .withRetryPolicy(RetryPolicy.builder().withMaxAttempts(5).build())
+        .build();
+      BulkWriter writer = BulkWriter.builder(client, Collection("users")).withMaxRetries(2).build();
+
+      BulkWriter.Report report = writer.write(documents(4)).get();
+
+      // split in halves on each retry: 1 batch of 4, 2 of 2, 4 of 1
+      assertEquals(0, report.getWritten());
+      assertEquals(4, report.getFailures().size());
+      assertEquals(7, report.getRequests());
+      assertEquals(6, report.getRetries());
+      assertEquals(7, fauna.queries().size());
+      for (BulkWriter.Failure failure : report.getFailures()) {
+        assertTrue(failure.getCause() instanceof TransactionContentionException);
+      }
+    }
+  }
+
+  @Test
+  public void shouldWriteTheDocumentsOnceContentionClears() throws Exception {
+    AtomicInteger contended = new AtomicInteger(1);
+
+    try (LocalFauna fauna = new LocalFauna(query -> contended.getAndDecrement() > 0
+      ? LocalFauna.error(409, "contended transaction")
+      : create(query, -1))) {
+      BulkWriter writer = BulkWriter.builder(fauna.client(), Collection("users")).build();
+
+      BulkWriter.Report report = writer.write(documents(10)).get();
+
+      assertEquals(10, report.getWritten());
+      assertEquals(List.of(), report.getFailures());
+      assertEquals(2, report.getRetries());
+      assertEquals(10, created.size());
+    }
+  }
+
+  @Test
+  public void shouldFailOnceTheSourceFails() throws Exception {
+    try (LocalFauna fauna = new LocalFauna(query -> create(query, -1))) {
+      BulkWriter writer = BulkWriter.builder(fauna.client(), Collection("users")).withMaxBatchSize(2).build();
+      IllegalStateException failure = new IllegalStateException("unreadable");
+
+      Iterator<Object> source = new Iterator<>() {
+        private int next = 0;
+
+        @Override
+        public boolean hasNext() {
+          return true;
+        }
+
+        @Override
+        public Object next() {
+          if (next == 5) throw failure;
+          return Map.of("n", next++);
+        }
+      };
+
+      try {
+        writer.write(source).get();
+        fail("expected the source failure");
+      } catch (ExecutionException ex) {
+        assertSame(failure, ex.getCause());
+      }
+
+      // the documents read before the failure are written
+      assertEquals(Set.of(0, 1, 2, 3, 4), created);
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldRejectInvalidBatchSizes() {
+    BulkWriter.builder(LocalFauna.offlineClient(), Collection("users")).withMaxBatchSize(0).build();
+  }
+
+  private static List<Map<String, Integer>> documents(int count) {
+    List<Map<String, Integer>> documents = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      documents.add(Map.of("n", i));
+    }
+    return documents;
+  }
+
+  /**
+   * Answers a batch like FaunaDB would: it is aborted by the invalid document, if it holds it, or all its
+   * documents are created.
+   */
+  private LocalFauna.Response create(JsonNode query, int invalid) {
+    JsonNode documents = query.get("do").get(0).get("collection");
+    List<Integer> batch = new ArrayList<>();
+    for (JsonNode document : documents) {
+      int n = document.get("object").get("n").asInt();
+      if (n == invalid) {
+        return LocalFauna.error(400, "validation failed", "do", 0, "collection", batch.size());
+      }
+      batch.add(n);
+    }
+
+    created.addAll(batch);
+    return LocalFauna.resource(LocalFauna.json.nullNode());
+  }
+}
@@ -1,21 +1,29 @@
 package com.faunadb.client;
 
+import com.fasterxml.jackson.core.JsonParseException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
 import com.faunadb.client.types.Value;
 import com.faunadb.client.types.Value.Native;
 import com.faunadb.client.types.Value.ObjectV;
 import com.faunadb.client.types.Value.RefV;
+import com.faunadb.common.http.ResponseBody;
 import org.junit.Before;
 import org.junit.Test;
 
 import java.io.IOException;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.Flow;
 
 import static com.faunadb.client.types.Codec.*;
 import static org.hamcrest.CoreMatchers.equalTo;
@@ -174,6 +182,76 @@ public class DeserializationSpec {
     assertThat(parsed("{\"@bytes\":\"_w==\"}").to(BYTES).get(), equalTo(new byte[] {(byte)0xff}));
   }
 
+  @Test
+  public void shouldDeserializeQuery() throws Exception {
+    Value parsed = parsed("{\"@query\": {\"lambda\": \"x\", \"expr\": {\"add\": [{\"var\": \"x\"}, 1]}}}");
+    assertThat(parsed instanceof Value.QueryV, is(true));
+    assertThat(parsed, equalTo(fromTree("{\"@query\": {\"lambda\": \"x\", \"expr\": {\"add\": [{\"var\": \"x\"}, 1]}}}")));
+  }
+
+  @Test
+  public void shouldDeserializeNestedSpecialTypes() throws Exception {
+    String str = "{" +
+      "  \"data\": [" +
+      "    {\"@ref\": {\"id\": \"1\", \"collection\": {\"@ref\": {\"id\": \"spells\", \"collection\": {\"@ref\": {\"id\": \"collections\"}}}}}}," +
+      "    {\"@obj\": {\"@ts\": {\"@ts\": \"1970-01-01T00:00:05Z\"}, \"@date\": {\"@date\": \"1970-01-03\"}}}," +
+      "    {\"@set\": {\"match\": {\"@ref\": {\"id\": \"spells_by_element\", \"collection\": {\"@ref\": {\"id\": \"indexes\"}}}}, \"terms\": [\"fire\", null]}}," +
+      "    {}" +
+      "  ]," +
+      "  \"after\": [1.5, {\"@bytes\": \"AQID\"}]" +
+      "}";
+
+    Value parsed = parsed(str);
+    assertThat(parsed.at("data").at(0).to(REF).get(), equalTo(new RefV("1", new RefV("spells", Native.COLLECTIONS))));
+    assertThat(parsed.at("data").at(1).at("@ts").to(TIME).get(), equalTo(Instant.ofEpochSecond(5)));
+    assertThat(parsed.at("data").at(1).at("@date").to(DATE).get(), equalTo(LocalDate.ofEpochDay(2)));
+    assertThat(parsed.at("data").at(2).to(SET_REF).get().parameters().get("terms").at(0).to(STRING).get(), equalTo("fire"));
+    assertThat(parsed.at("data").at(3), equalTo((Value) new ObjectV(new HashMap(0))));
+    assertThat(parsed.at("after").at(0).to(DOUBLE).get(), equalTo(1.5));
+    assertThat(parsed.at("after").at(1).to(BYTES).get(), equalTo(new byte[]{0x1, 0x2, 0x3}));
+
+    assertThat(parsed, equalTo(fromTree(str)));
+  }
+
+  @Test(expected = JsonParseException.class)
+  public void shouldFailOnRefWithoutId() throws Exception {
+    parsed("{\"@ref\": {\"collection\": {\"@ref\": {\"id\": \"collections\"}}}}");
+  }
+
+  @Test(expected = JsonParseException.class)
+  public void shouldFailOnSpecialTypeWithExtraFields() throws Exception {
+    parsed("{\"@ts\": \"1970-01-01T00:00:05Z\", \"other\": 1}");
+  }
+
+  @Test
+  public void shouldDeserializeFromResponseBodyBuffers() throws Exception {
+    byte[] bytes = "{\"data\": [\"fire\", \"\u65e5\u672c\u8a9e\", {\"@ts\": \"1970-01-01T00:00:05Z\"}]}".getBytes(StandardCharsets.UTF_8);
+
+    HttpResponse.BodySubscriber<ResponseBody> subscriber = ResponseBody.handler().apply(null);
+    subscriber.onSubscribe(new Flow.Subscription() {
+      public void request(long n) {}
+      public void cancel() {}
+    });
+
+    // split the body in small chunks, breaking multi-byte characters across buffers
+    for (int i = 0; i < bytes.length; i += 5) {
+      subscriber.onNext(List.of(ByteBuffer.wrap(Arrays.copyOfRange(bytes, i, Math.min(i + 5, bytes.length)))));
+    }
+    subscriber.onComplete();
+
+    ResponseBody body = subscriber.getBody().toCompletableFuture().get();
+    Value parsed = json.readValue(body.asInputStream(), Value.class);
+
+    assertThat(body.length(), equalTo((long) bytes.length));
+    assertThat(body.toString(), equalTo(new String(bytes, StandardCharsets.UTF_8)));
+    assertThat(parsed.at("data").at(1).to(STRING).get(), equalTo("\u65e5\u672c\u8a9e"));
+    assertThat(parsed.at("data").at(2).to(TIME).get(), equalTo(Instant.ofEpochSecond(5)));
+  }
+
+  private Value fromTree(String str) throws java.io.IOException {
+    return json.treeToValue(json.readTree(str), Value.class);
+  }
+
   private Value parsed(String str) throws java.io.IOException {
     return json.readValue(str, Value.class);
   }
@@ -0,0 +1,187 @@
+package com.faunadb.client;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import static com.faunadb.client.query.Language.Collection;
+import static org.junit.Assert.*;
+
+public class FileImporterSpec {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private final Queue<JsonNode> created = new ConcurrentLinkedQueue<>();
+
+  @Test
+  public void shouldImportAllRecords() throws Exception {
+    Path file = ndjson(20, 7);
+
+    try (LocalFauna fauna = new LocalFauna(this::create)) {
+      FileImporter.Report report = importer(fauna, 64).importFile(file);
+
+      assertEquals(21, report.getRecords());
+      assertEquals(20, report.getWritten());
+      assertEquals(1, report.getFailed());
+      assertEquals(Files.size(file), report.getOffset());
+      assertFalse(report.isResumed());
+      assertEquals(numbers(0, 20), created());
+
+      List<String> errors = Files.readAllLines(errors(file));
+      assertEquals(1, errors.size());
+      assertEquals(9, LocalFauna.json.readTree(errors.get(0)).get("line").asInt());
+
+      JsonNode progress = LocalFauna.json.readTree(progress(file).toFile());
+      assertEquals(Files.size(file), progress.get("offset").asLong());
+    }
+  }
+
+  @Test
+  public void shouldResumeAfterTheCommittedRecords() throws Exception {
+    Path file = ndjson(20, 7);
+    // the first ten records and the malformed one were committed before a crash
+    long offset = lineEnd(file, 11);
+    Files.writeString(progress(file), "{\"offset\":" + offset + ",\"line\":11}");
+    Files.writeString(errors(file), "{\"line\":9}\n");
+
+    try (LocalFauna fauna = new LocalFauna(this::create)) {
+      FileImporter.Report report = importer(fauna, 64).importFile(file);
+
+      assertTrue(report.isResumed());
+      assertEquals(10, report.getRecords());
+      assertEquals(10, report.getWritten());
+      assertEquals(numbers(10, 20), created());
+
+      // the errors of the interrupted run are kept
+      assertEquals(List.of("{\"line\":9}"), Files.readAllLines(errors(file)));
+    }
+  }
+
+  @Test
+  public void shouldImportLinesLongerThanAChunk() throws Exception {
+    Path file = folder.getRoot().toPath().resolve("long.ndjson");
+    String padding = "x".repeat(100);
+    List<String> lines = new ArrayList<>();
+    for (int n = 0; n < 5; n++) {
+      lines.add("{\"n\":" + n + ",\"padding\":\"" + padding + "\"}");
+    }
+    Files.write(file, lines);
+
+    try (LocalFauna fauna = new LocalFauna(this::create)) {
+      FileImporter.Report report = importer(fauna, 16).importFile(file);
+
+      assertEquals(5, report.getWritten());
+      assertEquals(0, report.getFailed());
+      assertEquals(numbers(0, 5), created());
+      for (JsonNode document : created) {
+        assertEquals(padding, document.get("padding").asText());
+      }
+    }
+  }
+
+  @Test
+  public void shouldEmptyTheErrorFileOfAPreviousImport() throws Exception {
+    Path file = ndjson(5, 2);
+    Files.writeString(errors(file), "{\"line\":1,\"error\":\"stale\"}\n{\"line\":2,\"error\":\"stale\"}\n");
+
+    try (LocalFauna fauna = new LocalFauna(this::create)) {
+      importer(fauna, 64).importFile(file);
+
+      List<String> errors = Files.readAllLines(errors(file));
+      assertEquals(1, errors.size());
+      assertFalse(errors.get(0).contains("stale"));
+    }
+  }
+
+  @Test
+  public void shouldImportCsvRecordsAsObjectsOfStrings() throws Exception {
+    Path file = folder.getRoot().toPath().resolve("users.csv");
+    Files.writeString(file, "name,city\nAda,London\n\"Hopper, Grace\",\"New \"\"York\"\"\"\n");
+
+    try (LocalFauna fauna = new LocalFauna(this::create)) {
+      FileImporter.Report report = FileImporter.builder(writer(fauna))
+        .withFormat(FileImporter.Format.CSV)
+        .build()
+        .importFile(file);
+
+      assertEquals(2, report.getWritten());
+      List<JsonNode> documents = new ArrayList<>(created);
+      assertEquals("Ada", documents.get(0).get("name").asText());
+      assertEquals("Hopper, Grace", documents.get(1).get("name").asText());
+      assertEquals("New \"York\"", documents.get(1).get("city").asText());
+    }
+  }
+
+  private FileImporter importer(LocalFauna fauna, int chunkBytes) throws Exception {
+    return FileImporter.builder(writer(fauna)).withParallelism(2).withChunkBytes(chunkBytes).build();
+  }
+
+  private static BulkWriter writer(LocalFauna fauna) throws Exception {
+    return BulkWriter.builder(fauna.client(), Collection("users")).withMaxBatchSize(4).withMaxInFlight(1).build();
+  }
+
+  /**
+   * Writes the records {@code {"n": 0}} to {@code {"n": count - 1}}, one per line, and a malformed line
+   * after the record provided.
+   */
+  private Path ndjson(int count, int malformedAfter) throws Exception {
+    List<String> lines = new ArrayList<>();
+    for (int n = 0; n < count; n++) {
+      lines.add("{\"n\":" + n + "}");
+      if (n == malformedAfter) lines.add("{\"n\":");
+    }
+
+    Path file = folder.getRoot().toPath().resolve("users.ndjson");
+    Files.write(file, lines, StandardCharsets.UTF_8);
+    return file;
+  }
+
+  private static long lineEnd(Path file, int lines) throws Exception {
+    byte[] bytes = Files.readAllBytes(file);
+    for (int i = 0; i < bytes.length; i++) {
+      if (bytes[i] == '\n' && --lines == 0) return i + 1;
+    }
+    throw new IllegalArgumentException("Too few lines");
+  }
+
+  private static Path progress(Path file) {
+    return file.resolveSibling(file.getFileName() + ".progress");
+  }
+
+  private static Path errors(Path file) {
+    return file.resolveSibling(file.getFileName() + ".errors");
+  }
+
+  private List<Integer> created() {
+    List<Integer> numbers = new ArrayList<>();
+    for (JsonNode document : created) {
+      numbers.add(document.get("n").asInt());
+    }
+    return numbers;
+  }
+
+  private static List<Integer> numbers(int from, int to) {
+    List<Integer> numbers = new ArrayList<>();
+    for (int n = from; n < to; n++) {
+      numbers.add(n);
+    }
+    return numbers;
+  }
+
+  private LocalFauna.Response create(JsonNode query) {
+    for (JsonNode document : query.get("do").get(0).get("collection")) {
+      created.add(document.get("object"));
+    }
+    return LocalFauna.resource(LocalFauna.json.nullNode());
+  }
+}
@@ -0,0 +1,174 @@
+package com.faunadb.client;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.MalformedURLException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.IntFunction;
+
+/**
+ * A local stand-in for FaunaDB, answering the queries of the specs with the handler provided, one thread per
+ * query.
+ */
+final class LocalFauna implements AutoCloseable {
+
+  interface Handler {
+    Response handle(JsonNode query) throws Exception;
+  }
+
+  static final class Response {
+    private final int status;
+    private final JsonNode body;
+
+    private Response(int status, JsonNode body) {
+      this.status = status;
+      this.body = body;
+    }
+  }
+
+  /**
+   * Answers {@code Paginate} queries over a set of elements built from their index, with the index of the
+   * next element as cursor. Pages mapped by a lambda are answered with the elements as they are.
+   */
+  static final class PaginatedSet implements Handler {
+    private final int size;
+    private final IntFunction<JsonNode> element;
+
+    PaginatedSet(int size, IntFunction<JsonNode> element) {
+      this.size = size;
+      this.element = element;
+    }
+
+    int size() {
+      return size;
+    }
+
+    /**
+     * @return the index of the first element requested by the query
+     */
+    static int after(JsonNode query) {
+      JsonNode after = paginate(query).get("after");
+      return after == null ? 0 : after.get(0).asInt();
+    }
+
+    @Override
+    public Response handle(JsonNode query) {
+      int from = after(query);
+      int to = Math.min(size, from + paginate(query).get("size").asInt());
+
+      ObjectNode page = json.createObjectNode();
+      ArrayNode data = page.putArray("data");
+      for (int n = from; n < to; n++) {
+        data.add(element.apply(n));
+      }
+      if (to < size) {
+        page.putArray("after").add(to);
+      }
+      return resource(page);
+    }
+
+    private static JsonNode paginate(JsonNode query) {
+      return query.has("map") ? query.get("collection") : query;
+    }
+  }
+
+  static final ObjectMapper json = new ObjectMapper();
+
+  private final HttpServer server;
+  private final ExecutorService executor = Executors.newCachedThreadPool();
+  private final List<JsonNode> queries = new CopyOnWriteArrayList<>();
+
+  LocalFauna(Handler handler) throws IOException {
+    server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    server.createContext("/", exchange -> {
+      try {
+        JsonNode query = json.readTree(exchange.getRequestBody());
+        queries.add(query);
+        respond(exchange, handler.handle(query));
+      } catch (Exception ex) {
+        // the client went away
+      } finally {
+        exchange.close();
+      }
+    });
+    server.setExecutor(executor);
+    server.start();
+  }
+
+  /**
+   * @return a builder of clients sending their queries to this server
+   */
+  FaunaClient.Builder clientBuilder() throws MalformedURLException {
+    return FaunaClient.builder()
+      .withEndpoint("http://127.0.0.1:" + server.getAddress().getPort())
+      .withSecret("secret")
+      .withCheckNewVersion(false);
+  }
+
+  FaunaClient client() throws MalformedURLException {
+    return clientBuilder().build();
+  }
+
+  /**
+   * @return a client for the specs that never send a query, such as to check the validation of builders
+   */
+  static FaunaClient offlineClient() {
+    return FaunaClient.builder()
+      .withSecret("secret")
+      .withCheckNewVersion(false)
+      .build();
+  }
+
+  /**
+   * @return the queries received so far, in order
+   */
+  List<JsonNode> queries() {
+    return queries;
+  }
+
+  static Response resource(JsonNode resource) {
+    ObjectNode body = json.createObjectNode();
+    body.set("resource", resource);
+    return new Response(200, body);
+  }
+
+  static Response error(int status, String code, Object... position) {
+    ObjectNode error = json.createObjectNode()
+      .put("code", code)
+      .put("description", code);
+    ArrayNode path = error.putArray("position");
+    for (Object segment : position) {
+      path.add(segment.toString());
+    }
+
+    ObjectNode body = json.createObjectNode();
+    body.putArray("errors").add(error);
+    return new Response(status, body);
+  }
+
+  private static void respond(HttpExchange exchange, Response response) throws IOException {
+    byte[] bytes = json.writeValueAsBytes(response.body);
+    exchange.getResponseHeaders().add("Content-Type", "application/json");
+    exchange.sendResponseHeaders(response.status, bytes.length);
+    try (OutputStream out = exchange.getResponseBody()) {
+      out.write(bytes);
+    }
+  }
+
+  @Override
+  public void close() {
+    server.stop(0);
+    executor.shutdownNow();
+  }
+}
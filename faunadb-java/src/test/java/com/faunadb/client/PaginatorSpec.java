@@ -0,0 +1,170 @@
+package com.faunadb.client;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.IntNode;
+import com.faunadb.client.errors.UnavailableException;
+import com.faunadb.client.types.Value;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static com.faunadb.client.query.Language.Add;
+import static com.faunadb.client.query.Language.Collection;
+import static com.faunadb.client.query.Language.Documents;
+import static com.faunadb.client.query.Language.Lambda;
+import static com.faunadb.client.query.Language.Var;
+import static org.junit.Assert.*;
+
+public class PaginatorSpec {
+
+  private static final LocalFauna.PaginatedSet NUMBERS = new LocalFauna.PaginatedSet(25, IntNode::valueOf);
+  private static final int ELEMENTS = NUMBERS.size();
+
+  @Test
+  public void shouldIterateOverAllPages() throws Exception {
+    try (LocalFauna fauna = new LocalFauna(NUMBERS)) {
+      Paginator paginator = fauna.client().paginate(Documents(Collection("users"))).withPageSize(10);
+
+      List<Long> elements = new ArrayList<>();
+      for (Value value : paginator) {
+        elements.add(value.to(Long.class).get());
+      }
+
+      assertEquals(numbers(0, ELEMENTS), elements);
+      assertEquals(3, fauna.queries().size());
+      assertEquals(10, fauna.queries().get(1).get("after").get(0).asInt());
+    }
+  }
+
+  @Test
+  public void shouldMapElementsWithinThePageQuery() throws Exception {
+    try (LocalFauna fauna = new LocalFauna(NUMBERS)) {
+      Paginator paginator = fauna.client()
+        .paginate(Documents(Collection("users")))
+        .withPageSize(10)
+        .withLambda(Lambda("n", Add(Var("n"), Var("n"))));
+
+      List<Long> elements = paginator.stream().map(value -> value.to(Long.class).get()).collect(Collectors.toList());
+
+      assertEquals(ELEMENTS, elements.size());
+      for (JsonNode query : fauna.queries()) {
+        assertTrue(query.has("map"));
+      }
+    }
+  }
+
+  @Test
+  public void shouldThrowTheFailureOfAPage() throws Exception {
+    try (LocalFauna fauna = new LocalFauna(query ->
+      LocalFauna.PaginatedSet.after(query) == 10 ? LocalFauna.error(503, "unavailable") : NUMBERS.handle(query))) {
+      Iterator<Value> elements = fauna.client().paginate(Documents(Collection("users"))).withPageSize(10).iterator();
+
+      for (int i = 0; i < 10; i++) {
+        elements.next();
+      }
+
+      try {
+        elements.hasNext();
+        fail("expected the failure of the second page");
+      } catch (UnavailableException ex) {
+        // expected
+      }
+    }
+  }
+
+  @Test
+  public void shouldPublishElementsOnDemand() throws Exception {
+    try (LocalFauna fauna = new LocalFauna(NUMBERS)) {
+      Paginator paginator = fauna.client().paginate(Documents(Collection("users"))).withPageSize(10);
+      CollectingSubscriber subscriber = new CollectingSubscriber(1, true);
+
+      paginator.subscribe(subscriber);
+
+      assertEquals(numbers(0, ELEMENTS), subscriber.completed.get(5, TimeUnit.SECONDS));
+      assertEquals(3, fauna.queries().size());
+    }
+  }
+
+  @Test
+  public void shouldStopFetchingOnceCancelled() throws Exception {
+    try (LocalFauna fauna = new LocalFauna(NUMBERS)) {
+      Paginator paginator = fauna.client().paginate(Documents(Collection("users"))).withPageSize(5);
+      CollectingSubscriber subscriber = new CollectingSubscriber(3, false);
+
+      paginator.subscribe(subscriber);
+      subscriber.awaitElements(3);
+      subscriber.subscription.cancel();
+
+      // the first page, and at most the one fetched ahead
+      Thread.sleep(200);
+      assertTrue(fauna.queries().size() <= 2);
+      assertFalse(subscriber.completed.isDone());
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldRejectInvalidPageSizes() {
+    LocalFauna.offlineClient().paginate(Documents(Collection("users"))).withPageSize(0);
+  }
+
+  /**
+   * Collects the elements it requests: the first ones, and one more after each if it keeps requesting.
+   */
+  private static final class CollectingSubscriber implements Flow.Subscriber<Value> {
+    private final int initial;
+    private final boolean keepRequesting;
+    private final List<Long> elements = new ArrayList<>();
+    private final CompletableFuture<List<Long>> completed = new CompletableFuture<>();
+    private volatile Flow.Subscription subscription;
+
+    private CollectingSubscriber(int initial, boolean keepRequesting) {
+      this.initial = initial;
+      this.keepRequesting = keepRequesting;
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+      this.subscription = subscription;
+      subscription.request(initial);
+    }
+
+    @Override
+    public synchronized void onNext(Value item) {
+      elements.add(item.to(Long.class).get());
+      if (keepRequesting) subscription.request(1);
+      notifyAll();
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+      completed.completeExceptionally(throwable);
+    }
+
+    @Override
+    public synchronized void onComplete() {
+      completed.complete(List.copyOf(elements));
+    }
+
+    private synchronized void awaitElements(int count) throws InterruptedException {
+      long deadline = System.currentTimeMillis() + 5000;
+      while (elements.size() < count && System.currentTimeMillis() < deadline) {
+        wait(100);
+      }
+      assertEquals(count, elements.size());
+    }
+  }
+
+  private static List<Long> numbers(int from, int to) {
+    List<Long> numbers = new ArrayList<>();
+    for (long n = from; n < to; n++) {
+      numbers.add(n);
+    }
+    return numbers;
+  }
+}
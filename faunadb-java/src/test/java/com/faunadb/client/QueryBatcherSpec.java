@@ -0,0 +1,182 @@
+package com.faunadb.client;
+
+import com.faunadb.client.errors.NotFoundException;
+import com.faunadb.client.errors.UnavailableException;
+import com.faunadb.client.query.Expr;
+import com.faunadb.client.types.Value;
+import com.faunadb.client.types.Value.StringV;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.faunadb.client.query.Language.Value;
+import static org.junit.Assert.*;
+
+public class QueryBatcherSpec {
+
+  private final Expr a = Value("a");
+  private final Expr b = Value("b");
+  private final Expr c = Value("c");
+
+  private final List<Expr> singles = Collections.synchronizedList(new ArrayList<>());
+  private final List<List<Expr>> batches = Collections.synchronizedList(new ArrayList<>());
+
+  private final AtomicInteger executed = new AtomicInteger();
+  private final Executor executor = task -> {
+    executed.incrementAndGet();
+    ForkJoinPool.commonPool().execute(task);
+  };
+
+  @Test
+  public void shouldSendTheQueriesOfAWindowAsOneRequest() throws Exception {
+    QueryBatcher batcher = batcher(Duration.ofMillis(50), 10, Set.of(), true);
+
+    CompletableFuture<Value> first = batcher.submit(a);
+    CompletableFuture<Value> second = batcher.submit(b);
+    CompletableFuture<Value> third = batcher.submit(c);
+
+    assertEquals(new StringV("a"), first.get());
+    assertEquals(new StringV("b"), second.get());
+    assertEquals(new StringV("c"), third.get());
+    assertEquals(List.of(List.of(a, b, c)), batches);
+    assertEquals(List.of(), singles);
+    assertEquals(1, executed.get());
+  }
+
+  @Test
+  public void shouldSendAFullBatchRightAway() {
+    QueryBatcher batcher = batcher(Duration.ofMinutes(1), 2, Set.of(), true);
+
+    CompletableFuture<Value> first = batcher.submit(a);
+    CompletableFuture<Value> second = batcher.submit(b);
+
+    assertTrue(first.isDone());
+    assertTrue(second.isDone());
+    assertEquals(List.of(List.of(a, b)), batches);
+  }
+
+  @Test
+  public void shouldSendALoneQueryOnItsOwn() throws Exception {
+    QueryBatcher batcher = batcher(Duration.ZERO, 10, Set.of(), true);
+
+    assertEquals(new StringV("a"), batcher.submit(a).get());
+    assertEquals(List.of(a), singles);
+    assertEquals(List.of(), batches);
+  }
+
+  @Test
+  public void shouldSendTheOthersAgainWithoutTheFailingQuery() throws Exception {
+    QueryBatcher batcher = batcher(Duration.ofMinutes(1), 3, Set.of(b), true);
+
+    CompletableFuture<Value> first = batcher.submit(a);
+    CompletableFuture<Value> second = batcher.submit(b);
+    CompletableFuture<Value> third = batcher.submit(c);
+
+    assertEquals(new StringV("a"), first.get());
+    assertEquals(new StringV("c"), third.get());
+    assertNotFound(second);
+
+    assertEquals(List.of(List.of(a, b, c), List.of(a, c)), batches);
+    assertEquals(List.of(b), singles);
+  }
+
+  @Test
+  public void shouldSendEachQueryOnItsOwnIfTheFailingOneIsUnknown() throws Exception {
+    QueryBatcher batcher = batcher(Duration.ofMinutes(1), 3, Set.of(b), false);
+
+    CompletableFuture<Value> first = batcher.submit(a);
+    CompletableFuture<Value> second = batcher.submit(b);
+    CompletableFuture<Value> third = batcher.submit(c);
+
+    assertEquals(new StringV("a"), first.get());
+    assertEquals(new StringV("c"), third.get());
+    assertNotFound(second);
+
+    assertEquals(List.of(List.of(a, b, c)), batches);
+    assertEquals(List.of(a, b, c), singles);
+  }
+
+  @Test
+  public void shouldFailAllQueriesWhenTheRequestFails() {
+    HttpResponses.QueryError error = new HttpResponses.QueryError(List.of(), "unavailable", "Service unavailable.", List.of());
+    UnavailableException failure = new UnavailableException(HttpResponses.QueryErrorResponse.create(503, List.of(error)));
+    QueryBatcher batcher = new QueryBatcher(Duration.ofMinutes(1), 2, executor,
+      expr -> {
+        singles.add(expr);
+        return CompletableFuture.failedFuture(failure);
+      },
+      exprs -> {
+        batches.add(exprs);
+        return CompletableFuture.failedFuture(failure);
+      });
+
+    CompletableFuture<Value> first = batcher.submit(a);
+    CompletableFuture<Value> second = batcher.submit(b);
+
+    for (CompletableFuture<Value> query : List.of(first, second)) {
+      try {
+        query.get();
+        fail("expected the request failure");
+      } catch (InterruptedException | ExecutionException ex) {
+        assertSame(failure, ex.getCause());
+      }
+    }
+    assertEquals(1, batches.size());
+    assertEquals(List.of(), singles);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldRejectInvalidBatchSizes() {
+    batcher(Duration.ZERO, 0, Set.of(), true);
+  }
+
+  /**
+   * A batcher failing the queries provided with a not found error, like FaunaDB aborting a transaction.
+   */
+  private QueryBatcher batcher(Duration window, int maxBatchSize, Set<Expr> missing, boolean withPosition) {
+    return new QueryBatcher(window, maxBatchSize, executor,
+      expr -> {
+        singles.add(expr);
+        if (missing.contains(expr))
+          return CompletableFuture.failedFuture(notFound(List.of()));
+        return CompletableFuture.completedFuture(evaluate(expr));
+      },
+      exprs -> {
+        batches.add(List.copyOf(exprs));
+        List<Value> values = new ArrayList<>();
+        for (int i = 0; i < exprs.size(); i++) {
+          if (missing.contains(exprs.get(i)))
+            return CompletableFuture.failedFuture(notFound(withPosition ? List.of(String.valueOf(i)) : List.of()));
+          values.add(evaluate(exprs.get(i)));
+        }
+        return CompletableFuture.completedFuture(values);
+      });
+  }
+
+  private Value evaluate(Expr expr) {
+    return expr == a ? new StringV("a") : expr == b ? new StringV("b") : new StringV("c");
+  }
+
+  private static NotFoundException notFound(List<String> position) {
+    HttpResponses.QueryError error = new HttpResponses.QueryError(position, "instance not found", "Document not found.", List.of());
+    return new NotFoundException(HttpResponses.QueryErrorResponse.create(404, List.of(error)));
+  }
+
+  private static void assertNotFound(CompletableFuture<Value> query) throws InterruptedException {
+    try {
+      query.get();
+      fail("expected the query to fail");
+    } catch (ExecutionException ex) {
+      assertTrue(ex.getCause() instanceof NotFoundException);
+    }
+  }
+}
@@ -0,0 +1,120 @@
+package com.faunadb.client;
+
+import com.codahale.metrics.MetricRegistry;
+import com.faunadb.client.types.Value;
+import com.faunadb.client.types.Value.StringV;
+import com.faunadb.common.Deadline;
+import com.faunadb.common.http.RequestBody;
+import com.faunadb.common.models.request.RequestParameters;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.*;
+
+public class QueryCoalescerSpec {
+
+  private static final RequestParameters READ = new RequestParameters(Optional.empty(), Optional.empty(), Map.of(), true);
+
+  private final QueryCoalescer coalescer = new QueryCoalescer();
+  private final AtomicInteger sent = new AtomicInteger();
+
+  @Test
+  public void shouldShareTheRequestOfIdenticalQueries() throws Exception {
+    MetricRegistry registry = new MetricRegistry();
+    coalescer.registerMetrics(registry, "fauna-queries");
+    CompletableFuture<Value> response = new CompletableFuture<>();
+
+    CompletableFuture<Value> first = coalescer.coalesce("secret", READ, body("{\"get\":1}"), send(response));
+    CompletableFuture<Value> second = coalescer.coalesce("secret", READ, body("{\"get\":1}"), send(response));
+
+    response.complete(new StringV("doc"));
+    assertEquals(new StringV("doc"), first.get());
+    assertEquals(new StringV("doc"), second.get());
+    assertEquals(1, sent.get());
+    assertEquals(1, registry.counter("fauna-queries-coalesced").getCount());
+  }
+
+  @Test
+  public void shouldSendQueriesArrivingAfterTheResponse() throws Exception {
+    coalescer.coalesce("secret", READ, body("{\"get\":1}"), send(CompletableFuture.completedFuture(new StringV("old")))).get();
+    Value value = coalescer.coalesce("secret", READ, body("{\"get\":1}"), send(CompletableFuture.completedFuture(new StringV("new")))).get();
+
+    assertEquals(new StringV("new"), value);
+    assertEquals(2, sent.get());
+  }
+
+  @Test
+  public void shouldNotShareAcrossSecretsOrBodies() {
+    CompletableFuture<Value> pending = new CompletableFuture<>();
+
+    coalescer.coalesce("secret", READ, body("{\"get\":1}"), send(pending));
+    coalescer.coalesce("other", READ, body("{\"get\":1}"), send(pending));
+    coalescer.coalesce("secret", READ, body("{\"get\":2}"), send(pending));
+
+    RequestParameters tagged = new RequestParameters(Optional.empty(), Optional.empty(), Map.of("a", "b"), true);
+    coalescer.coalesce("secret", tagged, body("{\"get\":1}"), send(pending));
+
+    assertEquals(4, sent.get());
+  }
+
+  @Test
+  public void shouldShareFailures() throws Exception {
+    CompletableFuture<Value> response = new CompletableFuture<>();
+    CompletableFuture<Value> first = coalescer.coalesce("secret", READ, body("{\"get\":1}"), send(response));
+    CompletableFuture<Value> second = coalescer.coalesce("secret", READ, body("{\"get\":1}"), send(response));
+
+    IllegalStateException failure = new IllegalStateException("unavailable");
+    response.completeExceptionally(failure);
+
+    for (CompletableFuture<Value> query : List.of(first, second)) {
+      try {
+        query.get();
+        fail("expected the shared failure");
+      } catch (ExecutionException ex) {
+        assertSame(failure, ex.getCause());
+      }
+    }
+  }
+
+  @Test
+  public void shouldOnlyStopWaitingOnceCancelled() throws Exception {
+    CompletableFuture<Value> response = new CompletableFuture<>();
+    CompletableFuture<Value> first = coalescer.coalesce("secret", READ, body("{\"get\":1}"), send(response));
+    CompletableFuture<Value> second = coalescer.coalesce("secret", READ, body("{\"get\":1}"), send(response));
+
+    first.cancel(false);
+    assertFalse(response.isCancelled());
+
+    response.complete(new StringV("doc"));
+    assertEquals(new StringV("doc"), second.get());
+  }
+
+  @Test
+  public void shouldOnlyCoalesceReadOnlyQueriesWithoutTraceOrDeadline() {
+    assertTrue(QueryCoalescer.canCoalesce(READ));
+    assertFalse(QueryCoalescer.canCoalesce(new RequestParameters(Optional.empty(), Optional.empty(), Map.of(), false)));
+    assertFalse(QueryCoalescer.canCoalesce(new RequestParameters(Optional.empty(), Optional.of("trace"), Map.of(), true)));
+    assertFalse(QueryCoalescer.canCoalesce(READ.withDeadline(Deadline.after(Duration.ofSeconds(1)))));
+  }
+
+  private Supplier<CompletableFuture<Value>> send(CompletableFuture<Value> response) {
+    return () -> {
+      sent.incrementAndGet();
+      return response;
+    };
+  }
+
+  private static RequestBody body(String json) {
+    byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+    return RequestBody.of(bytes, 0, bytes.length);
+  }
+}
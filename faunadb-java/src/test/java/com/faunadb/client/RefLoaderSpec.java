@@ -0,0 +1,132 @@
+package com.faunadb.client;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.faunadb.client.errors.UnavailableException;
+import com.faunadb.client.types.Value;
+import com.faunadb.client.types.Value.Native;
+import com.faunadb.client.types.Value.RefV;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.Assert.*;
+
+public class RefLoaderSpec {
+
+  private static final RefV POSTS = new RefV("posts", Native.COLLECTIONS);
+
+  @Test
+  public void shouldFetchTheReferencesOfAWindowOnce() throws Exception {
+    try (LocalFauna fauna = new LocalFauna(query -> documents(query, Set.of()))) {
+      RefLoader loader = RefLoader.builder(fauna.client()).withWindow(Duration.ofMillis(50)).build();
+
+      CompletableFuture<Optional<Value>> first = loader.load(post("1"));
+      CompletableFuture<Optional<Value>> second = loader.load(post("2"));
+      CompletableFuture<Optional<Value>> again = loader.load(post("1"));
+
+      assertEquals("1", id(first.get()));
+      assertEquals("2", id(second.get()));
+      assertEquals("1", id(again.get()));
+
+      assertEquals(1, fauna.queries().size());
+      assertEquals(2, refs(fauna.queries().get(0)).size());
+    }
+  }
+
+  @Test
+  public void shouldReturnNothingForMissingDocuments() throws Exception {
+    try (LocalFauna fauna = new LocalFauna(query -> documents(query, Set.of("2")))) {
+      RefLoader loader = RefLoader.builder(fauna.client()).build();
+
+      List<Optional<Value>> documents = loader.loadAll(List.of(post("1"), post("2"), post("3"))).get();
+
+      assertEquals("1", id(documents.get(0)));
+      assertEquals(Optional.empty(), documents.get(1));
+      assertEquals("3", id(documents.get(2)));
+    }
+  }
+
+  @Test
+  public void shouldSplitReferencesTooManyForOneRequest() throws Exception {
+    try (LocalFauna fauna = new LocalFauna(query -> documents(query, Set.of()))) {
+      RefLoader loader = RefLoader.builder(fauna.client())
+        .withWindow(Duration.ofMillis(50))
+        .withMaxRequestBytes(400)
+        .build();
+
+      List<Optional<Value>> documents = loader.loadAll(List.of(post("1"), post("2"), post("3"), post("4"))).get();
+
+      for (int i = 0; i < 4; i++) {
+        assertEquals(String.valueOf(i + 1), id(documents.get(i)));
+      }
+      assertTrue(fauna.queries().size() > 1);
+      int fetched = 0;
+      for (JsonNode query : fauna.queries()) {
+        fetched += refs(query).size();
+      }
+      assertEquals(4, fetched);
+    }
+  }
+
+  @Test
+  public void shouldFailAllLoadsWhenTheQueryFails() throws Exception {
+    try (LocalFauna fauna = new LocalFauna(query -> LocalFauna.error(503, "unavailable"))) {
+      RefLoader loader = RefLoader.builder(fauna.client()).build();
+
+      CompletableFuture<List<Optional<Value>>> documents = loader.loadAll(List.of(post("1"), post("2")));
+
+      try {
+        documents.get();
+        fail("expected the query failure");
+      } catch (ExecutionException ex) {
+        assertTrue(ex.getCause() instanceof UnavailableException);
+      }
+
+      // failed fetches are not joined by later loads
+      loader.load(post("1")).exceptionally(ex -> Optional.empty()).get();
+      assertEquals(2, fauna.queries().size());
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldRejectInvalidRequestSizes() {
+    RefLoader.builder(LocalFauna.offlineClient()).withMaxRequestBytes(0).build();
+  }
+
+  private static RefV post(String id) {
+    return new RefV(id, POSTS);
+  }
+
+  private static String id(Optional<Value> document) {
+    return document.orElseThrow().at("data", "id").to(String.class).get();
+  }
+
+  private static ArrayNode refs(JsonNode query) {
+    return (ArrayNode) query.get("collection");
+  }
+
+  /**
+   * Answers the {@code Map} over references with a document per reference, or null for the missing ones.
+   */
+  private static LocalFauna.Response documents(JsonNode query, Set<String> missing) {
+    ArrayNode documents = LocalFauna.json.createArrayNode();
+    for (JsonNode ref : refs(query)) {
+      String id = ref.get("@ref").get("id").asText();
+      if (missing.contains(id)) {
+        documents.addNull();
+      } else {
+        ObjectNode document = documents.addObject();
+        document.set("ref", ref);
+        document.putObject("data").put("id", id);
+      }
+    }
+    return LocalFauna.resource(documents);
+  }
+}
@@ -1,19 +1,32 @@
 package com.faunadb.client;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonMappingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.faunadb.client.query.Expr;
+import com.faunadb.client.query.Pagination;
 import com.faunadb.client.types.Value;
 import com.faunadb.client.types.Value.*;
+import com.faunadb.common.http.RequestBody;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
 import java.time.Duration;
 import java.time.Instant;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
 
 import static com.faunadb.client.query.Language.*;
 import static com.faunadb.client.query.Language.Collection;
@@ -126,6 +139,17 @@ public class SerializationSpec {
       "{\"object\":{\"k1\":\"v1\",\"k2\":\"v2\"}}");
   }
 
+  @Test
+  public void shouldEscapeObjectKeys() throws Exception {
+    assertJson(
+      Obj("quote\"d", Value("v1"), "new\nline", new ObjectV(Collections.singletonMap("back\\slash", new StringV("v2")))),
+      "{\"object\":{\"quote\\\"d\":\"v1\",\"new\\nline\":{\"object\":{\"back\\\\slash\":\"v2\"}}}}");
+
+    assertJson(
+      Let("a\"b", Value(1)).in(Var("a\"b")),
+      "{\"let\":[{\"a\\\"b\":1}],\"in\":{\"var\":\"a\\\"b\"}}");
+  }
+
   @Test
   public void shouldSerializeRef() throws Exception {
     assertJson(Native.COLLECTIONS, "{\"@ref\":{\"id\":\"collections\"}}");
@@ -312,6 +336,75 @@ public class SerializationSpec {
       ), "{\"map\":{\"lambda\":\"x\",\"expr\":{\"var\":\"x\"}},\"collection\":[1,2,3]}");
   }
 
+  @Test
+  public void shouldNameJavaLambdaVariablesAfterTheirDepth() throws Exception {
+    assertJson(
+      Map(
+        Arr(Arr(Value(1)), Arr(Value(2))),
+        row -> Filter(row, x -> GT(x, Select(Value(0), row)))
+      ),
+      "{\"map\":{\"lambda\":\"map0\",\"expr\":" +
+        "{\"filter\":{\"lambda\":\"filter1\",\"expr\":{\"gt\":[{\"var\":\"filter1\"},{\"select\":0,\"from\":{\"var\":\"map0\"}}]}}," +
+        "\"collection\":{\"var\":\"map0\"}}},\"collection\":[[1],[2]]}");
+
+    Expr first = Foreach(Documents(Collection("users")), ref -> Delete(ref));
+    Expr second = Foreach(Documents(Collection("users")), ref -> Delete(ref));
+
+    assertThat(json.writeValueAsString(first), equalTo(json.writeValueAsString(second)));
+  }
+
+  @Test
+  public void shouldCompareExpressionsStructurally() throws Exception {
+    Expr first = Paginate(Match(Index("users_by_name"), Value("bob"))).after(Value(1)).size(10);
+    Expr second = Paginate(Match(Index("users_by_name"), Value("bob"))).after(Value(1)).size(10);
+
+    assertThat(first, equalTo(second));
+    assertThat(first.hashCode(), equalTo(second.hashCode()));
+    assertThat(first.equals(Paginate(Match(Index("users_by_name"), Value("bob"))).before(Value(1)).size(10)), equalTo(false));
+
+    Expr mapped = Map(Paginate(Match(Index("users_by_name"), Value("bob"))), Lambda("ref", Get(Var("ref"))));
+    Expr same = Map(Paginate(Match(Index("users_by_name"), Value("bob"))), Lambda("ref", Get(Var("ref"))));
+
+    assertThat(mapped, equalTo(same));
+    assertThat(mapped.hashCode(), equalTo(same.hashCode()));
+    assertThat(json.writeValueAsString(mapped), equalTo(json.writeValueAsString(same)));
+    assertThat(Obj("k1", Value("v1")).equals(Obj("k1", Value("v2"))), equalTo(false));
+    assertThat(Arr(Value(1), Value(2)).equals(Arr(Value(1), Value(2))), equalTo(true));
+  }
+
+  @Test
+  public void shouldReuseEncodedConstantExpressions() throws Exception {
+    Expr users = Collection("users");
+    RefV ref = new RefV("1", new RefV("users", Native.COLLECTIONS));
+    Pagination page = Paginate(Documents(users));
+
+    for (int i = 0; i < 3; i++) {
+      assertJson(
+        Arr(users, ref, Obj("data", Obj("name", Value("bob"))), page.size(i)),
+        "[{\"collection\":\"users\"}," +
+          "{\"@ref\":{\"id\":\"1\",\"collection\":{\"@ref\":{\"id\":\"users\",\"collection\":{\"@ref\":{\"id\":\"collections\"}}}}}}," +
+          "{\"object\":{\"data\":{\"object\":{\"name\":\"bob\"}}}}," +
+          "{\"paginate\":{\"documents\":{\"collection\":\"users\"}},\"size\":" + i + "}]");
+
+      assertThat(new String(json.writeValueAsBytes(Get(ref)), "UTF-8"),
+        equalTo("{\"get\":{\"@ref\":{\"id\":\"1\",\"collection\":{\"@ref\":{\"id\":\"users\",\"collection\":{\"@ref\":{\"id\":\"collections\"}}}}}}}"));
+    }
+  }
+
+  @Test
+  public void shouldNotReuseEncodedExpressionsForOtherOutputSettings() throws Exception {
+    Expr named = Obj("name", Value("jos\u00e9"));
+
+    for (int i = 0; i < 3; i++)
+      assertJson(named, "{\"object\":{\"name\":\"jos\u00e9\"}}");
+
+    assertThat(json.writer().with(JsonGenerator.Feature.ESCAPE_NON_ASCII).writeValueAsString(named),
+      equalTo("{\"object\":{\"name\":\"jos\\u00E9\"}}"));
+
+    assertThat(json.writerWithDefaultPrettyPrinter().writeValueAsString(named),
+      equalTo(json.writerWithDefaultPrettyPrinter().writeValueAsString(Obj("name", Value("jos\u00e9")))));
+  }
+
   @Test
   public void shouldSerializeForeach() throws Exception {
     assertJson(
@@ -1580,6 +1673,88 @@ public class SerializationSpec {
     assertJson(Documents(Collection("foo")), "{\"documents\":{\"collection\":\"foo\"}}");
   }
 
+  @Test
+  public void shouldWriteRequestBodyInChunks() throws Exception {
+    List<Expr> docs = new ArrayList<>();
+    for (int i = 0; i < 5000; i++) {
+      docs.add(Obj("name", Value("user " + i), "tags", Arr(Value("a"), Value(i))));
+    }
+    Expr expr = Foreach(Arr(docs), Lambda("doc", Create(Collection("users"), Obj("data", Var("doc")))));
+
+    RequestBody body = RequestBody.write(json, expr);
+    byte[] expected = json.writeValueAsBytes(expr);
+
+    assertThat(body.length(), equalTo((long) expected.length));
+    assertThat(body.publisher().contentLength(), equalTo((long) expected.length));
+    assertThat(publish(body), equalTo(expected));
+  }
+
+  @Test
+  public void shouldSpliceParametersIntoPreparedQuery() throws Exception {
+    PreparedQuery prepared = PreparedQuery.prepare(json,
+      Map(
+        Paginate(Match(Index("users_by_tag"), PreparedQuery.Param("tag"))).size(PreparedQuery.Param("size")),
+        Lambda("ref", Obj("ref", Var("ref"), "tag", PreparedQuery.Param("tag")))
+      ));
+
+    assertThat(prepared.parameters(), equalTo(new LinkedHashSet<>(Arrays.asList("tag", "size"))));
+
+    Map<String, Expr> params = new HashMap<>();
+    params.put("tag", Arr(Value("admin"), Value(true)));
+    params.put("size", Value(64));
+
+    RequestBody body = prepared.bind(json, params);
+    byte[] expected = json.writeValueAsBytes(
+      Map(
+        Paginate(Match(Index("users_by_tag"), Arr(Value("admin"), Value(true)))).size(Value(64)),
+        Lambda("ref", Obj("ref", Var("ref"), "tag", Arr(Value("admin"), Value(true))))
+      ));
+
+    assertThat(body.length(), equalTo((long) expected.length));
+    assertThat(publish(body), equalTo(expected));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldFailOnMissingPreparedQueryParameter() throws Exception {
+    PreparedQuery prepared = PreparedQuery.prepare(json, Get(Ref(Collection("users"), PreparedQuery.Param("id"))));
+    prepared.bind(json, Collections.singletonMap("other", Value("1")));
+  }
+
+  @Test(expected = JsonMappingException.class)
+  public void shouldFailOnParameterOutsideOfPreparedQuery() throws Exception {
+    json.writeValueAsString(Get(Ref(Collection("users"), PreparedQuery.Param("id"))));
+  }
+
+  private byte[] publish(RequestBody body) throws Exception {
+    ByteArrayOutputStream published = new ByteArrayOutputStream();
+    CompletableFuture<Void> completed = new CompletableFuture<>();
+    body.publisher().subscribe(new Flow.Subscriber<ByteBuffer>() {
+      private Flow.Subscription subscription;
+
+      public void onSubscribe(Flow.Subscription subscription) {
+        this.subscription = subscription;
+        subscription.request(1);
+      }
+
+      public void onNext(ByteBuffer item) {
+        byte[] bytes = new byte[item.remaining()];
+        item.get(bytes);
+        published.write(bytes, 0, bytes.length);
+        subscription.request(1);
+      }
+
+      public void onError(Throwable throwable) {
+        completed.completeExceptionally(throwable);
+      }
+
+      public void onComplete() {
+        completed.complete(null);
+      }
+    });
+    completed.get();
+    return published.toByteArray();
+  }
+
   private void assertJson(Expr expr, String jsonString) throws JsonProcessingException {
     assertThat(json.writeValueAsString(expr),
       equalTo(jsonString));
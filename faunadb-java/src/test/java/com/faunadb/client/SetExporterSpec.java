@@ -0,0 +1,95 @@
+package com.faunadb.client;
+
+import com.faunadb.client.errors.UnavailableException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.faunadb.client.query.Language.Collection;
+import static com.faunadb.client.query.Language.Documents;
+import static org.junit.Assert.*;
+
+public class SetExporterSpec {
+
+  private static final LocalFauna.PaginatedSet USERS =
+    new LocalFauna.PaginatedSet(25, n -> LocalFauna.json.createObjectNode().put("n", n));
+  private static final int ELEMENTS = USERS.size();
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void shouldExportEachElementOnItsOwnLine() throws Exception {
+    try (LocalFauna fauna = new LocalFauna(USERS)) {
+      SetExporter exporter = SetExporter.builder(fauna.client(), Documents(Collection("users"))).withPageSize(10).build();
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+      SetExporter.Report report = exporter.export(out);
+
+      assertEquals(ELEMENTS, report.getExported());
+      assertEquals(3, report.getPages());
+      assertFalse(report.isResumed());
+      assertEquals(lines(0, ELEMENTS), out.toString(StandardCharsets.UTF_8));
+    }
+  }
+
+  @Test
+  public void shouldResumeFromTheLastCheckpoint() throws Exception {
+    Path file = folder.getRoot().toPath().resolve("users.ndjson");
+    Path checkpoint = folder.getRoot().toPath().resolve("users.ndjson.checkpoint");
+    AtomicInteger failing = new AtomicInteger(1);
+
+    try (LocalFauna fauna = new LocalFauna(query ->
+      LocalFauna.PaginatedSet.after(query) == 20 && failing.getAndDecrement() > 0
+        ? LocalFauna.error(503, "unavailable")
+        : USERS.handle(query))) {
+      SetExporter exporter = SetExporter.builder(fauna.client(), Documents(Collection("users")))
+        .withPageSize(10)
+        .withCheckpoint(checkpoint)
+        .withCheckpointInterval(Duration.ZERO)
+        .build();
+
+      try {
+        exporter.export(file);
+        fail("expected the third page to fail");
+      } catch (UnavailableException ex) {
+        // interrupted
+      }
+      assertTrue(Files.exists(checkpoint));
+
+      // written past the last checkpoint before the crash
+      Files.writeString(file, "{\"n\":", StandardOpenOption.APPEND);
+
+      SetExporter.Report report = exporter.export(file);
+
+      assertTrue(report.isResumed());
+      assertEquals(ELEMENTS, report.getExported());
+      assertEquals(3, report.getPages());
+      assertEquals(lines(0, ELEMENTS), Files.readString(file));
+      assertFalse(Files.exists(checkpoint));
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldRejectInvalidPageSizes() {
+    SetExporter.builder(LocalFauna.offlineClient(), Documents(Collection("users"))).withPageSize(0).build();
+  }
+
+  private static String lines(int from, int to) {
+    List<String> lines = new ArrayList<>();
+    for (int n = from; n < to; n++) {
+      lines.add("{\"n\":" + n + "}\n");
+    }
+    return String.join("", lines);
+  }
+}
@@ -4,7 +4,7 @@ import com.codahale.metrics.MetricRegistry
 import com.fasterxml.jackson.databind.node.{ArrayNode, NullNode}
 import com.fasterxml.jackson.databind.{DeserializationFeature, JsonNode, ObjectMapper}
 import com.fasterxml.jackson.module.scala.DefaultScalaModule
-import com.faunadb.common.Connection
+import com.faunadb.common.{CircuitBreaker, ConcurrencyLimiter, Connection, HedgingPolicy, KeepAlivePolicy, RetryPolicy}
 import com.faunadb.common.Connection.JvmDriver
 import com.faunadb.common.http.ResponseBodyStringProcessor
 import faunadb.FaunaClient.{EventField, json}
@@ -17,7 +17,7 @@ import faunadb.values._
 import java.io.IOException
 import java.net.ConnectException
 import java.net.http.HttpResponse
-import java.util.concurrent.{CompletionException, Flow, TimeoutException}
+import java.util.concurrent.{CompletionException, Executor, Flow, RejectedExecutionException, TimeoutException}
 import scala.collection.JavaConverters._
 import scala.compat.java8.DurationConverters._
 import scala.compat.java8.FutureConverters._
@@ -42,6 +42,25 @@ object FaunaClient {
     * @param queryTimeout An optional global timeout for all the queries issued by this client. The timeout value has
     *                     milliseconds precision. If not provided, a default timeout value is set on the server side.
     * @param userAgent A value used for the User-Agent HTTP header.
+    * @param concurrencyLimiter An optional [[com.faunadb.common.ConcurrencyLimiter]] adapting the number of concurrent
+    *                           requests to the server load.
+    * @param retryPolicy An optional [[com.faunadb.common.RetryPolicy]] retrying requests failing due to contention
+    *                    or server overload.
+    * @param hedgingPolicy An optional [[com.faunadb.common.HedgingPolicy]] sending slow read-only queries a second
+    *                      time. Queries are flagged as read-only with [[faunadb.types.RequestParameters#withReadOnly]].
+    * @param endpoints URLs of several FaunaDB endpoints, such as the endpoints of different regions, in order of
+    *                  preference. Each query is routed to the healthy endpoint with the lowest expected latency.
+    *                  Replaces `endpoint` if not empty.
+    * @param circuitBreaker An optional [[com.faunadb.common.CircuitBreaker]] failing queries fast with an
+    *                       [[faunadb.errors.UnavailableException]] while the endpoint keeps failing.
+    * @param http2MaxStreams If positive, queries are sent over HTTP/2, with up to this many concurrent queries per
+    *                        HTTP client over all endpoints, and up to 8 clients. Queries use HTTP/1.1 by default.
+    * @param httpExecutor An optional executor running the HTTP client's tasks, such as sending queries and reading
+    *                     responses.
+    * @param callbackExecutor An optional executor completing the connection's futures. Defaults to the common
+    *                         fork-join pool. Results are then decoded on the implicit `ExecutionContext`.
+    * @param keepAlivePolicy An optional [[com.faunadb.common.KeepAlivePolicy]] keeping idle connections to FaunaDB
+    *                        open in the background.
     * @return A configured FaunaClient instance.
     */
   def apply(
@@ -51,14 +70,32 @@ object FaunaClient {
     queryTimeout: FiniteDuration = null,
     userAgent: String = null,
     checkNewVersion: Boolean = true,
-    customHeaders: Map[String, String] = Map.empty): FaunaClient = {
+    customHeaders: Map[String, String] = Map.empty,
+    concurrencyLimiter: ConcurrencyLimiter = null,
+    retryPolicy: RetryPolicy = null,
+    hedgingPolicy: HedgingPolicy = null,
+    endpoints: Seq[String] = Nil,
+    circuitBreaker: CircuitBreaker = null,
+    http2MaxStreams: Int = 0,
+    httpExecutor: Executor = null,
+    callbackExecutor: Executor = null,
+    keepAlivePolicy: KeepAlivePolicy = null): FaunaClient = {
 
     val b = Connection.builder
     if (endpoint ne null) b.withFaunaRoot(endpoint)
+    if (endpoints.nonEmpty) b.withFaunaRoots(endpoints: _*)
     if (secret ne null) b.withAuthToken(secret)
     if (metrics ne null) b.withMetrics(metrics)
     if (queryTimeout ne null) b.withQueryTimeout(queryTimeout.toJava)
     if (customHeaders.nonEmpty) b.withCustomHeaders(customHeaders.asJava)
+    if (concurrencyLimiter ne null) b.withConcurrencyLimiter(concurrencyLimiter)
+    if (retryPolicy ne null) b.withRetryPolicy(retryPolicy)
+    if (hedgingPolicy ne null) b.withHedgingPolicy(hedgingPolicy)
+    if (circuitBreaker ne null) b.withCircuitBreaker(circuitBreaker)
+    if (http2MaxStreams > 0) b.withHttp2(http2MaxStreams)
+    if (httpExecutor ne null) b.withHttpExecutor(httpExecutor)
+    if (callbackExecutor ne null) b.withCallbackExecutor(callbackExecutor)
+    if (keepAlivePolicy ne null) b.withKeepAlivePolicy(keepAlivePolicy)
     b.withJvmDriver(JvmDriver.SCALA)
     b.withScalaVersion(util.Properties.versionNumberString)
     b.withUserAgent(userAgent)
@@ -377,6 +414,15 @@ class FaunaClient private (connection: Connection) {
     */
   def sessionClient(secret: String): FaunaClient = new FaunaClient(connection.newSessionConnection(secret))
 
+  /**
+    * Opens connections to FaunaDB ahead of the first queries, such as when an application starts.
+    *
+    * @param connections the number of connections to open to each endpoint
+    * @return a future completed once the connections are open, or failed to open
+    */
+  def warmUp(connections: Int)(implicit ec: ExecutionContext): Future[Unit] =
+    connection.warmUp(connections).toScala.map(_ => ())
+
   /**
    * Get the freshest timestamp reported to this client.
    */
@@ -472,6 +518,9 @@ class FaunaClient private (connection: Connection) {
       Future.failed(new UnavailableException(ex.getMessage, ex))
     case ex: TimeoutException =>
       Future.failed(new UnavailableException(ex.getMessage, ex))
+    case ex: RejectedExecutionException =>
+      // the concurrency limiter or the circuit breaker did not let the request through
+      Future.failed(new UnavailableException(ex.getMessage, ex))
     case ex: CompletionException if ex.getCause.isInstanceOf[IOException] && ex.getMessage.contains("header parser received no bytes") =>
       Future.failed(new UnavailableException(ex.getMessage, ex))
     case ex: CompletionException if ex.getCause.isInstanceOf[IOException] && ex.getMessage.contains("too many concurrent streams") =>
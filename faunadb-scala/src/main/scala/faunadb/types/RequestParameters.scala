@@ -1,5 +1,6 @@
 package faunadb.types
 
+import com.faunadb.common.Deadline
 import java.time.Duration
 import scala.collection.JavaConversions._
 import scala.compat.java8.DurationConverters.FiniteDurationops
@@ -21,9 +22,70 @@ case class RequestParameters(timeout: Option[FiniteDuration] = None,
   if (tags == null) {
     throw new IllegalArgumentException("Tags cannot be null. Consider passing an empty set instead")
   }
+
+  // only ever set on new instances, before they are returned by withReadOnly, withDeadline or copy
+  private var readOnlyQuery: Boolean = false
+  private var queryDeadline: Option[Deadline] = None
+
+  /**
+   * Whether the query only performs reads, so it may safely be sent more than once,
+   * for example by a [[com.faunadb.common.HedgingPolicy]].
+   */
+  def readOnly: Boolean = readOnlyQuery
+
+  /**
+   * The deadline of the query, if any.
+   */
+  def deadline: Option[Deadline] = queryDeadline
+
+  /**
+   * Returns a copy of these parameters, flagging the query as read-only or not.
+   *
+   * @param readOnly whether the query only performs reads
+   */
+  def withReadOnly(readOnly: Boolean = true): RequestParameters = {
+    val params = copy()
+    params.readOnlyQuery = readOnly
+    params
+  }
+
+  /**
+   * Returns a copy of these parameters with the deadline provided, possibly shared with other queries.
+   * The query's timeout is then at most the time remaining, and cancelling the deadline cancels the query.
+   * Its HTTP exchange is aborted on JDK 16 and later only.
+   *
+   * @param deadline the deadline of the query
+   */
+  def withDeadline(deadline: Deadline): RequestParameters = {
+    val params = copy()
+    params.queryDeadline = Option(deadline)
+    params
+  }
+
+  def copy(timeout: Option[FiniteDuration] = timeout,
+           traceId: Option[String] = traceId,
+           tags: Map[String, String] = tags): RequestParameters = {
+    val params = new RequestParameters(timeout, traceId, tags)
+    params.readOnlyQuery = readOnlyQuery
+    params.queryDeadline = queryDeadline
+    params
+  }
+
+  override def equals(other: Any): Boolean = other match {
+    case that: RequestParameters =>
+      timeout == that.timeout && traceId == that.traceId && tags == that.tags &&
+        deadline == that.deadline && readOnly == that.readOnly
+    case _ => false
+  }
+
+  override def hashCode: Int = (timeout, traceId, tags, deadline, readOnly).##
+
   def timeoutAsJavaDuration: Option[Duration] = timeout.map(_.toJava)
-  def asJava: com.faunadb.common.models.request.RequestParameters =
-    new com.faunadb.common.models.request.RequestParameters(timeoutAsJavaDuration.asJava,
-                                                            traceId.asJava,
-                                                            mapAsJavaMap(tags))
+  def asJava: com.faunadb.common.models.request.RequestParameters = {
+    val params = new com.faunadb.common.models.request.RequestParameters(timeoutAsJavaDuration.asJava,
+                                                                         traceId.asJava,
+                                                                         mapAsJavaMap(tags),
+                                                                         readOnly)
+    deadline.fold(params)(params.withDeadline)
+  }
 }
\ No newline at end of file
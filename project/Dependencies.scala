@@ -45,7 +45,7 @@ object Dependencies {
     // shared
     val logbackClassic      = "ch.qos.logback"  %  "logback-classic"   % logbackVersion           % "test"
 
-    // faunadb-java
+    // faunadb-common, faunadb-java
     val junitInterface      = "com.novocode"    %  "junit-interface"   % junitInterfaceVersion    % "test"
     val harmcrestLibrary    = "org.hamcrest"    %  "hamcrest-library"  % harmcrestLibraryVersion  % "test"
     val junit               = "junit"           %  "junit"             % junitVersion             % "test"
@@ -75,7 +75,7 @@ object Dependencies {
   }
 
   // Projects
-  val faunadbCommon = jacksonCommon ++ Seq(slf4j, metrics)
+  val faunadbCommon = jacksonCommon ++ Seq(slf4j, metrics, junit, junitInterface)
   val faunadbJava = Seq(logbackClassic, snakeYaml, junit, junitInterface, harmcrestLibrary)
   def faunadbScala(scalaVersion: String): Seq[ModuleID] = jacksonScala ++ scalaLang(scalaVersion) ++ Seq(logbackClassic, scalaTest, reactiveStreams, monix)
 
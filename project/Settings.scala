@@ -107,7 +107,9 @@ object Settings {
   )
 
   lazy val faunadbCommonSettings = Seq(
-    apiURL := Some(url(commonApiUrl))
+    apiURL := Some(url(commonApiUrl)),
+
+    testOptions += Tests.Argument(TestFrameworks.JUnit, "+q", "-v")
   )
 
   lazy val faunadbJavaSettings = Seq(